@@ -0,0 +1,89 @@
+package com.mindspore.handpose;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.mindspore.handpose.utils.GestureResult;
+import com.mindspore.handpose.utils.ModelManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Images/sec of ModelManager.executeBatch against the batch-1 execute loop, on the device CPU.
+ * Results are logged under the "BatchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchInferenceBenchmark {
+    private static final String TAG = "BatchBenchmark";
+    private static final int IMAGE_COUNT = 32;
+    private static final int[] BATCH_SIZES = new int[]{2, 4, 8, 16};
+
+    private ModelManager modelManager;
+    private List<Bitmap> bitmaps;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        modelManager = new ModelManager(context);
+        assertNotNull("Model failed to build", modelManager.getInputBuffers());
+
+        Random random = new Random(0);
+        bitmaps = new ArrayList<>();
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            Bitmap bitmap = Bitmap.createBitmap(640, 480, Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            bitmaps.add(bitmap);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        modelManager.free();
+    }
+
+    @Test
+    public void batchVersusSingle() {
+        // Warm up both code paths.
+        modelManager.execute(bitmaps.get(0), modelManager.newResult());
+        modelManager.executeBatch(bitmaps.subList(0, 2), 2);
+
+        List<GestureResult> single = new ArrayList<>();
+        long start = System.nanoTime();
+        for (Bitmap bitmap : bitmaps) {
+            GestureResult result = modelManager.newResult();
+            modelManager.execute(bitmap, result);
+            single.add(result);
+        }
+        report("batch 1", System.nanoTime() - start);
+
+        for (int batchSize : BATCH_SIZES) {
+            start = System.nanoTime();
+            List<GestureResult> batched = modelManager.executeBatch(bitmaps, batchSize);
+            report("batch " + batchSize, System.nanoTime() - start);
+            assertEquals(single.size(), batched.size());
+            for (int i = 0; i < single.size(); i++) {
+                assertTrue(batched.get(i).isOk());
+                assertArrayEquals(single.get(i).getProbabilities(), batched.get(i).getProbabilities(), 1e-3f);
+            }
+        }
+    }
+
+    private static void report(String name, long elapsedNanos) {
+        double imagesPerSecond = IMAGE_COUNT * 1e9 / elapsedNanos;
+        Log.i(TAG, String.format("%s: %.1f images/sec", name, imagesPerSecond));
+    }
+}
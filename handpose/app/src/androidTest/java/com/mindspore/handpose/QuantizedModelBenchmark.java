@@ -0,0 +1,114 @@
+package com.mindspore.handpose;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.mindspore.handpose.utils.GestureResult;
+import com.mindspore.handpose.utils.ModelManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Latency of the float32 model against the quantized one, and how often they agree on the top class.
+ * Skipped when the quantized model is not in assets. Results are logged under the "QuantBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuantizedModelBenchmark {
+    private static final String TAG = "QuantBenchmark";
+    private static final int IMAGE_COUNT = 32;
+
+    private ModelManager floatModel;
+    private ModelManager quantizedModel;
+    private List<Bitmap> bitmaps;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        assumeTrue("No " + ModelManager.MOBILENET_HANDPOSE_INT8_MODEL + " in assets",
+                Arrays.asList(context.getAssets().list("")).contains(ModelManager.MOBILENET_HANDPOSE_INT8_MODEL));
+        floatModel = new ModelManager(context);
+        quantizedModel = new ModelManager(context, ModelManager.MOBILENET_HANDPOSE_INT8_MODEL);
+        assertNotNull("Float model failed to build", floatModel.getInputBuffers());
+        assertNotNull("Quantized model failed to build", quantizedModel.getInputBuffers());
+        assertNotNull(quantizedModel.getInputQuantization());
+
+        // Smooth noise rather than flat colors, so the two models see some structure.
+        Random random = new Random(0);
+        bitmaps = new ArrayList<>();
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            int[] pixels = new int[64 * 48];
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            Bitmap small = Bitmap.createBitmap(pixels, 64, 48, Bitmap.Config.ARGB_8888);
+            bitmaps.add(Bitmap.createScaledBitmap(small, 640, 480, true));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (floatModel != null) {
+            floatModel.free();
+        }
+        if (quantizedModel != null) {
+            quantizedModel.free();
+        }
+    }
+
+    @Test
+    public void floatVersusQuantized() {
+        List<GestureResult> floatResults = run("float32", floatModel);
+        List<GestureResult> quantizedResults = run("quantized", quantizedModel);
+
+        int agree = 0;
+        float maxDifference = 0f;
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            GestureResult expected = floatResults.get(i);
+            GestureResult actual = quantizedResults.get(i);
+            assertTrue(actual.isOk());
+            if (expected.getClassIndex() == actual.getClassIndex()) {
+                agree++;
+            }
+            for (int c = 0; c < expected.getNumClasses(); c++) {
+                maxDifference = Math.max(maxDifference, Math.abs(expected.getProbability(c) - actual.getProbability(c)));
+            }
+        }
+        Log.i(TAG, String.format("top-1 agreement %d/%d, max probability difference %.3f",
+                agree, IMAGE_COUNT, maxDifference));
+    }
+
+    private List<GestureResult> run(String name, ModelManager model) {
+        // Warm-up.
+        model.execute(bitmaps.get(0), model.newResult());
+
+        List<GestureResult> results = new ArrayList<>();
+        long inferenceNanos = 0;
+        long start = System.nanoTime();
+        for (Bitmap bitmap : bitmaps) {
+            GestureResult result = model.newResult();
+            model.execute(bitmap, result);
+            inferenceNanos += result.getInferenceNanos();
+            results.add(result);
+        }
+        long total = System.nanoTime() - start;
+        Log.i(TAG, String.format("%s: %.2f ms/image total, %.2f ms/image predict", name,
+                total / 1e6 / IMAGE_COUNT, inferenceNanos / 1e6 / IMAGE_COUNT));
+        return results;
+    }
+}
@@ -1,52 +1,96 @@
 package com.mindspore.handpose;
 
 import android.Manifest;
-import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
-import android.hardware.Camera;
+import android.content.Context;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.os.Message;
-import android.provider.MediaStore;
+import android.util.Log;
+import android.view.Surface;
+import android.view.View;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
+import com.mindspore.handpose.utils.BitmapPool;
+import com.mindspore.handpose.utils.Camera2FrameSource;
+import com.mindspore.handpose.utils.ContextTuner;
+import com.mindspore.handpose.utils.FolderClassifier;
+import com.mindspore.handpose.utils.FrameRecorder;
+import com.mindspore.handpose.utils.FrameSource;
+import com.mindspore.handpose.utils.GesturePipeline;
+import com.mindspore.handpose.utils.GestureSmoother;
+import com.mindspore.handpose.utils.InferenceService;
+import com.mindspore.handpose.utils.LegacyCameraSource;
+import com.mindspore.handpose.utils.ModelLoader;
 import com.mindspore.handpose.utils.ModelManager;
+import com.mindspore.handpose.utils.ModelPool;
+import com.mindspore.handpose.utils.PipelineMetrics;
+import com.mindspore.handpose.utils.PreviewFrame;
+import com.mindspore.handpose.utils.StartupReport;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.ref.WeakReference;
+import java.io.Writer;
 
 public class MainActivity extends AppCompatActivity implements SurfaceHolder.Callback {
     private static final String TAG = "MainActivity";
 
     private static final int REQUEST_PERMISSION = 0;
 
-    private boolean isHasPermssion;
+    // Upper bound on camera frames sent through the model, to keep battery use in check.
+    private static final float MAX_INFERENCE_FPS = 15f;
+    private static final long METRICS_REFRESH_MS = 500;
+    private static final String METRICS_FILE = "pipeline_metrics.csv";
+    // Folder to classify instead of running the camera, e.g.
+    // adb shell am start -n com.mindspore.handpose/.MainActivity -e classify_dir /sdcard/handpose/infer
+    public static final String EXTRA_CLASSIFY_DIR = "classify_dir";
+    private static final String FOLDER_RESULTS_FILE = "folder_results.csv";
+    // Number of model instances to classify the folder with in parallel, splitting the cores between them, e.g.
+    // adb shell am start -n com.mindspore.handpose/.MainActivity -e classify_dir /sdcard/handpose/infer --ei classify_models 4
+    public static final String EXTRA_CLASSIFY_MODELS = "classify_models";
+    // Name of a file in the app's external files dir to record the preview frames into, for FrameReplay, e.g.
+    // adb shell am start -n com.mindspore.handpose/.MainActivity -e record_file frames.bin
+    public static final String EXTRA_RECORD_FILE = "record_file";
+    // Capture backend, "camera2" for Camera2 with an ImageReader instead of the legacy camera, e.g.
+    // adb shell am start -n com.mindspore.handpose/.MainActivity -e camera_api camera2
+    public static final String EXTRA_CAMERA_API = "camera_api";
+    public static final String CAMERA_API_CAMERA2 = "camera2";
 
-    private Bitmap originBitmap;
+    private boolean isHasPermssion;
 
+    // Set on the UI thread once modelLoader has built and warmed up the model.
     private ModelManager modelManager;
-    public boolean isRunningModel;
-    private Handler mHandler;
+    private ModelLoader modelLoader;
+    private InferenceService inferenceService;
+    // Read by frame callbacks, which Camera2 delivers on its own thread.
+    private volatile GesturePipeline framePipeline;
+    // Set by the folder classification thread, read by onDestroy to cancel it.
+    private volatile FolderClassifier<FolderClassifier.OrientedBitmap> folderClassifier;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final Runnable refreshMetrics = new Runnable() {
+        @Override
+        public void run() {
+            metricsView.setText(metrics.format());
+            mHandler.postDelayed(this, METRICS_REFRESH_MS);
+        }
+    };
 
-    private Camera mCamera;
+    // Started and stopped with the preview surface.
+    private FrameSource frameSource;
+    // Set on the UI thread, read by frame callbacks.
+    private volatile FrameRecorder frameRecorder;
     private SurfaceView mSurfaceView;
     private SurfaceHolder mSurfaceHolder;
     private TextView textview;
-    private String model_result_str;
+    private TextView metricsView;
 
 
     @Override
@@ -55,7 +99,14 @@ public class MainActivity extends AppCompatActivity implements SurfaceHolder.Cal
         setContentView(R.layout.activity_main);
 
         init();
-        modelManager = new ModelManager(this);
+        inferenceService = new InferenceService(mHandler::post);
+        // Build the model on the inference thread; camera frames are ignored until it is warmed up.
+        // The first launch also benchmarks the context settings, see ContextTuner.
+        String modelName = ModelManager.MOBILENET_HANDPOSE_MODEL;
+        modelLoader = new ModelLoader(getApplicationContext(), modelName,
+                new ContextTuner(getApplicationContext(), modelName), ModelLoader.DEFAULT_WARM_UP_RUNS,
+                mHandler::post, this::onModelLoaded);
+        inferenceService.execute(modelLoader);
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
             isHasPermssion = true;
         } else {
@@ -67,11 +118,127 @@ public class MainActivity extends AppCompatActivity implements SurfaceHolder.Cal
         mSurfaceView = (SurfaceView) findViewById(R.id.surface_view);
         mSurfaceHolder = mSurfaceView.getHolder();
         mSurfaceHolder.addCallback(this);
+        frameSource = createFrameSource();
 
         textview = (TextView) findViewById(R.id.text_view);
+        metricsView = (TextView) findViewById(R.id.metrics_view);
+        textview.setOnLongClickListener(v -> {
+            toggleMetricsOverlay();
+            return true;
+        });
+    }
+
+    private void toggleMetricsOverlay() {
+        if (metricsView.getVisibility() == View.VISIBLE) {
+            metricsView.setVisibility(View.GONE);
+            mHandler.removeCallbacks(refreshMetrics);
+        } else {
+            metricsView.setVisibility(View.VISIBLE);
+            refreshMetrics.run();
+        }
+    }
+
+    /**
+     * Write the metrics to the app's external files dir, off the UI thread.
+     */
+    private void dumpMetrics() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            return;
+        }
+        File file = new File(dir, METRICS_FILE);
+        new Thread(() -> {
+            try (Writer writer = new FileWriter(file)) {
+                metrics.writeCsv(writer);
+                Log.i(TAG, "Metrics written to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Write metrics failed: " + e.getMessage());
+            }
+        }, "MetricsDump").start();
     }
 
 
+    private void onModelLoaded(ModelManager manager, StartupReport report) {
+        if (isDestroyed()) {
+            return;
+        }
+        if (manager == null || !report.isReady()) {
+            // A model that did not build has no input buffers; free it now instead of in onDestroy.
+            Log.e(TAG, "Model failed to load: " + report);
+            modelLoader.release();
+            textview.setText("Model failed to load");
+            return;
+        }
+        Log.i(TAG, "Model startup: " + report);
+        modelManager = manager;
+        modelManager.setMetrics(metrics);
+        String classifyDir = getIntent().getStringExtra(EXTRA_CLASSIFY_DIR);
+        if (classifyDir != null) {
+            classifyFolder(new File(classifyDir));
+        } else {
+            initFramePipeline();
+        }
+    }
+
+    /**
+     * Classify every image under {@code dir} into the app's external files dir. The camera pipeline is not
+     * started, so the inference thread only serves the folder, unless {@link #EXTRA_CLASSIFY_MODELS} asks for a
+     * {@link ModelPool} instead.
+     */
+    private void classifyFolder(File dir) {
+        File outDir = getExternalFilesDir(null);
+        if (modelManager.getInputBuffers() == null || outDir == null) {
+            return;
+        }
+        File file = new File(outDir, FOLDER_RESULTS_FILE);
+        BitmapPool pool = BitmapPool.getDefault();
+        int models = getIntent().getIntExtra(EXTRA_CLASSIFY_MODELS, 1);
+        Context context = getApplicationContext();
+        textview.setText("Classifying " + dir);
+        new Thread(() -> {
+            ModelPool<ModelManager> modelPool = null;
+            if (models > 1) {
+                // Built here rather than on the UI thread, each instance compiles the model.
+                modelPool = ModelPool.withThreadBudget(context, Runtime.getRuntime().availableProcessors(), models,
+                        ModelManager.DEFAULT_CPU_BIND_MODE);
+                folderClassifier = FolderClassifier.forModelPool(modelPool, modelManager.getLabels(), pool);
+            } else {
+                folderClassifier = FolderClassifier.forModel(modelManager, inferenceService, pool);
+            }
+            String message;
+            try (Writer writer = new FileWriter(file)) {
+                FolderClassifier.Summary summary = folderClassifier.run(dir, writer);
+                Log.i(TAG, "Folder classified: " + summary + ", bitmap pool " + pool.getHits() + " hits, "
+                        + pool.getMisses() + " misses, written to " + file);
+                message = summary.toString();
+            } catch (IOException e) {
+                Log.e(TAG, "Folder classification failed: " + e.getMessage());
+                message = "Failed: " + e.getMessage();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                if (modelPool != null) {
+                    modelPool.free();
+                }
+            }
+            final String text = message;
+            mHandler.post(() -> textview.setText(text));
+        }, "FolderClassifier").start();
+    }
+
+    private void initFramePipeline() {
+        if (modelManager.getInputBuffers() == null) {
+            return;
+        }
+        // The UI thread only hears about gesture transitions, not every frame.
+        framePipeline = new GesturePipeline(modelManager.getClassifier(), inferenceService, metrics,
+                (event, classIndex) -> mHandler.post(() -> showGesture(event, classIndex)));
+        framePipeline.setMaxFps(MAX_INFERENCE_FPS);
+        framePipeline.setFrameReleaser(frameSource::releaseFrame);
+        framePipeline.setErrorListener((frame, e) -> Log.e(TAG, "Preprocess failed, frame skipped", e));
+        framePipeline.start();
+    }
+
     private void requestPermissions() {
         ActivityCompat.requestPermissions(this,
                 new String[]{Manifest.permission.READ_EXTERNAL_STORAGE, Manifest.permission.WRITE_EXTERNAL_STORAGE,
@@ -88,64 +255,99 @@ public class MainActivity extends AppCompatActivity implements SurfaceHolder.Cal
         }
     }
 
-    private void openGallay(int request) {
-        Intent intent = new Intent(Intent.ACTION_PICK, null);
-        intent.setDataAndType(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, "image/*");
-        startActivityForResult(intent, request);
+    @Override
+    public void surfaceCreated(@NonNull SurfaceHolder holder) {
+        try {
+            frameSource.start(this::onFrame);
+        } catch (IOException e) {
+            Log.e(TAG, "Start camera failed: " + e.getMessage());
+            showCameraFailed(e.getMessage());
+            return;
+        }
+        startRecording();
     }
 
-    private void startRunningModel(boolean isDemo) {
-        if (!isRunningModel) {
-            if (originBitmap == null) {
-                Toast.makeText(this, "Please select an original picture first", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            new Thread(() -> {
-                isRunningModel = true;
-                model_result_str = modelManager.execute(originBitmap);
-                isRunningModel = false;
-                Looper.prepare();
-                mHandler = new MyHandler(MainActivity.this, isDemo);
-                mHandler.sendEmptyMessage(1);
-                Looper.loop();
-            }).start();
-        } else {
-            Toast.makeText(this, "Previous Model still running", Toast.LENGTH_SHORT).show();
+    private void showCameraFailed(String message) {
+        if (isDestroyed()) {
+            return;
         }
+        textview.setText("Camera failed: " + message);
     }
 
-    private long last_time = 0;
+    private FrameSource createFrameSource() {
+        int displayRotation = getDisplayRotation();
+        if (CAMERA_API_CAMERA2.equals(getIntent().getStringExtra(EXTRA_CAMERA_API))) {
+            Log.i(TAG, "Capturing with Camera2");
+            Camera2FrameSource source = new Camera2FrameSource(getApplicationContext(), mSurfaceHolder,
+                    displayRotation);
+            source.setFailureListener(message -> mHandler.post(() -> showCameraFailed(message)));
+            return source;
+        }
+        return new LegacyCameraSource(mSurfaceHolder, displayRotation, mHandler::post);
+    }
 
-    @Override
-    public void surfaceCreated(@NonNull SurfaceHolder holder) {
-        mCamera = Camera.open();
+    /**
+     * Rotation of the display in degrees, which the frames must follow to match the preview.
+     */
+    private int getDisplayRotation() {
+        switch (getWindowManager().getDefaultDisplay().getRotation()) {
+            case Surface.ROTATION_90:
+                return 90;
+            case Surface.ROTATION_180:
+                return 180;
+            case Surface.ROTATION_270:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Every frame goes to the pipeline; it keeps only the newest one until the model is free and hands the
+     * buffer back to the source. Runs on the source's camera thread.
+     */
+    private void onFrame(PreviewFrame frame) {
+        FrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            recorder.record(frame);
+        }
+        GesturePipeline pipeline = framePipeline;
+        if (pipeline == null) {
+            frameSource.releaseFrame(frame);
+            return;
+        }
+        pipeline.submit(frame);
+    }
+
+    /**
+     * Record the preview into {@link #EXTRA_RECORD_FILE} if it was asked for. Recording stops with the preview.
+     */
+    private void startRecording() {
+        String fileName = getIntent().getStringExtra(EXTRA_RECORD_FILE);
+        File outDir = getExternalFilesDir(null);
+        if (fileName == null || outDir == null) {
+            return;
+        }
         try {
-            last_time = System.currentTimeMillis();
-            mCamera.setDisplayOrientation(90);
-            mCamera.setPreviewDisplay(holder);
-            mCamera.startPreview();
-            mCamera.setPreviewCallback(new Camera.PreviewCallback() {
-                @Override
-                public void onPreviewFrame(byte[] data, Camera camera) {
-                    // Do something with the preview frame data
-                    long current_time = System.currentTimeMillis();
-                    if(current_time - last_time > 2000){
-                        last_time = current_time;
-
-                        Camera.Size previewSize = camera.getParameters().getPreviewSize();
-                        YuvImage yuvimage=new YuvImage(data, ImageFormat.NV21, previewSize.width, previewSize.height, null);
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        yuvimage.compressToJpeg(new Rect(0, 0, previewSize.width, previewSize.height), 80, baos);
-                        byte[] jdata = baos.toByteArray();
-
-                        originBitmap = BitmapFactory.decodeByteArray(jdata, 0, jdata.length);
-                        startRunningModel(true);
-                    }
+            frameRecorder = FrameRecorder.create(new File(outDir, fileName), frameSource.getFrameBytes());
+            Log.i(TAG, "Recording preview to " + fileName);
+        } catch (IOException e) {
+            Log.e(TAG, "Start recording failed: " + e.getMessage());
+        }
+    }
 
-                }
-            });
+    private void stopRecording() {
+        if (frameRecorder == null) {
+            return;
+        }
+        FrameRecorder recorder = frameRecorder;
+        frameRecorder = null;
+        try {
+            recorder.close();
+            Log.i(TAG, "Recorded " + recorder.getRecordedFrames() + " frames, dropped "
+                    + recorder.getDroppedFrames());
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.e(TAG, "Recording failed: " + e.getMessage());
         }
     }
 
@@ -156,46 +358,52 @@ public class MainActivity extends AppCompatActivity implements SurfaceHolder.Cal
 
     @Override
     public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
-        mCamera.stopPreview();
-        mCamera.release();
-        mCamera = null;
+        frameSource.stop();
+        stopRecording();
     }
 
-    public void changeTextview(){
-        runOnUiThread(() -> {
-            textview.setText(model_result_str);
-        });
-
+    private void showGesture(GestureSmoother.Event event, int classIndex) {
+        String label = modelManager.getLabels()[classIndex];
+        switch (event) {
+            case ENTERED:
+                textview.setText(label);
+                break;
+            case HELD:
+                textview.setText(label + " (held)");
+                break;
+            case LEFT:
+                textview.setText("");
+                break;
+            default:
+                break;
+        }
     }
 
-    private static class MyHandler extends Handler {
-        private final WeakReference<MainActivity> weakReference;
-        private boolean isDemo;
-
-        public MyHandler(MainActivity activity, boolean demo) {
-            weakReference = new WeakReference<>(activity);
-            this.isDemo = demo;
-        }
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapPool.getDefault().onTrimMemory(level);
+    }
 
-        @Override
-        public void handleMessage(Message msg) {
-            super.handleMessage(msg);
-            MainActivity activity = weakReference.get();
-            if (msg.what == 1) {
-                if (null != activity) {
-                    activity.changeTextview();
-                }
-            }
-        }
+    @Override
+    protected void onPause() {
+        super.onPause();
+        dumpMetrics();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        modelManager.free();
-        if (mHandler != null) {
-            mHandler.removeCallbacksAndMessages(null);
+        if (framePipeline != null) {
+            framePipeline.stop();
+        }
+        if (folderClassifier != null) {
+            folderClassifier.cancel();
         }
+        // Let the inference thread finish before the model it uses is freed.
+        inferenceService.shutdown();
+        modelLoader.release();
+        mHandler.removeCallbacksAndMessages(null);
 
     }
 
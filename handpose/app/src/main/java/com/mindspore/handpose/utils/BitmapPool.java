@@ -0,0 +1,100 @@
+package com.mindspore.handpose.utils;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+/**
+ * Mutable bitmaps kept for {@code BitmapFactory.Options.inBitmap}, so decoding image after image reuses the
+ * same pixel memory instead of allocating a bitmap per image.
+ * <p>
+ * Bitmaps are bucketed by allocation size, see {@link SizeBucketPool}; any bucket at least as large as the
+ * decoded image fits, BitmapFactory reconfigures it. The pool holds at most a budget of bytes, evicted
+ * bitmaps are recycled, and {@link #onTrimMemory} gives memory back when the system runs low. Thread-safe,
+ * the decode and inference threads share {@link #getDefault()}.
+ */
+public class BitmapPool {
+    // Bytes per ARGB_8888 pixel, the only config the decode paths use.
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static BitmapPool defaultPool;
+
+    private final SizeBucketPool<Bitmap> pool;
+
+    public BitmapPool(long maxBytes) {
+        pool = new SizeBucketPool<>(maxBytes, Bitmap::recycle);
+    }
+
+    /**
+     * The process-wide pool, an eighth of the heap limit.
+     */
+    public static synchronized BitmapPool getDefault() {
+        if (defaultPool == null) {
+            defaultPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+        }
+        return defaultPool;
+    }
+
+    /**
+     * A pooled bitmap large enough to decode a {@code width} x {@code height} ARGB_8888 image into, or null.
+     * It is removed from the pool; hand it back with {@link #put} if it ends up unused.
+     */
+    public Bitmap getReusable(int width, int height) {
+        return pool.take((long) width * height * BYTES_PER_PIXEL);
+    }
+
+    /**
+     * Release {@code bitmap}: kept for reuse if it is mutable, recycled otherwise or when over the budget.
+     * The caller must not touch it afterwards.
+     */
+    public void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            bitmap.recycle();
+            return;
+        }
+        pool.put(bitmap, bitmap.getAllocationByteCount());
+    }
+
+    /**
+     * Forward {@link ComponentCallbacks2#onTrimMemory}: halve the pool while the app runs low on memory, empty
+     * it when memory is critical or the app is in the background.
+     */
+    public void onTrimMemory(int level) {
+        pool.trimTo(trimTarget(level, pool.getMaxBytes()));
+    }
+
+    /**
+     * Bytes to keep at trim {@code level}.
+     */
+    static long trimTarget(int level, long maxBytes) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return maxBytes / 2;
+        }
+        return maxBytes;
+    }
+
+    public void clear() {
+        pool.clear();
+    }
+
+    public long getCurrentBytes() {
+        return pool.getCurrentBytes();
+    }
+
+    /**
+     * Decodes that found a bitmap to reuse, and those that had to allocate.
+     */
+    public long getHits() {
+        return pool.getHits();
+    }
+
+    public long getMisses() {
+        return pool.getMisses();
+    }
+}
@@ -60,11 +60,25 @@ public class BitmapUtils {
     public static Bitmap loadFromPath(Activity activity, int id, int width, int height) {
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
-        InputStream is = activity.getResources().openRawResource(id);
-        int sampleSize = calculateInSampleSize(options, width, height);
-        options.inSampleSize = sampleSize;
-        options.inJustDecodeBounds = false;
-        return zoomImage(BitmapFactory.decodeStream(is), width, height);
+        // A resource stream cannot be rewound after the bounds pass, so each pass opens its own.
+        try (InputStream is = activity.getResources().openRawResource(id)) {
+            BitmapFactory.decodeStream(is, null, options);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read bounds: " + e.getMessage());
+        }
+        options.inSampleSize = calculateInSampleSize(options, width, height);
+        BitmapPool pool = BitmapPool.getDefault();
+        Bitmap bitmap = null;
+        try {
+            bitmap = decodePooled(options, pool, pooledOptions -> {
+                try (InputStream is = activity.getResources().openRawResource(id)) {
+                    return BitmapFactory.decodeStream(is, null, pooledOptions);
+                }
+            });
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to decode: " + e.getMessage());
+        }
+        return bitmap == null ? null : zoomImage(bitmap, width, height, pool);
     }
 
     public static Bitmap loadFromPath(Activity activity, Uri uri, int width, int height) {
@@ -75,10 +89,93 @@ public class BitmapUtils {
         BitmapFactory.decodeFile(path, options);
         int sampleSize = calculateInSampleSize(options, width, height);
         options.inSampleSize = sampleSize;
+
+        BitmapPool pool = BitmapPool.getDefault();
+        Bitmap bitmap = decodeFilePooled(path, options, pool);
+        // Not rotated: pass getOrientation(path) to ModelManager.execute, which rotates while resizing.
+        return bitmap == null ? null : zoomImage(bitmap, width, height, pool);
+    }
+
+    /**
+     * Decode {@code path} subsampled by the largest power of two that keeps its short side at least
+     * {@code minShortSide}. The full-size image is never in memory. The bitmap is left as stored: its EXIF
+     * orientation, see {@link #getOrientation}, is applied by the model's resize kernel instead of a rotated copy.
+     *
+     * @return null if the file is not a decodable image.
+     */
+    public static Bitmap decodeSampled(String path, int minShortSide) {
+        return decodeSampled(path, minShortSide, BitmapPool.getDefault());
+    }
+
+    /**
+     * Same as {@link #decodeSampled(String, int)}, decoding into a bitmap from {@code pool} when one fits.
+     * Hand the result back to the pool once done with it.
+     */
+    public static Bitmap decodeSampled(String path, int minShortSide, BitmapPool pool) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = sampleSizeForShortSide(options.outWidth, options.outHeight, minShortSide);
+        return decodeFilePooled(path, options, pool);
+    }
+
+    private interface Decode {
+        Bitmap decode(BitmapFactory.Options options) throws IOException;
+    }
+
+    private static Bitmap decodeFilePooled(String path, BitmapFactory.Options options, BitmapPool pool) {
+        try {
+            return decodePooled(options, pool, pooledOptions -> BitmapFactory.decodeFile(path, pooledOptions));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to decode: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Run {@code decode} with {@code options}, which hold the image bounds and inSampleSize, into a bitmap from
+     * {@code pool} when one is large enough.
+     */
+    private static Bitmap decodePooled(BitmapFactory.Options options, BitmapPool pool, Decode decode)
+            throws IOException {
+        // Some decoders round the sample size down to a power of two, which only makes the output larger.
+        int sampleSize = Integer.highestOneBit(Math.max(1, options.inSampleSize));
+        Bitmap reusable = pool.getReusable((options.outWidth + sampleSize - 1) / sampleSize,
+                (options.outHeight + sampleSize - 1) / sampleSize);
         options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = reusable;
+        try {
+            Bitmap bitmap = decode.decode(options);
+            if (bitmap == null && reusable != null) {
+                pool.put(reusable);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            if (reusable == null) {
+                throw e;
+            }
+            // BitmapFactory refused the pooled bitmap; it may be half-written, so it is not pooled again.
+            reusable.recycle();
+            options.inBitmap = null;
+            return decode.decode(options);
+        }
+    }
 
-        Bitmap bitmap = zoomImage(BitmapFactory.decodeFile(path, options), width, height);
-        return rotateBitmap(bitmap, getRotationAngle(path));
+    /**
+     * Largest power of two (BitmapFactory rounds down to one anyway) that does not shrink the short side
+     * of a width x height image below {@code minShortSide}.
+     */
+    static int sampleSizeForShortSide(int width, int height, int minShortSide) {
+        int shortSide = Math.min(width, height);
+        int sampleSize = 1;
+        while (shortSide / (sampleSize * 2) >= minShortSide) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
     }
 
     private static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
@@ -97,6 +194,17 @@ public class BitmapUtils {
         return inSampleSize;
     }
 
+    /**
+     * {@link #zoomImage(Bitmap, int, int)}, handing the unscaled bitmap back to {@code pool}.
+     */
+    private static Bitmap zoomImage(Bitmap bitmap, int targetWidth, int maxHeight, BitmapPool pool) {
+        Bitmap scaled = zoomImage(bitmap, targetWidth, maxHeight);
+        if (scaled != bitmap) {
+            pool.put(bitmap);
+        }
+        return scaled;
+    }
+
     // Scale pictures to screen width.
     private static Bitmap zoomImage(Bitmap imageBitmap, int targetWidth, int maxHeight) {
         float scaleFactor =
@@ -114,89 +222,17 @@ public class BitmapUtils {
     }
 
     /**
-     * Get the rotation angle of the photo.
-     *
-     * @param path photo path.
-     * @return angle.
+     * EXIF orientation of the photo at {@code path}, including the mirrored ones; NORMAL if it has none.
      */
-    public static int getRotationAngle(String path) {
-        int rotation = 0;
+    public static Orientation getOrientation(String path) {
         try {
             ExifInterface exifInterface = new ExifInterface(path);
-            int orientation = exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
-            switch (orientation) {
-                case ExifInterface.ORIENTATION_ROTATE_90:
-                    rotation = 90;
-                    break;
-                case ExifInterface.ORIENTATION_ROTATE_180:
-                    rotation = 180;
-                    break;
-                case ExifInterface.ORIENTATION_ROTATE_270:
-                    rotation = 270;
-                    break;
-                default:
-                    break;
-            }
+            return Orientation.fromExif(exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL));
         } catch (IOException e) {
-            Log.e(TAG, "Failed to get rotation: " + e.getMessage());
-        }
-        return rotation;
-    }
-
-    public static Bitmap rotateBitmap(Bitmap bitmap, int angle) {
-        Matrix matrix = new Matrix();
-        matrix.postRotate(angle);
-        Bitmap result = null;
-        try {
-            result = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
-        } catch (OutOfMemoryError e) {
-            Log.e(TAG, "Failed to rotate bitmap: " + e.getMessage());
+            Log.e(TAG, "Failed to get orientation: " + e.getMessage());
+            return Orientation.NORMAL;
         }
-        if (result == null) {
-            return bitmap;
-        }
-        return result;
-    }
-
-    private static Matrix decodeExifOrientation(int orientation) {
-        Matrix matrix = new Matrix();
-
-        switch (orientation) {
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_NORMAL:
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_UNDEFINED:
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_ROTATE_90:
-                matrix.postRotate(90F);
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_ROTATE_180:
-                matrix.postRotate(180F);
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_ROTATE_270:
-                matrix.postRotate(270F);
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
-                matrix.postScale(-1F, 1F);
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_FLIP_VERTICAL:
-                matrix.postScale(1F, -1F);
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_TRANSPOSE:
-                matrix.postScale(-1F, 1F);
-                matrix.postRotate(270F);
-                break;
-            case androidx.exifinterface.media.ExifInterface.ORIENTATION_TRANSVERSE:
-                matrix.postScale(-1F, 1F);
-                matrix.postRotate(90F);
-                break;
-
-            default:
-                try {
-                    new IllegalArgumentException("Invalid orientation: " + orientation);
-                } catch (Throwable throwable) {
-                    throwable.printStackTrace();
-                }
-        }
-        return matrix;
     }
 
     public static Bitmap scaleBitmapAndKeepRatio(Bitmap targetBmp, int reqHeightInPixels, int reqWidthInPixels) {
@@ -240,30 +276,76 @@ public class BitmapUtils {
     }
 
     public static ByteBuffer bitmapToByteBuffer(Bitmap bitmapIn, int width, int height, float[] mean, float[] std) {
-        Bitmap bitmap = scaleBitmapAndKeepRatio(bitmapIn, width, height);
         ByteBuffer inputImage = ByteBuffer.allocateDirect(1 * width * height * 3 * 4);
         inputImage.order(ByteOrder.nativeOrder());
-        inputImage.rewind();
-        int[] intValues = new int[width * height];
-        bitmap.getPixels(intValues, 0, width, 0, 0, width, height);
-        int pixel = 0;
-        for (int c = 0;c < 3;c++){
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-//                    int value = intValues[pixel++];
-                    int value = intValues[y*width + x];
-                    // 分别对应RGB（还是BGR?）
-//                    inputImage.putFloat(((float) (value >> 16 & 255) - mean[0]) / std[0]);
-//                    inputImage.putFloat(((float) (value >> 8 & 255) - mean[1]) / std[1]);
-//                    inputImage.putFloat(((float) (value & 255) - mean[2]) / std[2]);
-                    inputImage.putFloat(((float) (value >> (c*8) & 255) - mean[c]) / std[c]);
-                }
-            }
-        }
-        inputImage.rewind();
+        bitmapToByteBuffer(bitmapIn, width, height, mean, std, inputImage,
+                new int[bitmapIn.getWidth() * bitmapIn.getHeight()]);
         return inputImage;
     }
 
+    /**
+     * Same as {@link #bitmapToByteBuffer(Bitmap, int, int, float[], float[])} but fills a caller-owned
+     * native-order buffer, using {@code intValues} as pixel scratch. The scratch must hold every pixel of
+     * {@code bitmapIn}: a bitmap that is not already width x height goes through the fused
+     * {@link ResizeCropKernel} instead of scaleBitmapAndKeepRatio, so no intermediate Bitmap is created.
+     */
+    public static void bitmapToByteBuffer(Bitmap bitmapIn, int width, int height, float[] mean, float[] std,
+                                          ByteBuffer inputImage, int[] intValues) {
+        bitmapToByteBuffer(bitmapIn, Orientation.NORMAL, width, height, mean, std, inputImage, intValues);
+    }
+
+    /**
+     * Same as {@link #bitmapToByteBuffer(Bitmap, int, int, float[], float[], ByteBuffer, int[])} for a bitmap
+     * stored with {@code orientation}: the kernel reads the pixels in upright order, nothing is rotated.
+     */
+    public static void bitmapToByteBuffer(Bitmap bitmapIn, Orientation orientation, int width, int height,
+                                          float[] mean, float[] std, ByteBuffer inputImage, int[] intValues) {
+        int srcWidth = bitmapIn.getWidth();
+        int srcHeight = bitmapIn.getHeight();
+        readPixels(bitmapIn, intValues);
+        if (srcWidth != width || srcHeight != height || orientation != Orientation.NORMAL) {
+            CropWindow window = CropWindow.centerCrop(srcWidth, srcHeight, orientation, width, height);
+            ResizeCropKernel.argbToByteBuffer(intValues, srcWidth, srcHeight, window, inputImage, width, height,
+                    mean, std);
+            inputImage.rewind();
+            return;
+        }
+
+        ChwNormalizer.argbToByteBuffer(intValues, width, height, inputImage, mean, std);
+    }
+
+    /**
+     * Quantized variant of {@link #bitmapToByteBuffer(Bitmap, int, int, float[], float[], ByteBuffer, int[])}
+     * for int8/uint8 inputs: writes one byte per element from {@code lut}, see {@link InputQuantization#lookupTable}.
+     */
+    public static void bitmapToQuantized(Bitmap bitmapIn, int width, int height, byte[] lut,
+                                         ByteBuffer inputImage, int[] intValues) {
+        bitmapToQuantized(bitmapIn, Orientation.NORMAL, width, height, lut, inputImage, intValues);
+    }
+
+    public static void bitmapToQuantized(Bitmap bitmapIn, Orientation orientation, int width, int height, byte[] lut,
+                                         ByteBuffer inputImage, int[] intValues) {
+        int srcWidth = bitmapIn.getWidth();
+        int srcHeight = bitmapIn.getHeight();
+        readPixels(bitmapIn, intValues);
+        if (srcWidth != width || srcHeight != height || orientation != Orientation.NORMAL) {
+            CropWindow window = CropWindow.centerCrop(srcWidth, srcHeight, orientation, width, height);
+            ResizeCropKernel.argbToQuantized(intValues, srcWidth, srcHeight, window, inputImage, width, height, lut);
+            inputImage.rewind();
+            return;
+        }
+        ChwNormalizer.argbToQuantized(intValues, width, height, inputImage, lut);
+    }
+
+    private static void readPixels(Bitmap bitmap, int[] intValues) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (intValues.length < width * height) {
+            throw new IllegalArgumentException("Pixel scratch too small: " + intValues.length);
+        }
+        bitmap.getPixels(intValues, 0, width, 0, 0, width, height);
+    }
+
     public static void saveToAlbum(final Context context, Bitmap bitmap) {
         Uri saveUri = context.getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, new ContentValues());
         OutputStream outputStream = null;
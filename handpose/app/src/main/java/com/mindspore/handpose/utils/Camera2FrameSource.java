@@ -0,0 +1,392 @@
+package com.mindspore.handpose.utils;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.util.Range;
+import android.util.Size;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link FrameSource} on Camera2: an {@link ImageReader} stream of YUV_420_888 images at the size
+ * {@link PreviewSizes} picks, next to the preview surface.
+ * <p>
+ * Frames hand the image planes to the pipeline as {@link YuvPlanes}, read in place, so no frame is copied into
+ * a {@code byte[]}. At most {@link #FRAMES_IN_FLIGHT} images are out at once; beyond that the reader's queue
+ * fills up and the camera drops frames itself, and the newest waiting image is taken as soon as one comes back.
+ * Everything camera-related runs on a background thread.
+ */
+public class Camera2FrameSource implements FrameSource {
+    private static final String TAG = "Camera2FrameSource";
+    public static final String THREAD_NAME = "Camera2Source";
+    // Images in the pipeline at once: one pending, one being preprocessed and one being inferred.
+    public static final int FRAMES_IN_FLIGHT = 3;
+    // ImageReader.acquireLatestImage holds two images while it skips ahead.
+    private static final int MAX_IMAGES = FRAMES_IN_FLIGHT + 2;
+    // Camera frame rate; the pipeline throttles inference separately, see FramePipeline#setMaxFps.
+    public static final int DEFAULT_TARGET_FPS = 30;
+
+    public interface FailureListener {
+        /**
+         * Called on the camera thread once the camera has failed and been closed; no more frames will come.
+         */
+        void onFailure(String message);
+    }
+
+    private final Context context;
+    private final SurfaceHolder holder;
+    private final int displayRotation;
+    private final int targetFps;
+    private FailureListener failureListener;
+    private Capture capture;
+    private int width;
+    private int height;
+    private Orientation orientation = Orientation.NORMAL;
+
+    private static final class ImageFrame extends PreviewFrame {
+        final Image image;
+        final Capture capture;
+
+        ImageFrame(Image image, Capture capture, YuvPlanes planes, Orientation orientation, long timestampNanos) {
+            super(planes, orientation, timestampNanos);
+            this.image = image;
+            this.capture = capture;
+        }
+    }
+
+    public Camera2FrameSource(Context context, SurfaceHolder holder, int displayRotation) {
+        this(context, holder, displayRotation, DEFAULT_TARGET_FPS);
+    }
+
+    /**
+     * @param displayRotation rotation of the display in degrees, to turn the frames upright.
+     * @param targetFps       the camera runs at the steadiest frame rate range reaching this.
+     */
+    public Camera2FrameSource(Context context, SurfaceHolder holder, int displayRotation, int targetFps) {
+        this.context = context;
+        this.holder = holder;
+        this.displayRotation = displayRotation;
+        this.targetFps = targetFps;
+    }
+
+    /**
+     * Set before {@link #start}, to hear about a camera error or a session that could not be configured.
+     */
+    public void setFailureListener(FailureListener listener) {
+        failureListener = listener;
+    }
+
+    /**
+     * Call on the UI thread, which owns the preview surface.
+     */
+    @Override
+    public void start(FrameConsumer consumer) throws IOException {
+        CameraManager manager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        try {
+            String cameraId = null;
+            CameraCharacteristics characteristics = null;
+            for (String id : manager.getCameraIdList()) {
+                characteristics = manager.getCameraCharacteristics(id);
+                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
+                if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
+                    cameraId = id;
+                    break;
+                }
+            }
+            if (cameraId == null) {
+                throw new IOException("No back camera");
+            }
+            StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            Size size = PreviewSizes.choose(map.getOutputSizes(ImageFormat.YUV_420_888), PreviewSizes.MIN_SHORT_SIDE);
+            width = size.getWidth();
+            height = size.getHeight();
+            Integer sensorOrientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+            orientation = Orientation.forCamera(sensorOrientation == null ? 0 : sensorOrientation, displayRotation,
+                    false);
+            Range<Integer> fpsRange = chooseFpsRange(
+                    characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES), targetFps);
+            // A supported size for the preview surface; the display turns Camera2 buffers upright itself.
+            holder.setFixedSize(width, height);
+            capture = new Capture(manager, cameraId, consumer, orientation, fpsRange);
+        } catch (CameraAccessException | SecurityException e) {
+            // SecurityException: the camera permission has not been granted (yet).
+            throw new IOException("Camera2 access failed", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (capture != null) {
+            capture.stop();
+            capture = null;
+        }
+    }
+
+    @Override
+    public void releaseFrame(PreviewFrame frame) {
+        ImageFrame imageFrame = (ImageFrame) frame;
+        imageFrame.capture.release(imageFrame.image);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFrameBytes() {
+        return width * height * 3 / 2;
+    }
+
+    @Override
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * The range with the smallest upper bound reaching {@code targetFps}, the narrowest of those; a fixed rate
+     * keeps the frame timing steady and the exposure short. The fastest range if none reaches it.
+     */
+    static Range<Integer> chooseFpsRange(Range<Integer>[] ranges, int targetFps) {
+        if (ranges == null || ranges.length == 0) {
+            return null;
+        }
+        int[][] bounds = new int[ranges.length][];
+        for (int i = 0; i < ranges.length; i++) {
+            bounds[i] = new int[]{ranges[i].getLower(), ranges[i].getUpper()};
+        }
+        return ranges[chooseFpsRange(bounds, targetFps)];
+    }
+
+    /**
+     * Index of the chosen {lower, upper} pair, see {@link #chooseFpsRange(Range[], int)}.
+     */
+    static int chooseFpsRange(int[][] ranges, int targetFps) {
+        int best = -1;
+        int fastest = 0;
+        for (int i = 0; i < ranges.length; i++) {
+            int[] range = ranges[i];
+            if (range[1] > ranges[fastest][1] || (range[1] == ranges[fastest][1] && range[0] > ranges[fastest][0])) {
+                fastest = i;
+            }
+            if (range[1] < targetFps) {
+                continue;
+            }
+            if (best < 0 || range[1] < ranges[best][1] || (range[1] == ranges[best][1] && range[0] > ranges[best][0])) {
+                best = i;
+            }
+        }
+        return best >= 0 ? best : fastest;
+    }
+
+    /**
+     * One camera session, from opening the device to closing the reader. Only touched on its own thread; the
+     * reader is closed once every image it handed out has come back, so the pipeline never reads freed planes.
+     */
+    private final class Capture {
+        private final FrameConsumer consumer;
+        private final Orientation orientation;
+        private final Range<Integer> fpsRange;
+        private final HandlerThread thread = new HandlerThread(THREAD_NAME);
+        private final Handler handler;
+        private final ImageReader reader;
+        private CameraDevice device;
+        private CameraCaptureSession session;
+        private int imagesOut;
+        // openCamera has not called back yet; the thread must outlive it to close the device.
+        private boolean opening = true;
+        private boolean stopped;
+
+        Capture(CameraManager manager, String cameraId, FrameConsumer consumer, Orientation orientation,
+                Range<Integer> fpsRange) throws CameraAccessException {
+            this.consumer = consumer;
+            this.orientation = orientation;
+            this.fpsRange = fpsRange;
+            thread.start();
+            handler = new Handler(thread.getLooper());
+            reader = ImageReader.newInstance(width, height, ImageFormat.YUV_420_888, MAX_IMAGES);
+            reader.setOnImageAvailableListener(r -> acquire(), handler);
+            try {
+                openCamera(manager, cameraId);
+            } catch (CameraAccessException | RuntimeException e) {
+                // No callback will come, so nothing else closes the reader or ends the thread.
+                reader.close();
+                thread.quitSafely();
+                throw e;
+            }
+        }
+
+        @SuppressLint("MissingPermission") // MainActivity asks for the camera permission first.
+        private void openCamera(CameraManager manager, String cameraId) throws CameraAccessException {
+            manager.openCamera(cameraId, new CameraDevice.StateCallback() {
+                @Override
+                public void onOpened(CameraDevice camera) {
+                    opening = false;
+                    device = camera;
+                    if (stopped) {
+                        closeCamera();
+                        finishIfIdle();
+                        return;
+                    }
+                    createSession();
+                }
+
+                @Override
+                public void onDisconnected(CameraDevice camera) {
+                    opening = false;
+                    camera.close();
+                    device = null;
+                    finishIfIdle();
+                }
+
+                @Override
+                public void onError(CameraDevice camera, int error) {
+                    opening = false;
+                    camera.close();
+                    device = null;
+                    fail("Camera error " + error);
+                }
+            }, handler);
+        }
+
+        private void createSession() {
+            Surface preview = holder.getSurface();
+            try {
+                device.createCaptureSession(Arrays.asList(preview, reader.getSurface()),
+                        new CameraCaptureSession.StateCallback() {
+                            @Override
+                            public void onConfigured(CameraCaptureSession configured) {
+                                session = configured;
+                                if (stopped) {
+                                    closeCamera();
+                                    return;
+                                }
+                                startRepeating(preview);
+                            }
+
+                            @Override
+                            public void onConfigureFailed(CameraCaptureSession failed) {
+                                failed.close();
+                                fail("Capture session configuration failed");
+                            }
+                        }, handler);
+            } catch (CameraAccessException | IllegalStateException e) {
+                fail("Create capture session failed: " + e.getMessage());
+            }
+        }
+
+        private void startRepeating(Surface preview) {
+            try {
+                CaptureRequest.Builder builder = device.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+                builder.addTarget(preview);
+                builder.addTarget(reader.getSurface());
+                if (fpsRange != null) {
+                    builder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange);
+                }
+                session.setRepeatingRequest(builder.build(), null, handler);
+            } catch (CameraAccessException | IllegalStateException e) {
+                Log.e(TAG, "Start preview failed: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Take the newest waiting image, unless the pipeline already holds its share.
+         */
+        private void acquire() {
+            if (stopped || imagesOut >= FRAMES_IN_FLIGHT) {
+                return;
+            }
+            Image image = reader.acquireLatestImage();
+            if (image == null) {
+                return;
+            }
+            imagesOut++;
+            Image.Plane[] planes = image.getPlanes();
+            YuvPlanes yuv = new YuvPlanes(image.getWidth(), image.getHeight(),
+                    planes[0].getBuffer(), planes[0].getRowStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+            // Receive time on the same clock as the legacy camera, not the sensor timestamp.
+            consumer.onFrame(new ImageFrame(image, this, yuv, orientation, System.nanoTime()));
+        }
+
+        void release(Image image) {
+            handler.post(() -> {
+                image.close();
+                imagesOut--;
+                if (stopped) {
+                    finishIfIdle();
+                } else {
+                    acquire();
+                }
+            });
+        }
+
+        void stop() {
+            handler.post(() -> {
+                stopped = true;
+                closeCamera();
+                finishIfIdle();
+            });
+        }
+
+        /**
+         * Tear the capture down as {@link #stop} does and tell the listener, unless already stopped.
+         */
+        private void fail(String message) {
+            Log.e(TAG, message);
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            closeCamera();
+            finishIfIdle();
+            FailureListener listener = failureListener;
+            if (listener != null) {
+                listener.onFailure(message);
+            }
+        }
+
+        private void closeCamera() {
+            if (session != null) {
+                session.close();
+                session = null;
+            }
+            if (device != null) {
+                device.close();
+                device = null;
+            }
+        }
+
+        /**
+         * Close the reader and end the thread once stopped and nothing is left to call back.
+         */
+        private void finishIfIdle() {
+            if (!stopped || opening || imagesOut > 0) {
+                return;
+            }
+            reader.close();
+            thread.quitSafely();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * "Normalize + HWC2CHW" of an ARGB image that already has the model input size.
+ * <p>
+ * Each pixel is read once and its R, G and B values are written to the three planes with absolute puts,
+ * as {@code value * (1 / std) - mean / std}. Planes are in RGB order, like the Decode() of the training
+ * pipeline.
+ */
+public class ChwNormalizer {
+    // Below this many rows per task the fork-join overhead outweighs the split.
+    private static final int MIN_ROWS_PER_TASK = 32;
+
+    /**
+     * @param pixels ARGB pixels, row-major, {@code width * height} entries.
+     * @param out    native-order buffer holding at least 3 * width * height floats, CHW layout.
+     */
+    public static void argbToByteBuffer(int[] pixels, int width, int height, ByteBuffer out,
+                                        float[] mean, float[] std) {
+        out.rewind();
+        argbToFloatBuffer(pixels, width, height, out.asFloatBuffer(), mean, std);
+    }
+
+    /**
+     * Same as {@link #argbToByteBuffer(int[], int, int, ByteBuffer, float[], float[])} with the rows split
+     * across {@code pool}.
+     */
+    public static void argbToByteBuffer(int[] pixels, int width, int height, ByteBuffer out,
+                                        float[] mean, float[] std, ForkJoinPool pool) {
+        out.rewind();
+        argbToFloatBuffer(pixels, width, height, out.asFloatBuffer(), mean, std, pool);
+    }
+
+    /**
+     * @param out float view of the input tensor; its position is ignored and left unchanged.
+     */
+    public static void argbToFloatBuffer(int[] pixels, int width, int height, FloatBuffer out,
+                                         float[] mean, float[] std) {
+        normalizeRows(pixels, width, height, 0, height, out, mean, std);
+    }
+
+    public static void argbToFloatBuffer(int[] pixels, int width, int height, FloatBuffer out,
+                                         float[] mean, float[] std, ForkJoinPool pool) {
+        if (pool == null || height < 2 * MIN_ROWS_PER_TASK) {
+            normalizeRows(pixels, width, height, 0, height, out, mean, std);
+            return;
+        }
+        pool.invoke(new RowsTask(pixels, width, height, 0, height, out, mean, std));
+    }
+
+    /**
+     * Quantized variant: one byte per element, from {@code lut} built by {@link InputQuantization#lookupTable}.
+     */
+    public static void argbToQuantized(int[] pixels, int width, int height, ByteBuffer out, byte[] lut) {
+        final int greenPlane = width * height;
+        final int bluePlane = 2 * greenPlane;
+        for (int i = 0; i < greenPlane; i++) {
+            int value = pixels[i];
+            out.put(i, lut[value >> 16 & 0xFF]);
+            out.put(greenPlane + i, lut[256 + (value >> 8 & 0xFF)]);
+            out.put(bluePlane + i, lut[512 + (value & 0xFF)]);
+        }
+        out.rewind();
+    }
+
+    private static void normalizeRows(int[] pixels, int width, int height, int rowBegin, int rowEnd,
+                                      FloatBuffer out, float[] mean, float[] std) {
+        final float scaleR = 1f / std[0];
+        final float scaleG = 1f / std[1];
+        final float scaleB = 1f / std[2];
+        final float biasR = -mean[0] * scaleR;
+        final float biasG = -mean[1] * scaleG;
+        final float biasB = -mean[2] * scaleB;
+        final int greenPlane = width * height;
+        final int bluePlane = 2 * greenPlane;
+
+        for (int i = rowBegin * width, end = rowEnd * width; i < end; i++) {
+            int value = pixels[i];
+            out.put(i, (value >> 16 & 0xFF) * scaleR + biasR);
+            out.put(greenPlane + i, (value >> 8 & 0xFF) * scaleG + biasG);
+            out.put(bluePlane + i, (value & 0xFF) * scaleB + biasB);
+        }
+    }
+
+    /**
+     * Halves its row range until it is small enough, then normalizes it. Ranges are disjoint and only
+     * absolute puts are used, so the tasks can share one FloatBuffer.
+     */
+    private static class RowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+        private final int rowBegin;
+        private final int rowEnd;
+        private final FloatBuffer out;
+        private final float[] mean;
+        private final float[] std;
+
+        RowsTask(int[] pixels, int width, int height, int rowBegin, int rowEnd, FloatBuffer out,
+                 float[] mean, float[] std) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.rowBegin = rowBegin;
+            this.rowEnd = rowEnd;
+            this.out = out;
+            this.mean = mean;
+            this.std = std;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowBegin < 2 * MIN_ROWS_PER_TASK) {
+                normalizeRows(pixels, width, height, rowBegin, rowEnd, out, mean, std);
+                return;
+            }
+            int middle = (rowBegin + rowEnd) >>> 1;
+            invokeAll(new RowsTask(pixels, width, height, rowBegin, middle, out, mean, std),
+                    new RowsTask(pixels, width, height, middle, rowEnd, out, mean, std));
+        }
+    }
+}
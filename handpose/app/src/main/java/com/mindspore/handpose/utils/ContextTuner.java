@@ -0,0 +1,162 @@
+package com.mindspore.handpose.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the MindSpore context settings for this device.
+ * <p>
+ * The first time a model is loaded, every candidate {@link InferenceConfig} is built from the shared model
+ * buffer and timed over a few warm-up predictions. The fastest one is stored in SharedPreferences and used
+ * from then on. A manual override, when set, always wins. Tuning builds the model once per candidate and
+ * takes a few seconds, so call {@link #resolve} where the model is loaded, off the UI thread.
+ */
+public class ContextTuner {
+    private static final String TAG = "ContextTuner";
+    private static final String PREFS_NAME = "context_tuner";
+    private static final String KEY_TUNED = "tuned_";
+    private static final String KEY_OVERRIDE = "override_";
+    // Checksum of the model the tuning result belongs to, so a model swapped in through ModelRegistry is
+    // re-tuned, even a retrained one of the same size.
+    private static final String KEY_TUNED_CHECKSUM = "tuned_crc_";
+    // Timed predictions per candidate, after one untimed warm-up run.
+    public static final int DEFAULT_RUNS = 5;
+    // Tuning runs are serialized across instances, e.g. the loader of a destroyed activity still tuning while
+    // the next one starts: the second waits and reuses the first's result instead of timing alongside it.
+    private static final Object TUNE_LOCK = new Object();
+
+    private final Context context;
+    private final String modelName;
+    private final SharedPreferences preferences;
+    private final List<InferenceConfig> candidates;
+    private final int runs;
+
+    public ContextTuner(Context context, String modelName) {
+        this(context, modelName, InferenceConfig.candidates(Runtime.getRuntime().availableProcessors()),
+                DEFAULT_RUNS);
+    }
+
+    public ContextTuner(Context context, String modelName, List<InferenceConfig> candidates, int runs) {
+        this.context = context;
+        this.modelName = modelName;
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.candidates = candidates;
+        this.runs = runs;
+    }
+
+    /**
+     * Settings to build the model with: the override, else the stored tuning result if it was made for this
+     * very model, else tune now.
+     *
+     * @param modelChecksum see {@link ModelRegistry.Entry#getChecksum()}.
+     */
+    public InferenceConfig resolve(MappedByteBuffer modelBuffer, long modelChecksum) {
+        InferenceConfig config = getOverride();
+        if (config != null) {
+            return config;
+        }
+        synchronized (TUNE_LOCK) {
+            config = getTuned();
+            if (config != null && preferences.getLong(KEY_TUNED_CHECKSUM + modelName, -1) == modelChecksum) {
+                return config;
+            }
+            return tune(modelBuffer, modelChecksum);
+        }
+    }
+
+    /**
+     * Time every candidate and store the fastest. Falls back to {@link InferenceConfig#DEFAULT}, without
+     * storing it, if no candidate could be built or the thread is interrupted.
+     */
+    public InferenceConfig tune(MappedByteBuffer modelBuffer, long modelChecksum) {
+        synchronized (TUNE_LOCK) {
+            return tuneLocked(modelBuffer, modelChecksum);
+        }
+    }
+
+    private InferenceConfig tuneLocked(MappedByteBuffer modelBuffer, long modelChecksum) {
+        InferenceConfig best = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (InferenceConfig candidate : candidates) {
+            if (Thread.currentThread().isInterrupted()) {
+                Log.w(TAG, "Tuning interrupted, using " + InferenceConfig.DEFAULT);
+                return InferenceConfig.DEFAULT;
+            }
+            ModelManager modelManager = new ModelManager(context, modelName, modelBuffer, candidate);
+            try {
+                if (modelManager.getInputBuffers() == null) {
+                    Log.w(TAG, candidate + ": build failed");
+                    continue;
+                }
+                long nanos = steadyNanos(modelManager.warmUp(runs + 1));
+                Log.i(TAG, candidate + ": " + (nanos / 1000) + " us");
+                if (nanos >= 0 && nanos < bestNanos) {
+                    best = candidate;
+                    bestNanos = nanos;
+                }
+            } finally {
+                modelManager.free();
+            }
+        }
+        if (best == null) {
+            Log.e(TAG, "No candidate could be built, using " + InferenceConfig.DEFAULT);
+            return InferenceConfig.DEFAULT;
+        }
+        Log.i(TAG, "Fastest for " + modelName + ": " + best);
+        preferences.edit()
+                .putString(KEY_TUNED + modelName, best.encode())
+                .putLong(KEY_TUNED_CHECKSUM + modelName, modelChecksum)
+                .apply();
+        return best;
+    }
+
+    /**
+     * Result of the last tuning of this model, or null if it was never tuned.
+     */
+    public InferenceConfig getTuned() {
+        return InferenceConfig.decode(preferences.getString(KEY_TUNED + modelName, null));
+    }
+
+    /**
+     * Forget the tuning result so the next {@link #resolve} tunes again, e.g. after the model changed.
+     */
+    public void clearTuned() {
+        preferences.edit().remove(KEY_TUNED + modelName).remove(KEY_TUNED_CHECKSUM + modelName).apply();
+    }
+
+    public InferenceConfig getOverride() {
+        return InferenceConfig.decode(preferences.getString(KEY_OVERRIDE + modelName, null));
+    }
+
+    /**
+     * Force {@code config} for this model regardless of tuning. Null removes the override.
+     * Takes effect the next time the model is loaded.
+     */
+    public void setOverride(InferenceConfig config) {
+        SharedPreferences.Editor editor = preferences.edit();
+        if (config == null) {
+            editor.remove(KEY_OVERRIDE + modelName);
+        } else {
+            editor.putString(KEY_OVERRIDE + modelName, config.encode());
+        }
+        editor.apply();
+    }
+
+    /**
+     * Median of the warm-up times after the first run, or -1 if there are fewer than two runs.
+     */
+    static long steadyNanos(long[] warmUpNanos) {
+        if (warmUpNanos.length < 2) {
+            return -1;
+        }
+        long[] steady = Arrays.copyOfRange(warmUpNanos, 1, warmUpNanos.length);
+        Arrays.sort(steady);
+        int middle = steady.length / 2;
+        return steady.length % 2 == 1 ? steady[middle] : (steady[middle - 1] + steady[middle]) / 2;
+    }
+}
@@ -0,0 +1,82 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * Maps the pixels of a model input back to source image coordinates.
+ * <p>
+ * A destination pixel (dx, dy) samples the source at
+ * {@code originX + (dx + 0.5) * stepX - 0.5}, {@code originY + (dy + 0.5) * stepY - 0.5},
+ * which is the pixel-center convention used by bilinear resizing. These are coordinates of the upright
+ * image; {@link #orientation} maps them to the stored pixels, so a sideways camera frame is cropped and
+ * rotated in the same pass.
+ */
+public final class CropWindow {
+    // Short side of the image before center-cropping, same as Resize(256) in mindspore_train.py.
+    public static final int RESIZE_SHORT_SIDE = 256;
+
+    public final float originX;
+    public final float originY;
+    public final float stepX;
+    public final float stepY;
+    public final Orientation orientation;
+
+    public CropWindow(float originX, float originY, float stepX, float stepY) {
+        this(originX, originY, stepX, stepY, Orientation.NORMAL);
+    }
+
+    public CropWindow(float originX, float originY, float stepX, float stepY, Orientation orientation) {
+        this.originX = originX;
+        this.originY = originY;
+        this.stepX = stepX;
+        this.stepY = stepY;
+        this.orientation = orientation;
+    }
+
+    /**
+     * Geometry of BitmapUtils.scaleBitmapAndKeepRatio: scale the short side to
+     * {@code resizeShortSide}, then take a centered {@code cropWidth} x {@code cropHeight} window.
+     */
+    public static CropWindow centerCrop(int srcWidth, int srcHeight, int resizeShortSide, int cropWidth, int cropHeight) {
+        int scaleWidth, scaleHeight;
+        if (srcWidth < srcHeight) {
+            scaleWidth = resizeShortSide;
+            scaleHeight = srcHeight * resizeShortSide / srcWidth;
+        } else {
+            scaleHeight = resizeShortSide;
+            scaleWidth = srcWidth * resizeShortSide / srcHeight;
+        }
+        float stepX = (float) srcWidth / scaleWidth;
+        float stepY = (float) srcHeight / scaleHeight;
+        int beginX = scaleWidth / 2 - cropWidth / 2;
+        int beginY = scaleHeight / 2 - cropHeight / 2;
+        return new CropWindow(beginX * stepX, beginY * stepY, stepX, stepY);
+    }
+
+    public static CropWindow centerCrop(int srcWidth, int srcHeight, int cropWidth, int cropHeight) {
+        return centerCrop(srcWidth, srcHeight, RESIZE_SHORT_SIDE, cropWidth, cropHeight);
+    }
+
+    /**
+     * Center crop of the upright image of a {@code srcWidth} x {@code srcHeight} stored image.
+     */
+    public static CropWindow centerCrop(int srcWidth, int srcHeight, Orientation orientation, int cropWidth,
+                                        int cropHeight) {
+        CropWindow upright = centerCrop(orientation.uprightWidth(srcWidth, srcHeight),
+                orientation.uprightHeight(srcWidth, srcHeight), cropWidth, cropHeight);
+        return upright.withOrientation(orientation);
+    }
+
+    /**
+     * The same window laid on an image stored with {@code orientation}.
+     */
+    public CropWindow withOrientation(Orientation orientation) {
+        return orientation == this.orientation ? this : new CropWindow(originX, originY, stepX, stepY, orientation);
+    }
+
+    /**
+     * Stretch the source rectangle (left, top, width, height) over the whole output, like
+     * {@code Matrix.setRectToRect(src, dst, Matrix.ScaleToFit.FILL)}.
+     */
+    public static CropWindow fromRect(float left, float top, float width, float height, int outWidth, int outHeight) {
+        return new CropWindow(left, top, width / outWidth, height / outHeight);
+    }
+}
@@ -0,0 +1,94 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deterministic stand-in for the model: returns fixed logits after a fixed delay.
+ * <p>
+ * Lets the pipeline run, and be timed, on a desktop JVM or in tests without MindSpore. The delay is
+ * waited out, not computed, so it takes no CPU away from the rest of the pipeline.
+ */
+public class FakeInferenceEngine implements InferenceEngine {
+    public static final int[] DEFAULT_INPUT_SHAPE = new int[]{1, 3, 224, 224};
+
+    private final int[] inputShape;
+    private final InputType inputType;
+    private final float[] logits;
+    private final long delayNanos;
+    private float[] output;
+    private int predictCount;
+
+    /**
+     * @param logits     output for one image, repeated for every image of a batch.
+     * @param delayNanos time each {@link #predict} takes.
+     */
+    public FakeInferenceEngine(int[] inputShape, InputType inputType, float[] logits, long delayNanos) {
+        this.inputShape = inputShape.clone();
+        this.inputType = inputType;
+        this.logits = logits.clone();
+        this.delayNanos = delayNanos;
+        this.output = logits.clone();
+    }
+
+    public FakeInferenceEngine(float[] logits, long delayNanos) {
+        this(DEFAULT_INPUT_SHAPE, InputType.FLOAT32, logits, delayNanos);
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public int[] getInputShape() {
+        return inputShape;
+    }
+
+    @Override
+    public InputType getInputType() {
+        return inputType;
+    }
+
+    @Override
+    public boolean resize(int batch) {
+        inputShape[0] = batch;
+        output = new float[batch * logits.length];
+        for (int i = 0; i < batch; i++) {
+            System.arraycopy(logits, 0, output, i * logits.length, logits.length);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean predict(ByteBuffer input) {
+        int elementSize = inputType == InputType.FLOAT32 ? 4 : 1;
+        int expected = elementSize;
+        for (int dimension : inputShape) {
+            expected *= dimension;
+        }
+        if (input.capacity() != expected) {
+            return false;
+        }
+        long deadline = System.nanoTime() + delayNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        predictCount++;
+        return true;
+    }
+
+    @Override
+    public float[] getOutput() {
+        return output;
+    }
+
+    public int getPredictCount() {
+        return predictCount;
+    }
+
+    @Override
+    public void free() {
+    }
+}
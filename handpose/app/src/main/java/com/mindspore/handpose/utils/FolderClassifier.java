@@ -0,0 +1,501 @@
+package com.mindspore.handpose.utils;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Offline classification of every image under a folder, for evaluation runs over thousands of images.
+ * <p>
+ * Three stages joined by bounded queues: a decode thread, the inference executor (normally the
+ * {@link InferenceService} thread, which owns the model) and the calling thread, which writes one CSV row
+ * per image. Decoding the next images overlaps inference, and the queues cap how many decoded images are
+ * held at once. {@link #run} blocks until the folder is done, so call it off the UI thread.
+ * <p>
+ * With a {@link ModelPool} instead of the single inference executor, every decoded image is classified on
+ * whichever pooled model is idle, and the CSV still comes out in file order.
+ */
+public class FolderClassifier<T> {
+    public static final String DECODE_THREAD_NAME = "FolderDecode";
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+    // Short side images are decoded at; the model input is a 224 crop of the 256 short side.
+    public static final int DECODE_SHORT_SIDE = 256;
+    public static final String CSV_HEADER = "file,label,probability,inference_ms,status\n";
+    public static final String DECODE_FAILED = "DECODE_FAILED";
+
+    private static final String[] IMAGE_EXTENSIONS = new String[]{".jpg", ".jpeg", ".png", ".webp", ".bmp"};
+    // How often blocked stages look at the stop flag.
+    private static final long POLL_MS = 50;
+
+    public interface Decoder<T> {
+        /**
+         * @return the decoded image, or null if {@code file} is not a readable image.
+         */
+        T decode(File file) throws IOException;
+    }
+
+    /**
+     * Memory in use, sampled after every decode for {@link Summary#getPeakMemoryBytes()}.
+     */
+    public interface MemoryProbe {
+        long usedBytes();
+    }
+
+    /**
+     * Java heap only; on Android 8 and later bitmap pixels live in the native heap, see {@link #forModel}.
+     */
+    public static final MemoryProbe JAVA_HEAP = () -> {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    };
+
+    public interface Classifier<T> {
+        /**
+         * Classify {@code image} into {@code result} and release it. Runs on the inference executor.
+         */
+        void classify(T image, GestureResult result);
+    }
+
+    public interface PooledClassifier<M, T> {
+        /**
+         * Classify {@code image} with {@code model} into {@code result} and release it. Runs on a pool thread.
+         */
+        void classify(M model, T image, GestureResult result);
+    }
+
+    // Hands an item to a ModelPool, which fills its row.
+    private interface Dispatcher<T> {
+        Future<?> dispatch(Item<T> item);
+    }
+
+    /**
+     * A decoded bitmap as stored in the file, with the EXIF orientation the model applies while resizing.
+     */
+    public static final class OrientedBitmap {
+        public final Bitmap bitmap;
+        public final Orientation orientation;
+
+        public OrientedBitmap(Bitmap bitmap, Orientation orientation) {
+            this.bitmap = bitmap;
+            this.orientation = orientation;
+        }
+    }
+
+    public static final class Summary {
+        private final int images;
+        private final int failed;
+        private final long elapsedNanos;
+        private final boolean complete;
+        private final long peakMemoryBytes;
+
+        Summary(int images, int failed, long elapsedNanos, boolean complete, long peakMemoryBytes) {
+            this.images = images;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.complete = complete;
+            this.peakMemoryBytes = peakMemoryBytes;
+        }
+
+        public int getImages() {
+            return images;
+        }
+
+        /**
+         * Images that could not be decoded or classified; they still get a CSV row.
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * False if the run was cancelled or the inference thread went away before the last image.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public double getImagesPerSecond() {
+            return elapsedNanos <= 0 ? 0 : images * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Highest {@link MemoryProbe} reading during the run.
+         */
+        public long getPeakMemoryBytes() {
+            return peakMemoryBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d images (%d failed) in %.1f s, %.1f images/s, peak memory %.1f MB%s",
+                    images, failed, elapsedNanos / 1e9, getImagesPerSecond(), peakMemoryBytes / 1e6,
+                    complete ? "" : ", incomplete");
+        }
+    }
+
+    // One image moving through the stages; the decode stage fills image, the inference stage row.
+    private static final class Item<T> {
+        final String name;
+        T image;
+        String row;
+        boolean ok;
+        // Pooled mode: done once row is set.
+        Future<?> classified;
+
+        Item(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Decoder<T> decoder;
+    private final Classifier<T> classifier;
+    private final String[] labels;
+    private final Executor inferenceExecutor;
+    private final Dispatcher<T> dispatcher;
+    private final int queueCapacity;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private MemoryProbe memoryProbe = JAVA_HEAP;
+    // Written by the decode thread, read once it has been joined.
+    private long peakMemoryBytes;
+
+    public FolderClassifier(Decoder<T> decoder, Classifier<T> classifier, String[] labels,
+                            Executor inferenceExecutor, int queueCapacity) {
+        this(decoder, classifier, labels, inferenceExecutor, null, queueCapacity);
+    }
+
+    /**
+     * Classify on the models of {@code modelPool} in parallel. {@code queueCapacity} should be at least the
+     * pool size to keep every model busy.
+     */
+    public <M> FolderClassifier(Decoder<T> decoder, ModelPool<M> modelPool, PooledClassifier<M, T> classifier,
+                                String[] labels, int queueCapacity) {
+        this(decoder, null, labels, null, item -> modelPool.submit(model -> {
+            classify(item, (image, result) -> classifier.classify(model, image, result),
+                    new GestureResult(labels.length), labels);
+            return null;
+        }), queueCapacity);
+    }
+
+    private FolderClassifier(Decoder<T> decoder, Classifier<T> classifier, String[] labels,
+                             Executor inferenceExecutor, Dispatcher<T> dispatcher, int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1: " + queueCapacity);
+        }
+        this.decoder = decoder;
+        this.classifier = classifier;
+        this.labels = labels;
+        this.inferenceExecutor = inferenceExecutor;
+        this.dispatcher = dispatcher;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Classifier for {@code modelManager}: subsampled bitmap decoding without rotation into bitmaps from
+     * {@code pool}, handed back after inference, so a run only allocates the few bitmaps in flight.
+     * {@code inferenceExecutor} must be the thread that owns the model. Peak memory includes the native heap.
+     */
+    public static FolderClassifier<OrientedBitmap> forModel(ModelManager modelManager, Executor inferenceExecutor,
+                                                            BitmapPool pool) {
+        FolderClassifier<OrientedBitmap> folderClassifier = new FolderClassifier<>(bitmapDecoder(pool),
+                (image, result) -> {
+                    try {
+                        modelManager.execute(image.bitmap, image.orientation, result);
+                    } finally {
+                        pool.put(image.bitmap);
+                    }
+                },
+                modelManager.getLabels(), inferenceExecutor, DEFAULT_QUEUE_CAPACITY);
+        folderClassifier.setMemoryProbe(() -> JAVA_HEAP.usedBytes() + Debug.getNativeHeapAllocatedSize());
+        return folderClassifier;
+    }
+
+    /**
+     * Same as {@link #forModel} on every model of {@code modelPool} at once, see
+     * {@link ModelPool#withThreadBudget} for splitting the CPU between them.
+     */
+    public static FolderClassifier<OrientedBitmap> forModelPool(ModelPool<ModelManager> modelPool, String[] labels,
+                                                                BitmapPool pool) {
+        FolderClassifier<OrientedBitmap> folderClassifier = new FolderClassifier<>(bitmapDecoder(pool), modelPool,
+                (model, image, result) -> {
+                    try {
+                        model.execute(image.bitmap, image.orientation, result);
+                    } finally {
+                        pool.put(image.bitmap);
+                    }
+                },
+                labels, Math.max(DEFAULT_QUEUE_CAPACITY, 2 * modelPool.size()));
+        folderClassifier.setMemoryProbe(() -> JAVA_HEAP.usedBytes() + Debug.getNativeHeapAllocatedSize());
+        return folderClassifier;
+    }
+
+    private static Decoder<OrientedBitmap> bitmapDecoder(BitmapPool pool) {
+        return file -> {
+            Bitmap bitmap = BitmapUtils.decodeSampled(file.getPath(), DECODE_SHORT_SIDE, pool);
+            return bitmap == null ? null : new OrientedBitmap(bitmap, BitmapUtils.getOrientation(file.getPath()));
+        };
+    }
+
+    /**
+     * Set before {@link #run}; defaults to {@link #JAVA_HEAP}.
+     */
+    public void setMemoryProbe(MemoryProbe memoryProbe) {
+        this.memoryProbe = memoryProbe;
+    }
+
+    /**
+     * Image files under {@code dir}, recursively, in path order.
+     */
+    public static List<File> listImages(File dir) {
+        List<File> images = new ArrayList<>();
+        collectImages(dir, images);
+        Collections.sort(images);
+        return images;
+    }
+
+    private static void collectImages(File dir, List<File> images) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectImages(child, images);
+            } else if (isImage(child.getName())) {
+                images.add(child);
+            }
+        }
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase(Locale.US);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Classify every image under {@code dir} and write a CSV to {@code writer}, with paths relative to
+     * {@code dir}. Runs one folder at a time.
+     */
+    public Summary run(File dir, Writer writer) throws IOException, InterruptedException {
+        List<File> files = listImages(dir);
+        String root = dir.getPath() + File.separator;
+        List<Item<T>> items = new ArrayList<>(files.size());
+        for (File file : files) {
+            String path = file.getPath();
+            items.add(new Item<>(path.startsWith(root) ? path.substring(root.length()) : path));
+        }
+
+        stopped.set(false);
+        peakMemoryBytes = memoryProbe.usedBytes();
+        BlockingQueue<Item<T>> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item<T>> classified = new ArrayBlockingQueue<>(queueCapacity);
+        Item<T> end = new Item<>(null);
+        long start = System.nanoTime();
+
+        // Pooled mode: images go straight from decoding, which dispatches them, to the writer.
+        BlockingQueue<Item<T>> decodeOutput = dispatcher != null ? classified : decoded;
+        Thread decodeThread = new Thread(() -> decodeAll(files, items, decodeOutput, end), DECODE_THREAD_NAME);
+        decodeThread.start();
+        if (dispatcher == null) {
+            try {
+                inferenceExecutor.execute(() -> classifyAll(decoded, classified, end));
+            } catch (RejectedExecutionException e) {
+                stopped.set(true);
+                decodeThread.join();
+                throw e;
+            }
+        }
+
+        int images = 0;
+        int failed = 0;
+        boolean complete = false;
+        try {
+            writer.write(CSV_HEADER);
+            while (true) {
+                Item<T> item = take(classified);
+                if (item == null) {
+                    break;
+                }
+                if (item == end) {
+                    complete = true;
+                    break;
+                }
+                if (!awaitClassified(item)) {
+                    break;
+                }
+                images++;
+                if (!item.ok) {
+                    failed++;
+                }
+                writer.write(item.row);
+            }
+            writer.flush();
+        } finally {
+            // Also unblocks the other stages when writing failed or this thread was interrupted.
+            stopped.set(true);
+            decodeThread.join();
+        }
+        return new Summary(images, failed, System.nanoTime() - start, complete, peakMemoryBytes);
+    }
+
+    /**
+     * Stop the current {@link #run} after the images already in flight; it returns an incomplete summary.
+     */
+    public void cancel() {
+        stopped.set(true);
+    }
+
+    private void decodeAll(List<File> files, List<Item<T>> items, BlockingQueue<Item<T>> decoded, Item<T> end) {
+        try {
+            for (int i = 0; i < files.size() && !stopped.get(); i++) {
+                Item<T> item = items.get(i);
+                try {
+                    item.image = decoder.decode(files.get(i));
+                } catch (IOException | RuntimeException e) {
+                    item.image = null;
+                }
+                peakMemoryBytes = Math.max(peakMemoryBytes, memoryProbe.usedBytes());
+                if (dispatcher != null) {
+                    if (item.image == null) {
+                        classify(item, null, null, labels);
+                    } else {
+                        try {
+                            item.classified = dispatcher.dispatch(item);
+                        } catch (RejectedExecutionException e) {
+                            // The pool was freed.
+                            stopped.set(true);
+                            return;
+                        }
+                    }
+                }
+                if (!put(decoded, item)) {
+                    return;
+                }
+            }
+            put(decoded, end);
+        } catch (InterruptedException e) {
+            stopped.set(true);
+        }
+    }
+
+    private void classifyAll(BlockingQueue<Item<T>> decoded, BlockingQueue<Item<T>> classified, Item<T> end) {
+        GestureResult result = new GestureResult(labels.length);
+        try {
+            while (true) {
+                Item<T> item = take(decoded);
+                if (item == null) {
+                    return;
+                }
+                if (item != end) {
+                    classify(item, classifier, result, labels);
+                }
+                if (!put(classified, item) || item == end) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // The inference service is shutting down.
+            stopped.set(true);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until a pooled item has its row; false once the run is stopped.
+     */
+    private boolean awaitClassified(Item<T> item) throws InterruptedException {
+        if (item.classified == null) {
+            return true;
+        }
+        while (!stopped.get()) {
+            try {
+                item.classified.get(POLL_MS, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                // Check the stop flag again.
+            } catch (ExecutionException | CancellationException e) {
+                // The pool was freed before the task ran.
+                item.row = csvField(item.name) + ",,,," + GestureResult.Status.PREDICT_FAILED.name() + "\n";
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> void classify(Item<T> item, Classifier<T> classifier, GestureResult result,
+                                     String[] labels) {
+        if (item.image == null) {
+            item.row = csvField(item.name) + ",,,," + DECODE_FAILED + "\n";
+            return;
+        }
+        try {
+            classifier.classify(item.image, result);
+        } catch (RuntimeException e) {
+            result.setFailed(GestureResult.Status.PREDICT_FAILED);
+        }
+        item.image = null;
+        item.ok = result.isOk();
+        if (!item.ok) {
+            item.row = csvField(item.name) + ",,,," + result.getStatus().name() + "\n";
+            return;
+        }
+        int classIndex = result.getClassIndex();
+        String label = classIndex < labels.length ? labels[classIndex] : String.valueOf(classIndex);
+        item.row = String.format(Locale.US, "%s,%s,%.4f,%.2f,%s\n", csvField(item.name), csvField(label),
+                result.getProbability(classIndex), result.getInferenceNanos() / 1e6, result.getStatus().name());
+    }
+
+    private boolean put(BlockingQueue<Item<T>> queue, Item<T> item) throws InterruptedException {
+        while (!stopped.get()) {
+            if (queue.offer(item, POLL_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Next item, or null once the run is stopped.
+     */
+    private Item<T> take(BlockingQueue<Item<T>> queue) throws InterruptedException {
+        while (!stopped.get()) {
+            Item<T> item = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
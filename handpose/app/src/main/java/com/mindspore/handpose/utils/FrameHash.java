@@ -0,0 +1,79 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64-bit difference hash (dHash) of the luma inside a crop window, read straight from the Y plane of an NV21
+ * frame or a Camera2 image.
+ * <p>
+ * The window is split into 9 x 8 cells whose mean luma is estimated from a 4 x 4 grid of samples, and each
+ * bit says whether a cell is brighter than its right neighbour. Sensor noise and small exposure changes
+ * flip few bits, so near-identical frames hash within a few bits of each other. Costs about 300 byte reads
+ * per frame and allocates nothing.
+ */
+public final class FrameHash {
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+    private static final int SAMPLES = 4;
+
+    private FrameHash() {
+    }
+
+    /**
+     * Hash of the {@code outWidth} x {@code outHeight} model input that {@code window} maps from the frame,
+     * laid out like that input whatever the window's orientation.
+     */
+    public static long dHash(byte[] nv21, int width, int height, CropWindow window, int outWidth, int outHeight) {
+        return dHash(nv21, null, width, width, height, window, outWidth, outHeight);
+    }
+
+    /**
+     * Same as {@link #dHash(byte[], int, int, CropWindow, int, int)} for a Camera2 image; both hash a frame alike.
+     */
+    public static long dHash(YuvPlanes planes, CropWindow window, int outWidth, int outHeight) {
+        return dHash(null, planes.y, planes.yRowStride, planes.width, planes.height, window, outWidth, outHeight);
+    }
+
+    private static long dHash(byte[] luma, ByteBuffer lumaPlane, int rowStride, int width, int height,
+                              CropWindow window, int outWidth, int outHeight) {
+        float cellWidth = outWidth * window.stepX / COLUMNS;
+        float cellHeight = outHeight * window.stepY / ROWS;
+        long hash = 0;
+        for (int row = 0; row < ROWS; row++) {
+            float top = window.originY + row * cellHeight;
+            int previous = 0;
+            for (int column = 0; column < COLUMNS; column++) {
+                int sum = cellSum(luma, lumaPlane, rowStride, width, height, window.orientation,
+                        window.originX + column * cellWidth, top, cellWidth, cellHeight);
+                if (column > 0) {
+                    hash = (hash << 1) | (previous > sum ? 1 : 0);
+                }
+                previous = sum;
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static int cellSum(byte[] luma, ByteBuffer lumaPlane, int rowStride, int width, int height,
+                               Orientation orientation, float left, float top, float cellWidth, float cellHeight) {
+        int sum = 0;
+        for (int sy = 0; sy < SAMPLES; sy++) {
+            float v = top + (sy + 0.5f) * cellHeight / SAMPLES;
+            for (int sx = 0; sx < SAMPLES; sx++) {
+                float u = left + (sx + 0.5f) * cellWidth / SAMPLES;
+                int x = clamp((int) orientation.sourceX(u, v, width), width - 1);
+                int y = clamp((int) orientation.sourceY(u, v, height), height - 1);
+                sum += (luma != null ? luma[y * rowStride + x] : lumaPlane.get(y * rowStride + x)) & 0xFF;
+            }
+        }
+        return sum;
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+}
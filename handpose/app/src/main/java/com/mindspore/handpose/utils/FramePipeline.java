@@ -0,0 +1,310 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Two-stage "latest frame wins" pipeline between the camera and the model.
+ * <p>
+ * The camera publishes frames into a one-item slot, replacing any frame nobody picked up yet.
+ * The preprocess worker converts the newest frame into an input buffer as soon as the inference
+ * thread has started on the previous one, so preprocessing of frame N+1 overlaps inference of frame N
+ * and throughput is bounded by the model (or by the optional max FPS), not by a fixed timer.
+ * Inference runs on the executor passed in, normally the {@link InferenceService} thread; {@link #stop()} the
+ * pipeline before shutting that executor down, so the frame still queued on it is released.
+ */
+public class FramePipeline<F, R> {
+
+    public interface Preprocessor<F> {
+        /**
+         * Fill {@code input} from {@code frame}. Return false to skip the frame.
+         */
+        boolean preprocess(F frame, ByteBuffer input);
+    }
+
+    public interface Inference<F, R> {
+        /**
+         * Run the model on {@code input}, which the preprocessor filled from {@code frame}.
+         */
+        R run(F frame, ByteBuffer input);
+    }
+
+    public interface ResultListener<F, R> {
+        void onResult(F frame, R result);
+    }
+
+    public interface ErrorListener<F> {
+        /**
+         * The preprocessor threw on {@code frame}; the frame is skipped and the pipeline goes on.
+         */
+        void onError(F frame, RuntimeException e);
+    }
+
+    public interface FrameReleaser<F> {
+        /**
+         * The pipeline is done with {@code frame}: it was dropped, skipped or its result was delivered.
+         */
+        void release(F frame);
+    }
+
+    private final Preprocessor<F> preprocessor;
+    private final Inference<F, R> inference;
+    private final ResultListener<F, R> listener;
+    private final TensorBufferPool inputBuffers;
+    private final Executor inferenceExecutor;
+
+    private final FrameSlot<F> pendingFrame = new FrameSlot<>();
+    // At most one prepared frame may wait for the inference thread.
+    private final Semaphore queuedInference = new Semaphore(1);
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong processedFrames = new AtomicLong();
+    // The prepared frame handed to the inference executor that has not started yet, so stop() can release it
+    // even if the executor drops it.
+    private final AtomicReference<InferenceTask> queuedTask = new AtomicReference<>();
+
+    private volatile long minFrameIntervalNanos;
+    private volatile PipelineMetrics metrics;
+    private volatile FrameReleaser<F> frameReleaser;
+    private volatile ErrorListener<F> errorListener;
+    private volatile boolean stopped;
+    private Thread preprocessThread;
+
+    private final class InferenceTask implements Runnable {
+        final F frame;
+        final ByteBuffer input;
+        final long preparedNanos;
+
+        InferenceTask(F frame, ByteBuffer input, long preparedNanos) {
+            this.frame = frame;
+            this.input = input;
+            this.preparedNanos = preparedNanos;
+        }
+
+        @Override
+        public void run() {
+            // Lost to stop(), which has released the frame already.
+            if (queuedTask.compareAndSet(this, null)) {
+                runInference(frame, input, preparedNanos);
+            }
+        }
+
+        void cancel() {
+            inputBuffers.release(input);
+            queuedInference.release();
+            releaseFrame(frame);
+        }
+    }
+
+    public FramePipeline(Preprocessor<F> preprocessor, Inference<F, R> inference, ResultListener<F, R> listener,
+                         TensorBufferPool inputBuffers, Executor inferenceExecutor) {
+        this.preprocessor = preprocessor;
+        this.inference = inference;
+        this.listener = listener;
+        this.inputBuffers = inputBuffers;
+        this.inferenceExecutor = inferenceExecutor;
+    }
+
+    /**
+     * Cap the number of frames per second going through the model, for battery control. 0 disables the cap.
+     */
+    public void setMaxFps(float maxFps) {
+        minFrameIntervalNanos = maxFps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxFps) : 0;
+    }
+
+    /**
+     * Record stage latencies and dropped/skipped frames into {@code metrics}, or stop recording with null.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Hand every frame back through {@code releaser} once the pipeline no longer reads it, so frame
+     * buffers can be recycled, e.g. returned to the camera. Exactly one call per submitted frame, including
+     * frames still held when {@link #stop()} is called.
+     */
+    public void setFrameReleaser(FrameReleaser<F> releaser) {
+        this.frameReleaser = releaser;
+    }
+
+    /**
+     * Hear about frames the preprocessor failed on, e.g. to log them; this class stays Android-free.
+     */
+    public void setErrorListener(ErrorListener<F> listener) {
+        this.errorListener = listener;
+    }
+
+    public synchronized void start() {
+        if (preprocessThread != null) {
+            return;
+        }
+        stopped = false;
+        preprocessThread = new Thread(this::preprocessLoop, "FramePreprocess");
+        preprocessThread.start();
+    }
+
+    /**
+     * Stop preprocessing and release every frame the pipeline still holds, except the one being inferred,
+     * which is released when its result has been delivered. Frames submitted afterwards are released at once.
+     */
+    public synchronized void stop() {
+        if (preprocessThread == null) {
+            return;
+        }
+        stopped = true;
+        preprocessThread.interrupt();
+        try {
+            preprocessThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        preprocessThread = null;
+        InferenceTask task = queuedTask.getAndSet(null);
+        if (task != null) {
+            task.cancel();
+        }
+        F pending = pendingFrame.clear();
+        if (pending != null) {
+            releaseFrame(pending);
+        }
+    }
+
+    /**
+     * Hand a new frame to the pipeline. Never blocks; an older frame still waiting is dropped.
+     */
+    public void submit(F frame) {
+        F displaced = pendingFrame.publish(frame);
+        if (displaced != null) {
+            releaseFrame(displaced);
+            droppedFrames.incrementAndGet();
+            PipelineMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.increment(PipelineMetrics.Counter.DROPPED_FRAMES);
+            }
+        }
+        if (stopped) {
+            // Nobody will take it; whichever of this and stop() clears the slot releases the frame.
+            F pending = pendingFrame.clear();
+            if (pending != null) {
+                releaseFrame(pending);
+            }
+        }
+    }
+
+    /**
+     * Block until the preprocessor has taken the last submitted frame, for a producer that would rather wait
+     * than have its frames dropped, such as a replay at full speed.
+     */
+    public void awaitFrameTaken() throws InterruptedException {
+        pendingFrame.awaitEmpty();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getProcessedFrames() {
+        return processedFrames.get();
+    }
+
+    private void preprocessLoop() {
+        long lastFrameNanos = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Wait for the inference thread to pick up the previous frame, so we never convert frames
+                // that would only be thrown away.
+                queuedInference.acquire();
+                F frame;
+                try {
+                    long interval = minFrameIntervalNanos;
+                    if (interval > 0) {
+                        long waitNanos = lastFrameNanos + interval - System.nanoTime();
+                        if (waitNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        }
+                    }
+                    frame = pendingFrame.take();
+                } catch (InterruptedException e) {
+                    queuedInference.release();
+                    throw e;
+                }
+                lastFrameNanos = System.nanoTime();
+
+                ByteBuffer input = inputBuffers.acquire();
+                PipelineMetrics metrics = this.metrics;
+                boolean prepared;
+                try {
+                    prepared = preprocessor.preprocess(frame, input);
+                } catch (RuntimeException e) {
+                    // E.g. a closed camera image: skip the frame rather than end the thread with its resources.
+                    prepared = false;
+                    ErrorListener<F> errorListener = this.errorListener;
+                    if (errorListener != null) {
+                        errorListener.onError(frame, e);
+                    }
+                }
+                if (!prepared) {
+                    inputBuffers.release(input);
+                    queuedInference.release();
+                    releaseFrame(frame);
+                    if (metrics != null) {
+                        metrics.increment(PipelineMetrics.Counter.SKIPPED_FRAMES);
+                    }
+                    continue;
+                }
+                final long preparedNanos = System.nanoTime();
+                if (metrics != null) {
+                    metrics.record(PipelineMetrics.Stage.PREPROCESS, lastFrameNanos, preparedNanos);
+                }
+                InferenceTask task = new InferenceTask(frame, input, preparedNanos);
+                queuedTask.set(task);
+                try {
+                    inferenceExecutor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    if (queuedTask.compareAndSet(task, null)) {
+                        task.cancel();
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // stop() was called.
+        }
+    }
+
+    private void runInference(F frame, ByteBuffer input, long preparedNanos) {
+        queuedInference.release();
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.Stage.QUEUE_WAIT, preparedNanos, System.nanoTime());
+        }
+        try {
+            R result;
+            try {
+                result = inference.run(frame, input);
+            } finally {
+                inputBuffers.release(input);
+            }
+            processedFrames.incrementAndGet();
+            long listenerStart = System.nanoTime();
+            listener.onResult(frame, result);
+            if (metrics != null) {
+                metrics.record(PipelineMetrics.Stage.LISTENER, listenerStart, System.nanoTime());
+            }
+        } finally {
+            releaseFrame(frame);
+        }
+    }
+
+    private void releaseFrame(F frame) {
+        FrameReleaser<F> releaser = frameReleaser;
+        if (releaser != null) {
+            releaser.release(frame);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.mindspore.handpose.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dumps camera frames and their receive timestamps to a file, for {@link FrameReplay}. See
+ * {@link FrameRecording} for the format.
+ * <p>
+ * {@link #record} copies the frame into one of a few preallocated buffers and returns; a background thread
+ * writes them out. When the disk falls behind and no buffer is free, the frame is dropped instead of
+ * blocking the camera, and counted in {@link #getDroppedFrames()}.
+ */
+public class FrameRecorder implements Closeable {
+    public static final String THREAD_NAME = "FrameRecorder";
+    public static final int DEFAULT_BUFFER_COUNT = 8;
+
+    private static final class Frame {
+        byte[] data;
+        int length;
+        int width;
+        int height;
+        Orientation orientation;
+        long timestampNanos;
+    }
+
+    // Queued to stop the writer thread.
+    private static final Frame END = new Frame();
+
+    private final DataOutputStream out;
+    private final BlockingQueue<Frame> freeFrames;
+    private final BlockingQueue<Frame> queuedFrames;
+    private final Thread writer;
+    private final AtomicLong recordedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile IOException writeError;
+    private volatile boolean closed;
+
+    /**
+     * @param frameBytes  expected size of a frame, to preallocate the buffers; larger frames grow them.
+     * @param bufferCount frames that may wait for the disk before new ones are dropped.
+     */
+    public FrameRecorder(OutputStream out, int frameBytes, int bufferCount) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.writeInt(FrameRecording.MAGIC);
+        this.out.writeInt(FrameRecording.VERSION);
+        freeFrames = new ArrayBlockingQueue<>(bufferCount);
+        queuedFrames = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            Frame frame = new Frame();
+            frame.data = new byte[frameBytes];
+            freeFrames.add(frame);
+        }
+        writer = new Thread(this::writeLoop, THREAD_NAME);
+        writer.start();
+    }
+
+    public static FrameRecorder create(File file, int frameBytes) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        try {
+            return new FrameRecorder(out, frameBytes, DEFAULT_BUFFER_COUNT);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Queue a copy of an NV21 frame; {@code nv21} may be reused as soon as this returns. Never blocks.
+     *
+     * @return false if the frame was dropped.
+     */
+    public boolean record(byte[] nv21, int width, int height, long timestampNanos) {
+        return record(nv21, width, height, Orientation.NORMAL, timestampNanos);
+    }
+
+    /**
+     * Same as {@link #record(byte[], int, int, long)} for a frame that is upright once turned by
+     * {@code orientation}, which is stored with it.
+     */
+    public boolean record(byte[] nv21, int width, int height, Orientation orientation, long timestampNanos) {
+        return record(nv21, null, width, height, orientation, timestampNanos);
+    }
+
+    /**
+     * Queue a preview frame from either camera backend; Camera2 planes are packed into NV21, so replays see
+     * the same bytes whichever backend recorded them.
+     */
+    public boolean record(PreviewFrame frame) {
+        return record(frame.data, frame.planes, frame.width, frame.height, frame.orientation, frame.timestampNanos);
+    }
+
+    private boolean record(byte[] nv21, YuvPlanes planes, int width, int height, Orientation orientation,
+                           long timestampNanos) {
+        Frame frame = freeFrames.poll();
+        if (frame == null || writeError != null || closed) {
+            if (frame != null) {
+                freeFrames.add(frame);
+            }
+            droppedFrames.incrementAndGet();
+            return false;
+        }
+        int length = width * height * 3 / 2;
+        if (frame.data.length < length) {
+            frame.data = new byte[length];
+        }
+        if (planes != null) {
+            planes.copyToNv21(frame.data);
+        } else {
+            System.arraycopy(nv21, 0, frame.data, 0, length);
+        }
+        frame.length = length;
+        frame.width = width;
+        frame.height = height;
+        frame.orientation = orientation;
+        frame.timestampNanos = timestampNanos;
+        queuedFrames.add(frame);
+        return true;
+    }
+
+    public long getRecordedFrames() {
+        return recordedFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Frame frame = queuedFrames.take();
+                if (frame == END) {
+                    return;
+                }
+                try {
+                    if (writeError == null) {
+                        out.writeLong(frame.timestampNanos);
+                        out.writeInt(frame.width);
+                        out.writeInt(frame.height);
+                        out.writeInt(frame.orientation.getExifValue());
+                        out.writeInt(frame.length);
+                        out.write(frame.data, 0, frame.length);
+                        recordedFrames.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    writeError = e;
+                } finally {
+                    freeFrames.add(frame);
+                }
+            }
+        } catch (InterruptedException e) {
+            // close() gave up waiting.
+        }
+    }
+
+    /**
+     * Write out the frames still queued and close the file.
+     *
+     * @throws IOException the first write error, if any frame could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // There is always room for END: at most bufferCount frames are queued.
+        queuedFrames.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+}
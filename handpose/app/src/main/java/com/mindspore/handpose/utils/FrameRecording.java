@@ -0,0 +1,130 @@
+package com.mindspore.handpose.utils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the camera frames written by {@link FrameRecorder}, one at a time.
+ * <p>
+ * File layout, big-endian: the int {@link #MAGIC} and the int {@link #VERSION}, then per frame the long
+ * receive timestamp in nanoseconds, the int width and int height, the int EXIF value of the frame's
+ * {@link Orientation}, the int byte length of the NV21 data, and the data itself. Version 1 files have no
+ * orientation and read as {@link Orientation#NORMAL}. Timestamps only make sense relative to each other.
+ */
+public class FrameRecording implements Closeable {
+    // "HPFR"
+    public static final int MAGIC = 0x48504652;
+    public static final int VERSION = 2;
+    public static final int FRAME_HEADER_BYTES = 8 + 4 + 4 + 4 + 4;
+    private static final int VERSION_WITHOUT_ORIENTATION = 1;
+
+    private final DataInputStream in;
+    private final int version;
+    private long timestampNanos;
+    private int width;
+    private int height;
+    private Orientation orientation = Orientation.NORMAL;
+    private int dataLength;
+    // Bytes of the current frame not read by readData yet, skipped by the next nextFrame.
+    private int unread;
+
+    public FrameRecording(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        int magic = this.in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a frame recording");
+        }
+        version = this.in.readInt();
+        if (version != VERSION && version != VERSION_WITHOUT_ORIENTATION) {
+            throw new IOException("Unsupported frame recording version " + version);
+        }
+    }
+
+    public static FrameRecording open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try {
+            return new FrameRecording(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Move to the next frame, skipping the data of the current one if it was not read.
+     *
+     * @return false at the end of the recording.
+     */
+    public boolean nextFrame() throws IOException {
+        skipFully(unread);
+        unread = 0;
+        try {
+            timestampNanos = in.readLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        width = in.readInt();
+        height = in.readInt();
+        if (version != VERSION_WITHOUT_ORIENTATION) {
+            orientation = Orientation.fromExif(in.readInt());
+        }
+        dataLength = in.readInt();
+        if (width <= 0 || height <= 0 || dataLength < 0) {
+            throw new IOException("Corrupt frame header");
+        }
+        unread = dataLength;
+        return true;
+    }
+
+    /**
+     * Read the data of the current frame into the first {@link #getDataLength()} bytes of {@code dest}.
+     */
+    public void readData(byte[] dest) throws IOException {
+        if (unread != dataLength) {
+            throw new IllegalStateException("Frame data already read");
+        }
+        in.readFully(dest, 0, dataLength);
+        unread = 0;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    private void skipFully(int bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = in.skipBytes(bytes);
+            if (skipped <= 0) {
+                throw new EOFException("Truncated frame");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
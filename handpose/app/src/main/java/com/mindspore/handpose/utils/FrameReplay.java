@@ -0,0 +1,199 @@
+package com.mindspore.handpose.utils;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a {@link FrameRecording} through the camera {@link GesturePipeline}, so its throughput and latency
+ * can be measured deterministically, on a desktop JVM with a {@link FakeInferenceEngine} or on a device.
+ * <p>
+ * Frames are read into a small ring of buffers that the pipeline hands back once done, like the camera's
+ * callback buffers. {@link Speed#REAL_TIME} submits every frame at its recorded time and, like the camera,
+ * drops a frame when no buffer is free; {@link Speed#MAX} submits the next frame as soon as the pipeline has
+ * taken the previous one, so none is dropped and the throughput is the pipeline's own. A frame's timestamp
+ * is the time it is submitted, so END_TO_END covers the same span as in the app.
+ */
+public class FrameReplay {
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+    private static final long DRAIN_TIMEOUT_MS = 5000;
+
+    public enum Speed {
+        REAL_TIME,
+        MAX
+    }
+
+    /**
+     * Outcome of one replay.
+     */
+    public static final class Report {
+        private final long framesRead;
+        private final long framesSubmitted;
+        private final long sourceDropped;
+        private final long pipelineDropped;
+        private final long framesProcessed;
+        private final long elapsedNanos;
+        private final PipelineMetrics metrics;
+
+        Report(long framesRead, long framesSubmitted, long sourceDropped, long pipelineDropped,
+               long framesProcessed, long elapsedNanos, PipelineMetrics metrics) {
+            this.framesRead = framesRead;
+            this.framesSubmitted = framesSubmitted;
+            this.sourceDropped = sourceDropped;
+            this.pipelineDropped = pipelineDropped;
+            this.framesProcessed = framesProcessed;
+            this.elapsedNanos = elapsedNanos;
+            this.metrics = metrics;
+        }
+
+        public long getFramesRead() {
+            return framesRead;
+        }
+
+        public long getFramesSubmitted() {
+            return framesSubmitted;
+        }
+
+        /**
+         * Frames skipped because every buffer was still in the pipeline, as the camera would.
+         */
+        public long getSourceDropped() {
+            return sourceDropped;
+        }
+
+        /**
+         * Submitted frames replaced by a newer one before the model got to them.
+         */
+        public long getPipelineDropped() {
+            return pipelineDropped;
+        }
+
+        public long getFramesProcessed() {
+            return framesProcessed;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getProcessedPerSecond() {
+            return elapsedNanos == 0 ? 0 : framesProcessed * 1e9 / elapsedNanos;
+        }
+
+        public PipelineMetrics getMetrics() {
+            return metrics;
+        }
+
+        @Override
+        public String toString() {
+            LatencyHistogram endToEnd = metrics.getHistogram(PipelineMetrics.Stage.END_TO_END);
+            return String.format(Locale.US, "%d frames read, %d submitted, %d dropped by source, "
+                            + "%d dropped by pipeline, %d processed in %.2f s (%.1f fps), "
+                            + "end-to-end p50 %.1f ms, p99 %.1f ms",
+                    framesRead, framesSubmitted, sourceDropped, pipelineDropped, framesProcessed, elapsedNanos / 1e9,
+                    getProcessedPerSecond(), endToEnd.getPercentileNanos(50) / 1e6,
+                    endToEnd.getPercentileNanos(99) / 1e6);
+        }
+    }
+
+    private final GestureClassifier classifier;
+    private final int bufferCount;
+    private float maxFps;
+
+    public FrameReplay(GestureClassifier classifier) {
+        this(classifier, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * @param bufferCount frame buffers shared between the reader and the pipeline.
+     */
+    public FrameReplay(GestureClassifier classifier, int bufferCount) {
+        this.classifier = classifier;
+        this.bufferCount = bufferCount;
+    }
+
+    /**
+     * Same cap as the app's, see {@link FramePipeline#setMaxFps}. 0, the default, measures the pipeline uncapped.
+     */
+    public void setMaxFps(float maxFps) {
+        this.maxFps = maxFps;
+    }
+
+    /**
+     * Replay the whole recording on a new inference thread and wait until every frame has gone through.
+     */
+    public Report run(FrameRecording recording, Speed speed) throws IOException, InterruptedException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        classifier.setMetrics(metrics);
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(new byte[0]);
+        }
+        // A plain single thread like the app's InferenceService, which uses android.util.Log and so is left
+        // out of the JVM-only benchmark module.
+        ExecutorService inferenceThread = Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "ReplayInference"));
+        GesturePipeline pipeline = new GesturePipeline(classifier, inferenceThread, metrics,
+                (event, classIndex) -> { });
+        pipeline.setMaxFps(maxFps);
+        pipeline.setFrameReleaser(frame -> freeBuffers.add(frame.data));
+
+        long framesRead = 0;
+        long framesSubmitted = 0;
+        long sourceDropped = 0;
+        long firstRecorded = 0;
+        long start = System.nanoTime();
+        pipeline.start();
+        try {
+            while (recording.nextFrame()) {
+                if (framesRead++ == 0) {
+                    firstRecorded = recording.getTimestampNanos();
+                }
+                byte[] buffer;
+                if (speed == Speed.REAL_TIME) {
+                    long waitNanos = start + recording.getTimestampNanos() - firstRecorded - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                    buffer = freeBuffers.poll();
+                    if (buffer == null) {
+                        sourceDropped++;
+                        continue;
+                    }
+                } else {
+                    pipeline.awaitFrameTaken();
+                    buffer = freeBuffers.take();
+                }
+                if (buffer.length < recording.getDataLength()) {
+                    buffer = new byte[recording.getDataLength()];
+                }
+                try {
+                    recording.readData(buffer);
+                } catch (IOException e) {
+                    freeBuffers.add(buffer);
+                    throw e;
+                }
+                pipeline.submit(new PreviewFrame(buffer, recording.getWidth(), recording.getHeight(),
+                        recording.getOrientation(), System.nanoTime()));
+                framesSubmitted++;
+            }
+            // Every buffer comes back once the last frame has been processed or dropped.
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+            while (freeBuffers.size() < bufferCount && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        } finally {
+            pipeline.stop();
+            inferenceThread.shutdown();
+            inferenceThread.awaitTermination(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            classifier.setMetrics(null);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Report(framesRead, framesSubmitted, sourceDropped, pipeline.getDroppedFrames(),
+                pipeline.getProcessedFrames(), elapsed, metrics);
+    }
+}
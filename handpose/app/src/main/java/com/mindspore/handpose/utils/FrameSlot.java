@@ -0,0 +1,52 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * Single-item hand-off where the newest item wins: publishing over an unconsumed item replaces it.
+ */
+public class FrameSlot<T> {
+    private T item;
+
+    /**
+     * Store {@code value}, waking up a waiting consumer.
+     *
+     * @return the unconsumed item that was replaced, or null.
+     */
+    public synchronized T publish(T value) {
+        T displaced = item;
+        item = value;
+        notifyAll();
+        return displaced;
+    }
+
+    /**
+     * Block until an item is available and remove it.
+     */
+    public synchronized T take() throws InterruptedException {
+        while (item == null) {
+            wait();
+        }
+        T value = item;
+        item = null;
+        notifyAll();
+        return value;
+    }
+
+    /**
+     * Block until the slot is empty, i.e. the last item was taken or cleared.
+     */
+    public synchronized void awaitEmpty() throws InterruptedException {
+        while (item != null) {
+            wait();
+        }
+    }
+
+    /**
+     * Remove the pending item without waiting.
+     */
+    public synchronized T clear() {
+        T value = item;
+        item = null;
+        notifyAll();
+        return value;
+    }
+}
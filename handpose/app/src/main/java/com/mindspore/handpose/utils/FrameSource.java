@@ -0,0 +1,45 @@
+package com.mindspore.handpose.utils;
+
+import java.io.IOException;
+
+/**
+ * A camera backend delivering {@link PreviewFrame}s, so the legacy Camera and the Camera2 paths feed the same
+ * {@link GesturePipeline} and can be measured against each other.
+ * <p>
+ * A source owns a small, fixed set of frame buffers. Every frame handed to the consumer holds one of them until
+ * it is given back with {@link #releaseFrame}; when all of them are out, the source drops new frames itself.
+ */
+public interface FrameSource {
+    interface FrameConsumer {
+        /**
+         * Called for every captured frame, on the source's camera thread.
+         */
+        void onFrame(PreviewFrame frame);
+    }
+
+    /**
+     * Open the camera and start delivering frames. Size and orientation are known once this returns.
+     */
+    void start(FrameConsumer consumer) throws IOException;
+
+    /**
+     * Stop the preview and close the camera. Frames still out may be released afterwards.
+     */
+    void stop();
+
+    /**
+     * Give the buffer of {@code frame} back to the camera. May be called from any thread.
+     */
+    void releaseFrame(PreviewFrame frame);
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Bytes of a frame once packed into NV21, e.g. for {@link FrameRecorder}.
+     */
+    int getFrameBytes();
+
+    Orientation getOrientation();
+}
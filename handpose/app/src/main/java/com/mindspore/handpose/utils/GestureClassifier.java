@@ -0,0 +1,296 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Preprocessing, prediction and postprocessing of camera frames around an {@link InferenceEngine}.
+ * <p>
+ * This is the Android-free part of {@link ModelManager}, so the camera pipeline also runs on a desktop JVM
+ * with a {@link FakeInferenceEngine}, see {@link FrameReplay}. {@link #fillInput} may run on any thread;
+ * everything that touches the engine must run on the thread that owns it.
+ */
+public class GestureClassifier {
+    static final float[] IMAGE_MEAN = new float[]{0.485F * 255, 0.456F * 255, 0.406F * 255};
+    static final float[] IMAGE_STD = new float[]{0.229F * 255, 0.224F * 255, 0.225F * 255};
+    // Input buffers in flight at once: one being filled, one waiting and one inside the model.
+    private static final int INPUT_BUFFER_COUNT = 3;
+
+    private final InferenceEngine engine;
+    private final int numClasses;
+    private final InputQuantization inputQuantization;
+    // Set for a quantized input tensor: preprocessing then writes one byte per element from this table.
+    private final byte[] inputLut;
+    private int inputWidth;
+    private int inputHeight;
+    private TensorBufferPool inputBuffers;
+    private int batchSize = 1;
+    private ByteBuffer batchBuffer;
+    private volatile PipelineMetrics metrics;
+
+    /**
+     * @param inputQuantization required when the engine takes an int8/uint8 input, ignored for float32.
+     */
+    public GestureClassifier(InferenceEngine engine, int numClasses, InputQuantization inputQuantization) {
+        this.engine = engine;
+        this.numClasses = numClasses;
+        boolean quantized = engine.isReady() && engine.getInputType() != InferenceEngine.InputType.FLOAT32;
+        this.inputQuantization = quantized ? inputQuantization : null;
+        this.inputLut = this.inputQuantization != null ? this.inputQuantization.lookupTable(IMAGE_MEAN, IMAGE_STD)
+                : null;
+        if (!engine.isReady() || (quantized && inputQuantization == null)) {
+            return;
+        }
+        int[] shape = engine.getInputShape();
+        if (shape == null || shape.length != 4) {
+            return;
+        }
+        inputHeight = shape[2];
+        inputWidth = shape[3];
+        int bytesPerElement = inputLut != null ? 1 : 4;
+        inputBuffers = new TensorBufferPool(inputWidth * inputHeight * 3 * bytesPerElement, INPUT_BUFFER_COUNT);
+    }
+
+    /**
+     * Whether the engine was built and its input is supported.
+     */
+    public boolean isReady() {
+        return inputBuffers != null;
+    }
+
+    public InferenceEngine getEngine() {
+        return engine;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    /**
+     * Quantization of the input tensor, or null when the model takes float32.
+     */
+    public InputQuantization getInputQuantization() {
+        return inputQuantization;
+    }
+
+    /**
+     * Lookup table for a quantized input, see {@link InputQuantization#lookupTable}; null for float32.
+     */
+    byte[] getInputLut() {
+        return inputLut;
+    }
+
+    /**
+     * Pool of input buffers sized for this model, shared with FramePipeline. Null if the model is not ready.
+     */
+    public TensorBufferPool getInputBuffers() {
+        return inputBuffers;
+    }
+
+    public GestureResult newResult() {
+        return new GestureResult(numClasses);
+    }
+
+    /**
+     * Record predict and postprocess times into {@code metrics}. Null stops recording.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Convert the {@code window} crop of an NV21 frame into {@code contentArray}. Does not touch the engine,
+     * so it can run on another thread while a previous input is being predicted.
+     */
+    public void fillInput(byte[] nv21, int width, int height, CropWindow window, ByteBuffer contentArray) {
+        if (inputLut != null) {
+            YuvConverter.nv21ToQuantized(nv21, width, height, window, contentArray, inputWidth, inputHeight, inputLut);
+            return;
+        }
+        YuvConverter.nv21ToByteBuffer(nv21, width, height, window, contentArray, inputWidth, inputHeight,
+                IMAGE_MEAN, IMAGE_STD);
+    }
+
+    public void fillInput(YuvPlanes planes, CropWindow window, ByteBuffer contentArray) {
+        if (inputLut != null) {
+            YuvConverter.planesToQuantized(planes, window, contentArray, inputWidth, inputHeight, inputLut);
+            return;
+        }
+        YuvConverter.planesToByteBuffer(planes, window, contentArray, inputWidth, inputHeight, IMAGE_MEAN, IMAGE_STD);
+    }
+
+    /**
+     * Fill the input from a camera frame, whichever backend it came from.
+     */
+    public void fillInput(PreviewFrame frame, CropWindow window, ByteBuffer contentArray) {
+        if (frame.planes != null) {
+            fillInput(frame.planes, window, contentArray);
+        } else {
+            fillInput(frame.data, frame.width, frame.height, window, contentArray);
+        }
+    }
+
+    /**
+     * Run the model on an input buffer filled by {@link #fillInput} and write the softmax into {@code result}.
+     *
+     * @return whether {@code result} holds a valid classification.
+     */
+    public boolean execute(ByteBuffer contentArray, GestureResult result) {
+        if (!isReady()) {
+            result.setFailed(GestureResult.Status.NOT_READY);
+            return false;
+        }
+        if (!resizeBatch(1)) {
+            result.setFailed(GestureResult.Status.NOT_READY);
+            return false;
+        }
+        long start = System.nanoTime();
+        if (!engine.predict(contentArray)) {
+            result.setFailed(GestureResult.Status.PREDICT_FAILED);
+            countFailure();
+            return false;
+        }
+        long predicted = System.nanoTime();
+        recordStage(PipelineMetrics.Stage.PREDICT, start, predicted);
+
+        float[] logits = engine.getOutput();
+        if (logits == null || logits.length < numClasses) {
+            result.setFailed(GestureResult.Status.BAD_OUTPUT);
+            countFailure();
+            return false;
+        }
+        result.setLogits(logits, 0);
+        long end = System.nanoTime();
+        recordStage(PipelineMetrics.Stage.POSTPROCESS, predicted, end);
+        result.setInferenceTime(start, end);
+        return true;
+    }
+
+    /**
+     * Run {@code runs} predictions on a synthetic input, so that lazy kernel selection and allocation inside
+     * the engine are paid before the first real frame.
+     *
+     * @return predict time of each run in nanoseconds, shorter than {@code runs} if a prediction failed.
+     */
+    public long[] warmUp(int runs) {
+        if (!isReady()) {
+            return new long[0];
+        }
+        long[] times = new long[runs];
+        GestureResult result = newResult();
+        ByteBuffer contentArray = inputBuffers.acquire();
+        try {
+            // The content does not matter: zeros are the mean color for float input.
+            for (int i = 0; i < contentArray.capacity(); i++) {
+                contentArray.put(i, (byte) 0);
+            }
+            for (int i = 0; i < runs; i++) {
+                if (!execute(contentArray, result)) {
+                    return Arrays.copyOf(times, i);
+                }
+                times[i] = result.getInferenceNanos();
+            }
+        } finally {
+            inputBuffers.release(contentArray);
+        }
+        return times;
+    }
+
+    /**
+     * A buffer for {@code batch} packed inputs, reused between calls; fill image i at
+     * {@code i * getInputBuffers().getBufferSize()} with {@link #slice}.
+     */
+    ByteBuffer batchBuffer(int batch) {
+        int bytes = batch * inputBuffers.getBufferSize();
+        if (batchBuffer == null || batchBuffer.capacity() < bytes) {
+            batchBuffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+        return batchBuffer;
+    }
+
+    /**
+     * Run one predict() on the first {@code results.length} inputs packed into {@link #batchBuffer}.
+     */
+    void executeBatch(ByteBuffer packed, GestureResult[] results) {
+        int batch = results.length;
+        if (!resizeBatch(batch)) {
+            for (GestureResult result : results) {
+                result.setFailed(GestureResult.Status.NOT_READY);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        // The engine takes a buffer whose capacity is exactly the input's byte size.
+        if (!engine.predict(slice(packed, 0, batch * inputBuffers.getBufferSize()))) {
+            for (GestureResult result : results) {
+                result.setFailed(GestureResult.Status.PREDICT_FAILED);
+            }
+            return;
+        }
+        long end = System.nanoTime();
+        float[] logits = engine.getOutput();
+        for (int i = 0; i < batch; i++) {
+            GestureResult result = results[i];
+            if (logits == null || logits.length < (i + 1) * numClasses) {
+                result.setFailed(GestureResult.Status.BAD_OUTPUT);
+                continue;
+            }
+            result.setLogits(logits, i * numClasses);
+            result.setInferenceTime(start, end);
+        }
+    }
+
+    /**
+     * Resize the input to a batch of {@code batch} images, if it is not already.
+     */
+    private boolean resizeBatch(int batch) {
+        if (batch == batchSize) {
+            return true;
+        }
+        if (!engine.resize(batch)) {
+            return false;
+        }
+        batchSize = batch;
+        return true;
+    }
+
+    private void recordStage(PipelineMetrics.Stage stage, long startNanos, long endNanos) {
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.record(stage, startNanos, endNanos);
+        }
+    }
+
+    private void countFailure() {
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.increment(PipelineMetrics.Counter.FAILED_PREDICTIONS);
+        }
+    }
+
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        buffer.clear();
+        buffer.position(offset);
+        buffer.limit(offset + length);
+        ByteBuffer slice = buffer.slice().order(ByteOrder.nativeOrder());
+        buffer.clear();
+        return slice;
+    }
+
+    public void free() {
+        engine.free();
+    }
+}
@@ -0,0 +1,34 @@
+package com.mindspore.handpose.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class names of the model outputs, one per line in output order (class_indexing in mindspore_train.py).
+ */
+public class GestureLabels {
+    public static final String LABELS_FILE = "labels.txt";
+    public static final String[] DEFAULT_LABELS = new String[]{"ok", "thumbup"};
+
+    /**
+     * Read one label per line, skipping blank lines. Closes the stream.
+     */
+    public static String[] read(InputStream inputStream) throws IOException {
+        List<String> labels = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    labels.add(line);
+                }
+            }
+        }
+        return labels.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,168 @@
+package com.mindspore.handpose.utils;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The camera cascade: region of interest, hand-presence gate, result cache and model, then debouncing into
+ * gesture events, on top of a {@link FramePipeline}.
+ * <p>
+ * Frames are {@link PreviewFrame}s whose timestamp is when they were received; the time from there to their
+ * result is recorded as {@link PipelineMetrics.Stage#END_TO_END}. Android-free, so the same cascade runs in
+ * the app and in {@link FrameReplay}.
+ */
+public class GesturePipeline {
+    /**
+     * Called on the inference thread for every gesture transition.
+     */
+    public interface GestureListener {
+        void onGesture(GestureSmoother.Event event, int classIndex);
+    }
+
+    private final GestureClassifier classifier;
+    private final PipelineMetrics metrics;
+    private final FramePipeline<PreviewFrame, GestureResult> framePipeline;
+    // Filled for every frame, only touched by the inference thread.
+    private final GestureResult pipelineResult;
+    // Debounces results into gesture events, only touched by the inference thread.
+    private final GestureSmoother gestureSmoother;
+    private final RoiTracker roiTracker;
+    // Skips the model on frames that look like a recent one.
+    private final ResultCache resultCache;
+    // Skips the model on frames without a hand, only touched by the preprocess thread.
+    private final HandPresenceGate presenceGate;
+
+    /**
+     * @param inferenceExecutor the thread that owns the classifier's engine.
+     */
+    public GesturePipeline(GestureClassifier classifier, Executor inferenceExecutor, PipelineMetrics metrics,
+                           GestureListener listener) {
+        this.classifier = classifier;
+        this.metrics = metrics;
+        int inputWidth = classifier.getInputWidth();
+        int inputHeight = classifier.getInputHeight();
+        pipelineResult = classifier.newResult();
+        gestureSmoother = new GestureSmoother(classifier.getNumClasses());
+        roiTracker = new RoiTracker(inputWidth, inputHeight);
+        resultCache = new ResultCache(classifier.getNumClasses());
+        presenceGate = new HandPresenceGate();
+        framePipeline = new FramePipeline<>(
+                (frame, input) -> {
+                    frame.region = roiTracker.nextRegion(frame.width, frame.height, frame.orientation);
+                    // First stage of the cascade: no likely hand, no MobileNet.
+                    CropWindow window = frame.region.window;
+                    frame.noHand = frame.planes != null
+                            ? !presenceGate.isHandLikely(frame.planes, window, inputWidth, inputHeight)
+                            : !presenceGate.isHandLikely(frame.data, frame.width, frame.height, window,
+                                    inputWidth, inputHeight);
+                    frame.skinFraction = presenceGate.getLastSkinFraction();
+                    if (frame.noHand) {
+                        return true;
+                    }
+                    frame.hash = frame.planes != null
+                            ? FrameHash.dHash(frame.planes, window, inputWidth, inputHeight)
+                            : FrameHash.dHash(frame.data, frame.width, frame.height, window, inputWidth, inputHeight);
+                    // A static scene: no need to convert a frame the cache will answer.
+                    frame.inputSkipped = resultCache.contains(frame.hash, frame.timestampNanos);
+                    if (!frame.inputSkipped) {
+                        classifier.fillInput(frame, window, input);
+                    }
+                    return true;
+                },
+                (frame, input) -> {
+                    if (frame.noHand) {
+                        pipelineResult.setFailed(GestureResult.Status.NO_HAND);
+                        metrics.increment(PipelineMetrics.Counter.GATED_FRAMES);
+                        return pipelineResult;
+                    }
+                    if (resultCache.lookup(frame.hash, frame.timestampNanos, pipelineResult)) {
+                        metrics.increment(PipelineMetrics.Counter.CACHE_HITS);
+                        return pipelineResult;
+                    }
+                    metrics.increment(PipelineMetrics.Counter.CACHE_MISSES);
+                    if (frame.inputSkipped) {
+                        // The entry was evicted after the preprocessor saw it.
+                        classifier.fillInput(frame, frame.region.window, input);
+                    }
+                    classifier.execute(input, pipelineResult);
+                    resultCache.put(frame.hash, frame.timestampNanos, pipelineResult);
+                    return pipelineResult;
+                },
+                (frame, result) -> {
+                    result.setFrameTimestampNanos(frame.timestampNanos);
+                    if (result.isOk()) {
+                        roiTracker.onResult(frame.region, result.getProbability(result.getClassIndex()),
+                                frame.skinFraction);
+                    } else if (result.getStatus() == GestureResult.Status.NO_HAND) {
+                        // Counts as a miss, so a locked region the hand left is given up.
+                        roiTracker.onResult(frame.region, 0f, frame.skinFraction);
+                    }
+                    // Listeners only hear about gesture transitions, not every frame.
+                    GestureSmoother.Event event = gestureSmoother.update(result);
+                    if (event != GestureSmoother.Event.NONE) {
+                        listener.onGesture(event, gestureSmoother.getEventClass());
+                    }
+                    metrics.record(PipelineMetrics.Stage.END_TO_END, frame.timestampNanos, System.nanoTime());
+                },
+                classifier.getInputBuffers(), inferenceExecutor);
+        framePipeline.setMetrics(metrics);
+    }
+
+    /**
+     * See {@link FramePipeline#setMaxFps}.
+     */
+    public void setMaxFps(float maxFps) {
+        framePipeline.setMaxFps(maxFps);
+    }
+
+    /**
+     * See {@link FramePipeline#setFrameReleaser}.
+     */
+    public void setFrameReleaser(FramePipeline.FrameReleaser<PreviewFrame> releaser) {
+        framePipeline.setFrameReleaser(releaser);
+    }
+
+    /**
+     * See {@link FramePipeline#setErrorListener}.
+     */
+    public void setErrorListener(FramePipeline.ErrorListener<PreviewFrame> listener) {
+        framePipeline.setErrorListener(listener);
+    }
+
+    public void start() {
+        framePipeline.start();
+    }
+
+    public void stop() {
+        framePipeline.stop();
+    }
+
+    /**
+     * Offer a frame; it replaces a frame still waiting for the model, see {@link FramePipeline#submit}.
+     */
+    public void submit(PreviewFrame frame) {
+        framePipeline.submit(frame);
+    }
+
+    /**
+     * See {@link FramePipeline#awaitFrameTaken}.
+     */
+    public void awaitFrameTaken() throws InterruptedException {
+        framePipeline.awaitFrameTaken();
+    }
+
+    public long getProcessedFrames() {
+        return framePipeline.getProcessedFrames();
+    }
+
+    public long getDroppedFrames() {
+        return framePipeline.getDroppedFrames();
+    }
+
+    public GestureClassifier getClassifier() {
+        return classifier;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,164 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * Classification of one frame, meant to be reused: ModelManager fills an instance the caller owns,
+ * so the per-frame path allocates no result objects or strings.
+ */
+public class GestureResult {
+    public enum Status {
+        // Probabilities and class index are valid.
+        OK,
+        // The model was not built.
+        NOT_READY,
+        // predict() failed.
+        PREDICT_FAILED,
+        // The output tensor was missing or had an unexpected size.
+        BAD_OUTPUT,
+        // HandPresenceGate found no hand, so the model was not run: "no gesture".
+        NO_HAND
+    }
+
+    private final float[] probabilities;
+    private Status status = Status.NOT_READY;
+    private int classIndex = -1;
+    private long frameTimestampNanos;
+    private long inferenceStartNanos;
+    private long inferenceEndNanos;
+
+    public GestureResult(int numClasses) {
+        probabilities = new float[numClasses];
+    }
+
+    /**
+     * Softmax {@code probabilities.length} logits starting at {@code offset} into this result.
+     */
+    public void setLogits(float[] logits, int offset) {
+        int count = probabilities.length;
+        float max = logits[offset];
+        for (int i = 1; i < count; i++) {
+            if (logits[offset + i] > max) {
+                max = logits[offset + i];
+            }
+        }
+        float sum = 0;
+        for (int i = 0; i < count; i++) {
+            probabilities[i] = (float) Math.exp(logits[offset + i] - max);
+            sum += probabilities[i];
+        }
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            probabilities[i] /= sum;
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+        classIndex = best;
+        status = Status.OK;
+    }
+
+    public void setFailed(Status status) {
+        this.status = status;
+        this.classIndex = -1;
+    }
+
+    public void setFrameTimestampNanos(long frameTimestampNanos) {
+        this.frameTimestampNanos = frameTimestampNanos;
+    }
+
+    public void setInferenceTime(long startNanos, long endNanos) {
+        this.inferenceStartNanos = startNanos;
+        this.inferenceEndNanos = endNanos;
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getClassIndex() {
+        return classIndex;
+    }
+
+    public int getNumClasses() {
+        return probabilities.length;
+    }
+
+    public float getProbability(int classIndex) {
+        return probabilities[classIndex];
+    }
+
+    /**
+     * Live array, valid until the result is filled again.
+     */
+    public float[] getProbabilities() {
+        return probabilities;
+    }
+
+    public long getFrameTimestampNanos() {
+        return frameTimestampNanos;
+    }
+
+    public long getInferenceStartNanos() {
+        return inferenceStartNanos;
+    }
+
+    public long getInferenceEndNanos() {
+        return inferenceEndNanos;
+    }
+
+    public long getInferenceNanos() {
+        return inferenceEndNanos - inferenceStartNanos;
+    }
+
+    public void copyFrom(GestureResult other) {
+        System.arraycopy(other.probabilities, 0, probabilities, 0, probabilities.length);
+        status = other.status;
+        classIndex = other.classIndex;
+        frameTimestampNanos = other.frameTimestampNanos;
+        inferenceStartNanos = other.inferenceStartNanos;
+        inferenceEndNanos = other.inferenceEndNanos;
+    }
+
+    public GestureResult copy() {
+        GestureResult copy = new GestureResult(probabilities.length);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Whether {@link #format} would produce the same text for both results, without building it.
+     */
+    public boolean formatsSameAs(GestureResult other) {
+        if (other == null || status != other.status || probabilities.length != other.probabilities.length) {
+            return false;
+        }
+        for (int i = 0; i < probabilities.length; i++) {
+            if (Math.round(probabilities[i] * 100) != Math.round(other.probabilities[i] * 100)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Display text such as "ok:0.97  ,  thumbup:0.03". Meant for the UI thread, only when the text changes.
+     */
+    public String format(String[] labels) {
+        if (status != Status.OK) {
+            return status.name();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < probabilities.length; i++) {
+            if (i > 0) {
+                builder.append("  ,  ");
+            }
+            builder.append(i < labels.length ? labels[i] : String.valueOf(i))
+                    .append(':')
+                    .append(String.format("%.2f", probabilities[i]));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.mindspore.handpose.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns per-frame softmax outputs into stable gesture state changes.
+ * <p>
+ * Probabilities are smoothed with an exponential moving average and the per-frame winners are kept in
+ * a ring buffer for a sliding-window vote. A gesture is entered when its smoothed probability reaches
+ * the enter threshold and it won enough of the recent frames, and left only when it drops below the
+ * lower exit threshold, so frames near the boundary do not make the state flicker.
+ * Not thread-safe: feed it from the inference thread.
+ */
+public class GestureSmoother {
+    public enum Event {
+        // Nothing changed.
+        NONE,
+        // A gesture became stable.
+        ENTERED,
+        // The current gesture has been held for the hold duration. Reported once per gesture.
+        HELD,
+        // The current gesture is no longer recognized.
+        LEFT
+    }
+
+    public static final float DEFAULT_ALPHA = 0.4f;
+    public static final float DEFAULT_ENTER_THRESHOLD = 0.8f;
+    public static final float DEFAULT_EXIT_THRESHOLD = 0.6f;
+    public static final int DEFAULT_WINDOW_SIZE = 5;
+    public static final int DEFAULT_MIN_VOTES = 3;
+    public static final long DEFAULT_HOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    private final float alpha;
+    private final float enterThreshold;
+    private final float exitThreshold;
+    private final int minVotes;
+    private final long holdNanos;
+
+    private final float[] smoothed;
+    private final int[] window;
+    private final int[] votes;
+    private int windowPosition;
+    private int windowCount;
+
+    private int currentClass = -1;
+    private int eventClass = -1;
+    private long enteredAtNanos;
+    private boolean heldReported;
+
+    public GestureSmoother(int numClasses) {
+        this(numClasses, DEFAULT_ALPHA, DEFAULT_ENTER_THRESHOLD, DEFAULT_EXIT_THRESHOLD, DEFAULT_WINDOW_SIZE,
+                DEFAULT_MIN_VOTES, DEFAULT_HOLD_NANOS);
+    }
+
+    /**
+     * @param alpha          weight of the newest frame in the moving average, in (0, 1].
+     * @param enterThreshold smoothed probability needed to enter a gesture.
+     * @param exitThreshold  smoothed probability below which the current gesture is left.
+     * @param windowSize     number of recent frames in the vote.
+     * @param minVotes       frames of the window the gesture must have won to be entered.
+     * @param holdNanos      time after entering at which {@link Event#HELD} is reported.
+     */
+    public GestureSmoother(int numClasses, float alpha, float enterThreshold, float exitThreshold, int windowSize,
+                           int minVotes, long holdNanos) {
+        if (exitThreshold > enterThreshold) {
+            throw new IllegalArgumentException("exitThreshold must not exceed enterThreshold");
+        }
+        this.alpha = alpha;
+        this.enterThreshold = enterThreshold;
+        this.exitThreshold = exitThreshold;
+        this.minVotes = minVotes;
+        this.holdNanos = holdNanos;
+        this.smoothed = new float[numClasses];
+        this.window = new int[windowSize];
+        this.votes = new int[numClasses];
+    }
+
+    /**
+     * Feed the next frame. A {@link GestureResult.Status#NO_HAND} result pulls every gesture towards zero;
+     * other failed results are ignored.
+     *
+     * @return the state change caused by this frame; {@link #getEventClass()} tells which gesture it is about.
+     */
+    public Event update(GestureResult result) {
+        boolean noHand = result.getStatus() == GestureResult.Status.NO_HAND;
+        if (!result.isOk() && !noHand) {
+            return Event.NONE;
+        }
+        if (noHand) {
+            for (int i = 0; i < smoothed.length; i++) {
+                smoothed[i] -= alpha * smoothed[i];
+            }
+        } else if (windowCount == 0) {
+            System.arraycopy(result.getProbabilities(), 0, smoothed, 0, smoothed.length);
+        } else {
+            float[] probabilities = result.getProbabilities();
+            for (int i = 0; i < smoothed.length; i++) {
+                smoothed[i] += alpha * (probabilities[i] - smoothed[i]);
+            }
+        }
+        vote(result.getClassIndex());
+
+        long now = result.getFrameTimestampNanos();
+        if (currentClass < 0) {
+            int best = 0;
+            for (int i = 1; i < smoothed.length; i++) {
+                if (smoothed[i] > smoothed[best]) {
+                    best = i;
+                }
+            }
+            if (smoothed[best] >= enterThreshold && votes[best] >= minVotes) {
+                currentClass = best;
+                eventClass = best;
+                enteredAtNanos = now;
+                heldReported = false;
+                return Event.ENTERED;
+            }
+            return Event.NONE;
+        }
+
+        if (smoothed[currentClass] < exitThreshold) {
+            eventClass = currentClass;
+            currentClass = -1;
+            return Event.LEFT;
+        }
+        if (!heldReported && now - enteredAtNanos >= holdNanos) {
+            heldReported = true;
+            eventClass = currentClass;
+            return Event.HELD;
+        }
+        return Event.NONE;
+    }
+
+    // -1 is a frame without a gesture, which takes a window slot but votes for nobody.
+    private void vote(int classIndex) {
+        if (windowCount == window.length) {
+            int oldest = window[windowPosition];
+            if (oldest >= 0) {
+                votes[oldest]--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = classIndex;
+        if (classIndex >= 0) {
+            votes[classIndex]++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    /**
+     * Gesture currently held, or -1.
+     */
+    public int getCurrentClass() {
+        return currentClass;
+    }
+
+    /**
+     * Gesture the last non-NONE event was about.
+     */
+    public int getEventClass() {
+        return eventClass;
+    }
+
+    public float getSmoothedProbability(int classIndex) {
+        return smoothed[classIndex];
+    }
+
+    public long getEnteredAtNanos() {
+        return enteredAtNanos;
+    }
+
+    public void reset() {
+        Arrays.fill(smoothed, 0f);
+        Arrays.fill(votes, 0);
+        windowPosition = 0;
+        windowCount = 0;
+        currentClass = -1;
+        eventClass = -1;
+        heldReported = false;
+    }
+}
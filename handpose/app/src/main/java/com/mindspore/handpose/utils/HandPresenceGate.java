@@ -0,0 +1,140 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * Cheap first stage of the camera cascade: decides from a coarse grid of NV21 samples whether a hand is
+ * likely inside the crop, so MobileNet only runs when one is.
+ * <p>
+ * A sample counts as skin when its chroma falls in the usual YCbCr skin box (Cb 77-127, Cr 133-173) and it
+ * is not too dark. The crop passes when enough of it is skin, or when its luma changed noticeably since
+ * the previous frame of the same window, which catches a hand entering under light that defeats the
+ * colour test. A pass keeps the gate open for a few frames, so a hand that briefly fails the heuristic is
+ * not dropped in the middle of a gesture. About 500 byte reads per frame. Not thread-safe: call it from
+ * the preprocess thread.
+ */
+public class HandPresenceGate {
+    public static final float DEFAULT_MIN_SKIN_FRACTION = 0.1f;
+    // Mean absolute luma change over the grid.
+    public static final float DEFAULT_MIN_MOTION = 12f;
+    public static final int DEFAULT_HOLD_FRAMES = 5;
+
+    private static final int GRID = 16;
+    private static final int MIN_SKIN_LUMA = 40;
+    private static final int MIN_CB = 77;
+    private static final int MAX_CB = 127;
+    private static final int MIN_CR = 133;
+    private static final int MAX_CR = 173;
+
+    private final float minSkinFraction;
+    private final float minMotion;
+    private final int holdFrames;
+
+    private final int[] luma = new int[GRID * GRID];
+    private final int[] previousLuma = new int[GRID * GRID];
+    private CropWindow previousWindow;
+    private int holdRemaining;
+    private float lastSkinFraction;
+    private float lastMotion;
+
+    public HandPresenceGate() {
+        this(DEFAULT_MIN_SKIN_FRACTION, DEFAULT_MIN_MOTION, DEFAULT_HOLD_FRAMES);
+    }
+
+    public HandPresenceGate(float minSkinFraction, float minMotion, int holdFrames) {
+        this.minSkinFraction = minSkinFraction;
+        this.minMotion = minMotion;
+        this.holdFrames = holdFrames;
+    }
+
+    /**
+     * Whether the {@code outWidth} x {@code outHeight} crop that {@code window} maps from the frame is worth
+     * running the model on.
+     */
+    public boolean isHandLikely(byte[] nv21, int width, int height, CropWindow window, int outWidth, int outHeight) {
+        return isHandLikely(nv21, null, width, height, window, outWidth, outHeight);
+    }
+
+    /**
+     * Same as {@link #isHandLikely(byte[], int, int, CropWindow, int, int)} for a Camera2 image.
+     */
+    public boolean isHandLikely(YuvPlanes planes, CropWindow window, int outWidth, int outHeight) {
+        return isHandLikely(null, planes, planes.width, planes.height, window, outWidth, outHeight);
+    }
+
+    private boolean isHandLikely(byte[] nv21, YuvPlanes planes, int width, int height, CropWindow window,
+                                 int outWidth, int outHeight) {
+        int uvOffset = width * height;
+        Orientation orientation = window.orientation;
+        float cellWidth = outWidth * window.stepX / GRID;
+        float cellHeight = outHeight * window.stepY / GRID;
+        int skin = 0;
+        for (int row = 0; row < GRID; row++) {
+            float v = window.originY + (row + 0.5f) * cellHeight;
+            for (int column = 0; column < GRID; column++) {
+                float u = window.originX + (column + 0.5f) * cellWidth;
+                int x = clamp((int) orientation.sourceX(u, v, width), width - 1);
+                int y = clamp((int) orientation.sourceY(u, v, height), height - 1);
+                int lum;
+                int cr;
+                int cb;
+                if (planes == null) {
+                    lum = nv21[y * width + x] & 0xFF;
+                    int chroma = uvOffset + (y >> 1) * width + (x & ~1);
+                    cr = nv21[chroma] & 0xFF;
+                    cb = nv21[chroma + 1] & 0xFF;
+                } else {
+                    lum = planes.y.get(y * planes.yRowStride + x) & 0xFF;
+                    int chroma = (y >> 1) * planes.uvRowStride + (x >> 1) * planes.uvPixelStride;
+                    cr = planes.v.get(chroma) & 0xFF;
+                    cb = planes.u.get(chroma) & 0xFF;
+                }
+                luma[row * GRID + column] = lum;
+                if (lum >= MIN_SKIN_LUMA && cb >= MIN_CB && cb <= MAX_CB && cr >= MIN_CR && cr <= MAX_CR) {
+                    skin++;
+                }
+            }
+        }
+        lastSkinFraction = (float) skin / luma.length;
+
+        // Motion is only meaningful against the same window; while RoiTracker searches, the window changes.
+        lastMotion = 0f;
+        if (window == previousWindow) {
+            int difference = 0;
+            for (int i = 0; i < luma.length; i++) {
+                difference += Math.abs(luma[i] - previousLuma[i]);
+            }
+            lastMotion = (float) difference / luma.length;
+        }
+        System.arraycopy(luma, 0, previousLuma, 0, luma.length);
+        previousWindow = window;
+
+        if (lastSkinFraction >= minSkinFraction || lastMotion >= minMotion) {
+            holdRemaining = holdFrames;
+            return true;
+        }
+        if (holdRemaining > 0) {
+            holdRemaining--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Share of skin-coloured samples in the last crop, for tuning the threshold.
+     */
+    public float getLastSkinFraction() {
+        return lastSkinFraction;
+    }
+
+    public float getLastMotion() {
+        return lastMotion;
+    }
+
+    public void reset() {
+        previousWindow = null;
+        holdRemaining = 0;
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+}
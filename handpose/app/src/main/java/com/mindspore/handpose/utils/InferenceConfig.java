@@ -0,0 +1,114 @@
+package com.mindspore.handpose.utils;
+
+import com.mindspore.config.CpuBindMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CPU settings of a MindSpore context: intra-op threads, core binding and fp16 kernels.
+ */
+public final class InferenceConfig {
+    public static final InferenceConfig DEFAULT =
+            new InferenceConfig(ModelManager.DEFAULT_THREAD_NUM, ModelManager.DEFAULT_CPU_BIND_MODE, false);
+
+    private static final int[] BIND_MODES = new int[]{CpuBindMode.HIGHER_CPU, CpuBindMode.MID_CPU, CpuBindMode.NO_BIND};
+
+    public final int threadNum;
+    // One of CpuBindMode.
+    public final int cpuBindMode;
+    public final boolean enableFp16;
+
+    public InferenceConfig(int threadNum, int cpuBindMode, boolean enableFp16) {
+        if (threadNum < 1) {
+            throw new IllegalArgumentException("threadNum must be at least 1: " + threadNum);
+        }
+        this.threadNum = threadNum;
+        this.cpuBindMode = cpuBindMode;
+        this.enableFp16 = enableFp16;
+    }
+
+    /**
+     * Every combination worth trying on a device with {@code cpuCount} cores: 1, 2, 4 and all cores
+     * (capped at 8), each bind mode, fp16 off and on.
+     */
+    public static List<InferenceConfig> candidates(int cpuCount) {
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads : new int[]{1, 2, 4, Math.min(cpuCount, 8)}) {
+            if (threads <= cpuCount && !threadCounts.contains(threads)) {
+                threadCounts.add(threads);
+            }
+        }
+        List<InferenceConfig> configs = new ArrayList<>();
+        for (int threads : threadCounts) {
+            for (int bindMode : BIND_MODES) {
+                configs.add(new InferenceConfig(threads, bindMode, false));
+                configs.add(new InferenceConfig(threads, bindMode, true));
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * "threads,bindMode,fp16" as stored in preferences, e.g. "2,2,0".
+     */
+    public String encode() {
+        return threadNum + "," + cpuBindMode + "," + (enableFp16 ? 1 : 0);
+    }
+
+    /**
+     * Inverse of {@link #encode()}, or null if {@code text} is missing or malformed.
+     */
+    public static InferenceConfig decode(String text) {
+        if (text == null) {
+            return null;
+        }
+        String[] parts = text.split(",");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new InferenceConfig(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]) != 0);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InferenceConfig)) {
+            return false;
+        }
+        InferenceConfig other = (InferenceConfig) o;
+        return threadNum == other.threadNum && cpuBindMode == other.cpuBindMode && enableFp16 == other.enableFp16;
+    }
+
+    @Override
+    public int hashCode() {
+        return (threadNum * 31 + cpuBindMode) * 2 + (enableFp16 ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        String bind;
+        switch (cpuBindMode) {
+            case CpuBindMode.HIGHER_CPU:
+                bind = "higher";
+                break;
+            case CpuBindMode.MID_CPU:
+                bind = "mid";
+                break;
+            case CpuBindMode.NO_BIND:
+                bind = "none";
+                break;
+            default:
+                bind = String.valueOf(cpuBindMode);
+                break;
+        }
+        return "threads=" + threadNum + " bind=" + bind + " fp16=" + (enableFp16 ? "on" : "off");
+    }
+}
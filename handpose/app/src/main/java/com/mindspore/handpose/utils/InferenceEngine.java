@@ -0,0 +1,46 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The runtime that executes the classifier: one packed NCHW input in, logits out.
+ * <p>
+ * {@link MindSporeEngine} runs the real model; {@link FakeInferenceEngine} stands in for it where MindSpore
+ * is not available, such as the desktop replay. Not thread-safe: call it from the thread that owns the model.
+ */
+public interface InferenceEngine {
+    enum InputType {
+        FLOAT32,
+        INT8,
+        UINT8
+    }
+
+    /**
+     * Whether the engine was built and can predict.
+     */
+    boolean isReady();
+
+    /**
+     * NCHW shape of the input tensor, for the current batch size.
+     */
+    int[] getInputShape();
+
+    InputType getInputType();
+
+    /**
+     * Resize the input to {@code batch} images.
+     */
+    boolean resize(int batch);
+
+    /**
+     * Run on {@code input}, whose capacity must be exactly the byte size of the input tensor.
+     */
+    boolean predict(ByteBuffer input);
+
+    /**
+     * Output of the last successful {@link #predict}, or null if the model has no usable output.
+     */
+    float[] getOutput();
+
+    void free();
+}
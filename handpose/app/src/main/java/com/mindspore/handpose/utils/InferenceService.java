@@ -0,0 +1,104 @@
+package com.mindspore.handpose.utils;
+
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the one thread that is allowed to call into the model.
+ * <p>
+ * Create it next to the ModelManager and {@link #shutdown()} it before {@code ModelManager.free()}.
+ * Results of {@link #trySubmit} are delivered through the result executor, which on Android is the
+ * main-thread Handler.
+ */
+public class InferenceService implements Executor {
+    private static final String TAG = "InferenceService";
+    public static final String THREAD_NAME = "Inference";
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000;
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private final ExecutorService worker;
+    private final Executor resultExecutor;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public InferenceService(Executor resultExecutor) {
+        this.resultExecutor = resultExecutor;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, THREAD_NAME));
+    }
+
+    /**
+     * Run {@code task} on the inference thread unless a previous {@code trySubmit} task is still running.
+     *
+     * @return false if the task was rejected because another one is in flight.
+     */
+    public <T> boolean trySubmit(Callable<T> task, Callback<T> callback) {
+        if (!inFlight.compareAndSet(false, true)) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        try {
+            worker.execute(() -> {
+                T result = null;
+                try {
+                    result = task.call();
+                } catch (Exception e) {
+                    Log.e(TAG, "Inference task failed", e);
+                } finally {
+                    inFlight.set(false);
+                }
+                final T delivered = result;
+                resultExecutor.execute(() -> callback.onResult(delivered));
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queue {@code command} on the inference thread, bypassing the in-flight guard.
+     * Used by FramePipeline, which does its own backpressure.
+     */
+    @Override
+    public void execute(Runnable command) {
+        worker.execute(command);
+    }
+
+    public boolean isInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Drop queued work, let the running task finish and stop the thread.
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isTerminated() {
+        return worker.isTerminated();
+    }
+}
@@ -0,0 +1,101 @@
+package com.mindspore.handpose.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Quantization of an int8/uint8 model input: {@code q = round(normalized / scale) + zeroPoint}.
+ * <p>
+ * The MindSpore Lite Java API does not expose tensor quantization parameters, so they are shipped next to
+ * the model as "&lt;model&gt;.quant.txt", for example:
+ * <pre>
+ * scale=0.018658
+ * zero_point=114
+ * </pre>
+ */
+public class InputQuantization {
+    public final float scale;
+    public final int zeroPoint;
+    // int8 when true, uint8 otherwise.
+    public final boolean signed;
+
+    public InputQuantization(float scale, int zeroPoint, boolean signed) {
+        if (!(scale > 0f)) {
+            throw new IllegalArgumentException("Invalid scale: " + scale);
+        }
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        this.signed = signed;
+    }
+
+    /**
+     * Name of the parameter asset of {@code modelName}, "mobilenet_handpose_int8.ms" -> "mobilenet_handpose_int8.quant.txt".
+     */
+    public static String paramsFile(String modelName) {
+        int dot = modelName.lastIndexOf('.');
+        return (dot > 0 ? modelName.substring(0, dot) : modelName) + ".quant.txt";
+    }
+
+    /**
+     * Read "key=value" lines with keys scale and zero_point. Closes the stream.
+     */
+    public static InputQuantization read(InputStream inputStream, boolean signed) throws IOException {
+        Float scale = null;
+        Integer zeroPoint = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int equals = line.indexOf('=');
+                if (line.trim().startsWith("#") || equals < 0) {
+                    continue;
+                }
+                String key = line.substring(0, equals).trim();
+                String value = line.substring(equals + 1).trim();
+                try {
+                    if (key.equals("scale")) {
+                        scale = Float.parseFloat(value);
+                    } else if (key.equals("zero_point")) {
+                        zeroPoint = Integer.parseInt(value);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad value for " + key + ": " + value);
+                }
+            }
+        }
+        if (scale == null || zeroPoint == null) {
+            throw new IOException("scale and zero_point are required");
+        }
+        return new InputQuantization(scale, zeroPoint, signed);
+    }
+
+    /**
+     * Quantized value of an already normalized input, clamped to the int8/uint8 range.
+     */
+    public int quantize(float normalized) {
+        int q = Math.round(normalized / scale) + zeroPoint;
+        int min = signed ? Byte.MIN_VALUE : 0;
+        int max = signed ? Byte.MAX_VALUE : 255;
+        return q < min ? min : (q > max ? max : q);
+    }
+
+    public float dequantize(byte q) {
+        return ((signed ? q : q & 0xFF) - zeroPoint) * scale;
+    }
+
+    /**
+     * Table of the quantized input for every channel value: entry {@code c * 256 + v} is channel c (RGB) with
+     * value v, normalized with mean[c]/std[c] and quantized. One lookup replaces subtract, divide, round and clamp.
+     */
+    public byte[] lookupTable(float[] mean, float[] std) {
+        byte[] table = new byte[3 * 256];
+        for (int c = 0; c < 3; c++) {
+            for (int v = 0; v < 256; v++) {
+                table[c * 256 + v] = (byte) quantize((v - mean[c]) / std[c]);
+            }
+        }
+        return table;
+    }
+}
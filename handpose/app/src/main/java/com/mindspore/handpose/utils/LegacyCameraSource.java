@@ -0,0 +1,133 @@
+package com.mindspore.handpose.utils;
+
+import android.graphics.ImageFormat;
+import android.hardware.Camera;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link FrameSource} on the deprecated {@code android.hardware.Camera} API: NV21 frames delivered into
+ * preallocated callback buffers on the thread that started the camera.
+ */
+public class LegacyCameraSource implements FrameSource {
+    // One buffer for the camera to fill, one pending, one being preprocessed and one being inferred.
+    public static final int PREVIEW_BUFFER_COUNT = 4;
+
+    private final SurfaceHolder holder;
+    private final int displayRotation;
+    // Runs on the thread that started the camera, where it must be touched.
+    private final Executor cameraExecutor;
+    private Camera camera;
+    private int width;
+    private int height;
+    private int frameBytes;
+    private Orientation orientation = Orientation.NORMAL;
+
+    /**
+     * @param displayRotation rotation of the display in degrees, to turn the frames upright.
+     * @param cameraExecutor  posts to the thread that calls {@link #start}, normally the UI thread.
+     */
+    public LegacyCameraSource(SurfaceHolder holder, int displayRotation, Executor cameraExecutor) {
+        this.holder = holder;
+        this.displayRotation = displayRotation;
+        this.cameraExecutor = cameraExecutor;
+    }
+
+    @Override
+    public void start(FrameConsumer consumer) throws IOException {
+        camera = Camera.open();
+        if (camera == null) {
+            throw new IOException("No back camera");
+        }
+        try {
+            Camera.Parameters parameters = camera.getParameters();
+            Camera.Size previewSize = PreviewSizes.choose(parameters.getSupportedPreviewSizes(),
+                    PreviewSizes.MIN_SHORT_SIDE);
+            parameters.setPreviewSize(previewSize.width, previewSize.height);
+            parameters.setPreviewFormat(ImageFormat.NV21);
+            camera.setParameters(parameters);
+            width = previewSize.width;
+            height = previewSize.height;
+            frameBytes = width * height * ImageFormat.getBitsPerPixel(ImageFormat.NV21) / 8;
+            // The camera only delivers frames into buffers we hand it, so nothing is allocated per frame;
+            // when all of them are still in the pipeline it drops frames itself.
+            for (int i = 0; i < PREVIEW_BUFFER_COUNT; i++) {
+                camera.addCallbackBuffer(new byte[frameBytes]);
+            }
+            camera.setDisplayOrientation(setUpOrientation());
+            camera.setPreviewCallbackWithBuffer((data, previewCamera) ->
+                    consumer.onFrame(new PreviewFrame(data, width, height, orientation, System.nanoTime())));
+            camera.setPreviewDisplay(holder);
+            camera.startPreview();
+        } catch (IOException | RuntimeException e) {
+            stop();
+            throw e;
+        }
+    }
+
+    /**
+     * Work out {@link #orientation} for the back camera {@link Camera#open()} returns.
+     *
+     * @return the matching {@link Camera#setDisplayOrientation} degrees.
+     */
+    private int setUpOrientation() {
+        Camera.CameraInfo info = new Camera.CameraInfo();
+        for (int i = 0; i < Camera.getNumberOfCameras(); i++) {
+            Camera.getCameraInfo(i, info);
+            if (info.facing == Camera.CameraInfo.CAMERA_FACING_BACK) {
+                break;
+            }
+        }
+        boolean frontFacing = info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT;
+        orientation = Orientation.forCamera(info.orientation, displayRotation, frontFacing);
+        if (frontFacing) {
+            // The display mirrors front previews itself before rotating them.
+            return (360 - (info.orientation + displayRotation) % 360) % 360;
+        }
+        return (info.orientation - displayRotation + 360) % 360;
+    }
+
+    @Override
+    public void stop() {
+        if (camera == null) {
+            return;
+        }
+        camera.setPreviewCallbackWithBuffer(null);
+        camera.stopPreview();
+        camera.release();
+        camera = null;
+    }
+
+    @Override
+    public void releaseFrame(PreviewFrame frame) {
+        byte[] buffer = frame.data;
+        cameraExecutor.execute(() -> {
+            // Buffers of a camera that was released in the meantime are simply dropped.
+            if (camera != null && buffer.length == frameBytes) {
+                camera.addCallbackBuffer(buffer);
+            }
+        });
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    @Override
+    public Orientation getOrientation() {
+        return orientation;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mindspore.handpose.utils;
+
+import android.util.Log;
+
+import com.mindspore.MSTensor;
+import com.mindspore.Model;
+import com.mindspore.config.DataType;
+import com.mindspore.config.DeviceType;
+import com.mindspore.config.MSContext;
+import com.mindspore.config.ModelType;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.List;
+
+/**
+ * {@link InferenceEngine} on a MindSpore Lite model built from a mapped .ms file.
+ */
+public class MindSporeEngine implements InferenceEngine {
+    private static final String TAG = "MindSporeEngine";
+
+    private final Model model = new Model();
+    private MSTensor inputTensor;
+    private MSTensor outputTensor;
+    private InputType inputType;
+    private int[] inputShape;
+
+    /**
+     * Build the model; check {@link #isReady()} afterwards.
+     *
+     * @param config threads, core binding and fp16 of the MindSpore context, see {@link ContextTuner}.
+     */
+    public MindSporeEngine(MappedByteBuffer modelBuffer, InferenceConfig config) {
+        // 创建上下文
+        MSContext context = new MSContext();
+        if (!context.init(config.threadNum, config.cpuBindMode, false)) {
+            Log.e(TAG, "Init context failed");
+            return;
+        }
+        if (!context.addDeviceInfo(DeviceType.DT_CPU, config.enableFp16, 0)) {
+            Log.e(TAG, "Add device info failed");
+            return;
+        }
+        if (modelBuffer == null) {
+            Log.e(TAG, "Load model failed");
+            return;
+        }
+        // Create the MindSpore lite session.
+        if (!model.build(modelBuffer, ModelType.MT_MINDIR, context)) {
+            Log.e(TAG, "Build model failed");
+            return;
+        }
+        Log.i(TAG, "Build model success");
+        List<MSTensor> inputs = model.getInputs();
+        if (inputs.size() != 1) {
+            Log.e(TAG, "inputs.size() != 1");
+            return;
+        }
+        int dataType = inputs.get(0).getDataType();
+        if (dataType == DataType.kNumberTypeFloat32) {
+            inputType = InputType.FLOAT32;
+        } else if (dataType == DataType.kNumberTypeInt8) {
+            inputType = InputType.INT8;
+        } else if (dataType == DataType.kNumberTypeUInt8) {
+            inputType = InputType.UINT8;
+        } else {
+            Log.e(TAG, "Unsupported input data type " + dataType);
+            return;
+        }
+        refreshTensors();
+    }
+
+    @Override
+    public boolean isReady() {
+        return inputTensor != null;
+    }
+
+    @Override
+    public int[] getInputShape() {
+        return inputShape;
+    }
+
+    @Override
+    public InputType getInputType() {
+        return inputType;
+    }
+
+    @Override
+    public boolean resize(int batch) {
+        int[] shape = inputShape.clone();
+        shape[0] = batch;
+        if (!model.resize(model.getInputs(), new int[][]{shape})) {
+            Log.e(TAG, "Resize input to batch " + batch + " failed");
+            return false;
+        }
+        // Tensor handles are refreshed after resize.
+        refreshTensors();
+        return true;
+    }
+
+    @Override
+    public boolean predict(ByteBuffer input) {
+        inputTensor.setData(input);
+        // Run graph to infer results.
+        if (!model.predict()) {
+            Log.e(TAG, "Run graph failed");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public float[] getOutput() {
+        return outputTensor == null ? null : outputTensor.getFloatData();
+    }
+
+    @Override
+    public void free() {
+        model.free();
+    }
+
+    private void refreshTensors() {
+        inputTensor = model.getInputs().get(0);
+        List<MSTensor> outputs = model.getOutputs();
+        outputTensor = outputs.isEmpty() ? null : outputs.get(0);
+        inputShape = inputTensor.getShape();
+    }
+}
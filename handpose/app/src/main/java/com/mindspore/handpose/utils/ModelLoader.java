@@ -0,0 +1,142 @@
+package com.mindspore.handpose.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maps, builds and warms up a model off the UI thread.
+ * <p>
+ * Run it on the InferenceService, so the model is built on the thread that will predict with it. As a
+ * Future, {@link #get()} blocks until the model is ready. The listener is told on the listener executor
+ * once loading has finished, whether the build succeeded or not.
+ */
+public class ModelLoader extends FutureTask<ModelManager> {
+    private static final String TAG = "ModelLoader";
+    public static final int DEFAULT_WARM_UP_RUNS = 3;
+
+    public interface Listener {
+        /**
+         * @param modelManager the model; it could not be built if {@code report.isReady()} is false. Null if
+         *                     loading failed with an exception or was cancelled.
+         */
+        void onModelLoaded(ModelManager modelManager, StartupReport report);
+    }
+
+    private final StartupReport report;
+    private final Executor listenerExecutor;
+    private final Listener listener;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public ModelLoader(Context context, String modelName, int warmUpRuns, Executor listenerExecutor,
+                       Listener listener) {
+        this(context, modelName, null, warmUpRuns, listenerExecutor, listener);
+    }
+
+    /**
+     * @param tuner      picks the context settings, possibly tuning them first; null uses
+     *                   {@link InferenceConfig#DEFAULT}.
+     * @param warmUpRuns predictions on a synthetic input before the model is handed out.
+     */
+    public ModelLoader(Context context, String modelName, ContextTuner tuner, int warmUpRuns,
+                       Executor listenerExecutor, Listener listener) {
+        this(context, modelName, tuner, warmUpRuns, listenerExecutor, listener, new StartupReport());
+    }
+
+    private ModelLoader(Context context, String modelName, ContextTuner tuner, int warmUpRuns,
+                        Executor listenerExecutor, Listener listener, StartupReport report) {
+        super(() -> load(context, modelName, tuner, warmUpRuns, report));
+        this.report = report;
+        this.listenerExecutor = listenerExecutor;
+        this.listener = listener;
+    }
+
+    private static ModelManager load(Context context, String modelName, ContextTuner tuner, int warmUpRuns,
+                                     StartupReport report) {
+        ModelRegistry registry = ModelRegistry.get(context);
+        long start = System.nanoTime();
+        // Free if an earlier load in this process already mapped the model.
+        ModelRegistry.Entry entry = registry.mapEntry(modelName);
+        long mapped = System.nanoTime();
+        // Tuning checks for interrupts between candidates, so cancel(true) cuts a first launch short.
+        InferenceConfig config = tuner != null && entry != null
+                ? tuner.resolve(entry.getBuffer(), entry.getChecksum()) : InferenceConfig.DEFAULT;
+        long tuned = System.nanoTime();
+        ModelManager modelManager = registry.build(modelName, config);
+        long built = System.nanoTime();
+        report.setMapNanos(mapped - start);
+        report.setTuneNanos(tuned - mapped);
+        report.setConfig(config);
+        report.setBuildNanos(built - tuned);
+        report.setReady(modelManager.getInputBuffers() != null);
+        report.setWarmUpNanos(modelManager.warmUp(warmUpRuns));
+        return modelManager;
+    }
+
+    /**
+     * Called by {@link #run()} once loading finished, even if the loader was cancelled meanwhile. The
+     * result of a cancelled load is dropped, so its model is freed here, on the loading thread.
+     */
+    @Override
+    protected void set(ModelManager modelManager) {
+        super.set(modelManager);
+        if (isCancelled() && modelManager != null) {
+            Log.i(TAG, "Loading was cancelled, freeing the model");
+            modelManager.free();
+        }
+    }
+
+    @Override
+    protected void done() {
+        ModelManager modelManager = getNow();
+        if (modelManager == null) {
+            report.setReady(false);
+        }
+        if (listener != null) {
+            listenerExecutor.execute(() -> listener.onModelLoaded(modelManager, report));
+        }
+    }
+
+    /**
+     * The loaded model, or null while loading or if loading was cancelled or failed.
+     */
+    public ModelManager getNow() {
+        if (!isDone() || isCancelled()) {
+            return null;
+        }
+        try {
+            return get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Model loading failed", e.getCause());
+            return null;
+        }
+    }
+
+    public StartupReport getReport() {
+        return report;
+    }
+
+    /**
+     * Cancel loading if it has not finished, otherwise free the model. Call it after the thread that runs
+     * the loader has been shut down, or as soon as a model that could not be built is no longer needed.
+     * Only the first call has an effect.
+     */
+    public void release() {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+        ModelManager modelManager = getNow();
+        if (modelManager != null) {
+            modelManager.free();
+        } else {
+            cancel(true);
+        }
+    }
+}
@@ -1,163 +1,363 @@
 package com.mindspore.handpose.utils;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
 import android.util.Log;
 
-import com.mindspore.MSTensor;
-import com.mindspore.Model;
 import com.mindspore.config.CpuBindMode;
-import com.mindspore.config.DeviceType;
-import com.mindspore.config.MSContext;
-import com.mindspore.config.ModelType;
 
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The gesture model of the app: labels, quantization parameters and Bitmap input on top of a
+ * {@link GestureClassifier} running on a {@link MindSporeEngine}. Code that runs without a Context, such as the
+ * desktop replay, builds a GestureClassifier on another engine directly.
+ */
 public class ModelManager {
     private static final String TAG = "ModelManager";
-    private static final String MOBILENET_HANDPOSE_MODEL = "mobilenet_handpose.ms"; // 模型名称
-    private static final int imageSize = 224;
-    public static final int NUM_CLASSES = 2;
-    private static final float IMAGE_MEAN[] = new float[]{0.485F * 255, 0.456F * 255, 0.406F * 255};
-    private static final float IMAGE_STD[] = new float[]{0.229F * 255, 0.224F * 255, 0.225F * 255};
+    // Per-frame logging, enable with "adb shell setprop log.tag.ModelManager DEBUG" and restart the app.
+    private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+    public static final String MOBILENET_HANDPOSE_MODEL = "mobilenet_handpose.ms"; // 模型名称
+    // Post-training quantized variant with an int8/uint8 input, see convert.bat. Optional.
+    public static final String MOBILENET_HANDPOSE_INT8_MODEL = "mobilenet_handpose_int8.ms";
+    public static final int DEFAULT_THREAD_NUM = 2;
+    public static final int DEFAULT_CPU_BIND_MODE = CpuBindMode.MID_CPU;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 8;
 
     private final Context mContext;
+    private final String modelName;
+    private final MappedByteBuffer modelBuffer;
+    private final InferenceConfig config;
+    private final String[] labels;
 
-    private Model model;
+    private InferenceEngine engine;
+    private GestureClassifier classifier;
+    private int[] pixelScratch;
 
     public ModelManager(Context context) {
+        this(context, MOBILENET_HANDPOSE_MODEL);
+    }
+
+    /**
+     * @param modelName model file in assets, e.g. {@link #MOBILENET_HANDPOSE_INT8_MODEL}.
+     */
+    public ModelManager(Context context, String modelName) {
+        this(context, modelName, loadModel(context, modelName), InferenceConfig.DEFAULT);
+    }
+
+    public ModelManager(Context context, MappedByteBuffer modelBuffer, int threadNum, int cpuBindMode) {
+        this(context, MOBILENET_HANDPOSE_MODEL, modelBuffer, threadNum, cpuBindMode);
+    }
+
+    /**
+     * @param threadNum   MindSpore intra-op threads for this instance.
+     * @param cpuBindMode one of {@link CpuBindMode}.
+     */
+    public ModelManager(Context context, String modelName, MappedByteBuffer modelBuffer, int threadNum,
+                        int cpuBindMode) {
+        this(context, modelName, modelBuffer, new InferenceConfig(threadNum, cpuBindMode, false));
+    }
+
+    /**
+     * Build a model from an already mapped buffer, so several instances can share one mapping.
+     *
+     * @param modelName asset the buffer was mapped from, used to find its quantization parameters.
+     * @param config    threads, core binding and fp16 of the MindSpore context, see {@link ContextTuner}.
+     */
+    public ModelManager(Context context, String modelName, MappedByteBuffer modelBuffer, InferenceConfig config) {
         mContext = context;
+        this.modelName = modelName;
+        this.modelBuffer = modelBuffer;
+        this.config = config;
+        this.labels = loadLabels(context);
         init();
     }
 
-    private MappedByteBuffer loadModel(Context context, String modelName) {
-        FileInputStream fis = null;
-        AssetFileDescriptor fileDescriptor = null;
-
+    private static String[] loadLabels(Context context) {
         try {
-            fileDescriptor = context.getAssets().openFd(modelName);
-            fis = new FileInputStream(fileDescriptor.getFileDescriptor());
-            FileChannel fileChannel = fis.getChannel();
-            long startOffset = fileDescriptor.getStartOffset();
-            long declaredLen = fileDescriptor.getDeclaredLength();
-            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLen);
-        } catch (IOException var24) {
-            Log.e("MS_LITE", "Load model failed");
-        } finally {
-            if (fis != null) {
-                try {
-                    fis.close();
-                } catch (IOException var23) {
-                    Log.e("MS_LITE", "Close file failed");
-                }
+            String[] labels = GestureLabels.read(context.getAssets().open(GestureLabels.LABELS_FILE));
+            if (labels.length > 0) {
+                return labels;
             }
+        } catch (IOException e) {
+            Log.e(TAG, "Load labels failed, using defaults");
+        }
+        return GestureLabels.DEFAULT_LABELS;
+    }
 
-            if (fileDescriptor != null) {
-                try {
-                    fileDescriptor.close();
-                } catch (IOException var22) {
-                    Log.e("MS_LITE", "Close fileDescriptor failed");
-                }
-            }
+    public InferenceConfig getConfig() {
+        return config;
+    }
 
-        }
+    public String[] getLabels() {
+        return labels;
+    }
+
+    public int getNumClasses() {
+        return labels.length;
+    }
 
-        return null;
+    /**
+     * A result object sized for this model, to be reused across calls to execute().
+     */
+    public GestureResult newResult() {
+        return new GestureResult(labels.length);
+    }
+
+    public static MappedByteBuffer loadModel(Context context) {
+        return loadModel(context, MOBILENET_HANDPOSE_MODEL);
+    }
+
+    /**
+     * Shared mapping of {@code modelName}, from the app-private models directory or assets,
+     * see {@link ModelRegistry}.
+     */
+    public static MappedByteBuffer loadModel(Context context, String modelName) {
+        return ModelRegistry.get(context).map(modelName);
     }
 
     public void init() {
-        model = new Model();
-        // 创建上下文
-        MSContext context = new MSContext();
-        if (!context.init(2, CpuBindMode.MID_CPU, false)) {
-            Log.e(TAG, "Init context failed");
-            return;
+        if (engine == null) {
+            engine = new MindSporeEngine(modelBuffer, config);
         }
-        if (!context.addDeviceInfo(DeviceType.DT_CPU, false, 0)) {
-            Log.e(TAG, "Add device info failed");
-            return;
+        InputQuantization inputQuantization = null;
+        if (engine.isReady() && engine.getInputType() != InferenceEngine.InputType.FLOAT32) {
+            inputQuantization = loadQuantization(mContext, modelName,
+                    engine.getInputType() == InferenceEngine.InputType.INT8);
         }
-        MappedByteBuffer modelBuffer = loadModel(mContext, MOBILENET_HANDPOSE_MODEL);
-        if(modelBuffer == null) {
-            Log.e(TAG, "Load model failed");
-            return;
+        classifier = new GestureClassifier(engine, labels.length, inputQuantization);
+        if (classifier.isReady()) {
+            pixelScratch = new int[getInputWidth() * getInputHeight()];
+            Log.i(TAG, "Input " + getInputWidth() + "x" + getInputHeight()
+                    + (inputQuantization != null ? ", quantized" : ", float32"));
         }
-        // Create the MindSpore lite session.
-        boolean ret = model.build(modelBuffer, ModelType.MT_MINDIR,context);
-        if(!ret) {
-            Log.e(TAG, "Build model failed");
+    }
+
+    private static InputQuantization loadQuantization(Context context, String modelName, boolean signed) {
+        String paramsFile = InputQuantization.paramsFile(modelName);
+        try {
+            return InputQuantization.read(ModelRegistry.get(context).open(paramsFile), signed);
+        } catch (IOException e) {
+            Log.e(TAG, "Quantized input needs " + paramsFile + ": " + e.getMessage());
+            return null;
         }
-        Log.i(TAG, "Build model success");
     }
 
-    public String execute(Bitmap bitmap) {
-        // Set input tensor values.
-        List<MSTensor> inputs = model.getInputs();
-        if (inputs.size() != 1) {
-            Log.e(TAG, "inputs.size() != 1");
-            return "null";
+    /**
+     * Record predict and postprocess times into {@code metrics}, and preprocess times of the
+     * {@code execute(Bitmap)}/{@code execute(byte[])} paths. Null stops recording.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        classifier.setMetrics(metrics);
+    }
+
+    /**
+     * Quantization of the input tensor, or null when the model takes float32.
+     */
+    public InputQuantization getInputQuantization() {
+        return classifier.getInputQuantization();
+    }
+
+    /**
+     * The Android-free part of this model, which the camera pipeline runs on, see {@link GesturePipeline}.
+     */
+    public GestureClassifier getClassifier() {
+        return classifier;
+    }
+
+    public boolean execute(Bitmap bitmap, GestureResult result) {
+        return execute(bitmap, Orientation.NORMAL, result);
+    }
+
+    /**
+     * Run the model on a bitmap stored with {@code orientation}, e.g. from {@link BitmapUtils#getOrientation};
+     * the rotation is applied while resizing, without a rotated copy of the bitmap.
+     */
+    public boolean execute(Bitmap bitmap, Orientation orientation, GestureResult result) {
+        if (!classifier.isReady()) {
+            Log.e(TAG, "Model is not ready");
+            result.setFailed(GestureResult.Status.NOT_READY);
+            return false;
         }
 
-        // scaleBitmapAndKeepRatio的作用是
-        Bitmap scaledBitmap = BitmapUtils.scaleBitmapAndKeepRatio(bitmap, imageSize, imageSize);
-        ByteBuffer contentArray = BitmapUtils.bitmapToByteBuffer(scaledBitmap, imageSize, imageSize, IMAGE_MEAN, IMAGE_STD);
+        TensorBufferPool inputBuffers = classifier.getInputBuffers();
+        ByteBuffer contentArray = inputBuffers.acquire();
+        try {
+            long start = System.nanoTime();
+            fillInput(bitmap, orientation, contentArray);
+            recordStage(PipelineMetrics.Stage.PREPROCESS, start, System.nanoTime());
+            return execute(contentArray, result);
+        } finally {
+            inputBuffers.release(contentArray);
+        }
+    }
 
-        MSTensor inTensor = inputs.get(0);
-        inTensor.setData(contentArray);
+    /**
+     * Run the model on a raw NV21 camera preview frame, without the YuvImage/JPEG/Bitmap round-trip.
+     */
+    public boolean execute(byte[] nv21, int width, int height, GestureResult result) {
+        return execute(nv21, width, height, Orientation.NORMAL, result);
+    }
 
-        Log.i(TAG, "Set input image success!");
+    /**
+     * Same as {@link #execute(byte[], int, int, GestureResult)} for a frame that must be turned by
+     * {@code orientation} to be upright, see {@link Orientation#forCamera}.
+     */
+    public boolean execute(byte[] nv21, int width, int height, Orientation orientation, GestureResult result) {
+        if (!classifier.isReady()) {
+            Log.e(TAG, "Model is not ready");
+            result.setFailed(GestureResult.Status.NOT_READY);
+            return false;
+        }
 
-        // Run graph to infer results.
-        if (!model.predict()) {
-            Log.e(TAG, "Run graph failed");
-            return "null";
+        TensorBufferPool inputBuffers = classifier.getInputBuffers();
+        ByteBuffer contentArray = inputBuffers.acquire();
+        try {
+            long start = System.nanoTime();
+            fillInput(nv21, width, height, CropWindow.centerCrop(width, height, orientation, getInputWidth(),
+                    getInputHeight()), contentArray);
+            recordStage(PipelineMetrics.Stage.PREPROCESS, start, System.nanoTime());
+            return execute(contentArray, result);
+        } finally {
+            inputBuffers.release(contentArray);
         }
+    }
 
-        Log.i(TAG, "Predict success!");
+    /**
+     * Convert an NV21 frame into {@code contentArray}. Does not touch the model, so it can run on
+     * another thread while a previous input is being predicted.
+     */
+    public void fillInput(byte[] nv21, int width, int height, ByteBuffer contentArray) {
+        fillInput(nv21, width, height, CropWindow.centerCrop(width, height, getInputWidth(), getInputHeight()),
+                contentArray);
+    }
 
-        // Get output tensor values.
-        List<MSTensor> outputs = model.getOutputs();
+    /**
+     * Same as {@link #fillInput(byte[], int, int, ByteBuffer)} but crops {@code window} instead of the center.
+     */
+    public void fillInput(byte[] nv21, int width, int height, CropWindow window, ByteBuffer contentArray) {
+        classifier.fillInput(nv21, width, height, window, contentArray);
+    }
 
-        MSTensor output = outputs.get(0);
-        if (output == null) {
-            Log.e(TAG, "Output is null");
-            return "null";
+    /**
+     * Resize/crop/normalize a bitmap in one pass over its pixels, see ResizeCropKernel.
+     */
+    private void fillInput(Bitmap bitmap, Orientation orientation, ByteBuffer contentArray) {
+        int pixelCount = bitmap.getWidth() * bitmap.getHeight();
+        if (pixelScratch.length < pixelCount) {
+            pixelScratch = new int[pixelCount];
         }
-        float[] results = output.getFloatData();
-        Log.i(TAG,"ok:"+results[0]+",thumbup:"+results[1]);
+        byte[] inputLut = classifier.getInputLut();
+        if (inputLut != null) {
+            BitmapUtils.bitmapToQuantized(bitmap, orientation, getInputWidth(), getInputHeight(), inputLut,
+                    contentArray, pixelScratch);
+            return;
+        }
+        BitmapUtils.bitmapToByteBuffer(bitmap, orientation, getInputWidth(), getInputHeight(),
+                GestureClassifier.IMAGE_MEAN, GestureClassifier.IMAGE_STD, contentArray, pixelScratch);
+    }
 
-        // 计算softmax
-        // 1.求最大值
-        float max_x = results[0];
-        for(int i = 0;i<results.length;i++){
-            if(results[i] > max_x){
-                max_x = results[i];
-            }
+    public int getInputWidth() {
+        return classifier.getInputWidth();
+    }
+
+    public int getInputHeight() {
+        return classifier.getInputHeight();
+    }
+
+    /**
+     * Pool of input buffers sized for this model, shared with FramePipeline. Null until the model is built.
+     */
+    public TensorBufferPool getInputBuffers() {
+        return classifier.getInputBuffers();
+    }
+
+    /**
+     * Run the model on an input buffer filled by {@link #fillInput} and write the softmax into {@code result}.
+     *
+     * @return whether {@code result} holds a valid classification.
+     */
+    public boolean execute(ByteBuffer contentArray, GestureResult result) {
+        if (!classifier.execute(contentArray, result)) {
+            Log.e(TAG, "Predict failed: " + result.getStatus());
+            return false;
         }
-        // 2.计算softmax
-        float sum = 0;
-        for(int i = 0;i<results.length;i++){
-            results[i] = (float)Math.exp(results[i] - max_x);
-            sum += results[i];
+        if (DEBUG) {
+            Log.d(TAG, "Predict success, class " + result.getClassIndex());
         }
-        for(int i = 0;i<results.length;i++){
-            results[i] = results[i] / sum;
+        return true;
+    }
+
+    /**
+     * Run {@code runs} predictions on a synthetic input, so that lazy kernel selection and allocation inside
+     * MindSpore are paid before the first real frame. Call it from the thread that owns this model.
+     *
+     * @return predict time of each run in nanoseconds, shorter than {@code runs} if a prediction failed.
+     */
+    public long[] warmUp(int runs) {
+        return classifier.warmUp(runs);
+    }
+
+    /**
+     * Classify {@code bitmaps} with batched predict() calls of at most {@link #DEFAULT_MAX_BATCH_SIZE} images.
+     */
+    public List<GestureResult> executeBatch(List<Bitmap> bitmaps) {
+        return executeBatch(bitmaps, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Classify {@code bitmaps} in chunks of up to {@code maxBatchSize}: the input tensor is resized to
+     * [N, 3, H, W], all N images are packed into one contiguous buffer and a single predict() is run per
+     * chunk. Must be called from the thread that owns this model, like {@link #execute(ByteBuffer, GestureResult)}.
+     */
+    public List<GestureResult> executeBatch(List<Bitmap> bitmaps, int maxBatchSize) {
+        List<GestureResult> results = new ArrayList<>(bitmaps.size());
+        for (int i = 0; i < bitmaps.size(); i++) {
+            results.add(newResult());
         }
+        if (!classifier.isReady()) {
+            Log.e(TAG, "Model is not ready");
+            for (GestureResult result : results) {
+                result.setFailed(GestureResult.Status.NOT_READY);
+            }
+            return results;
+        }
+        for (int start = 0; start < bitmaps.size(); start += maxBatchSize) {
+            int end = Math.min(start + maxBatchSize, bitmaps.size());
+            executeChunk(bitmaps.subList(start, end), results.subList(start, end));
+        }
+        return results;
+    }
 
-        String ret_str = "ok:"+String.format("%.2f", results[0])+"  ,  thumbup:"+String.format("%.2f", results[1]);
+    private void executeChunk(List<Bitmap> bitmaps, List<GestureResult> results) {
+        int batch = bitmaps.size();
+        int imageBytes = classifier.getInputBuffers().getBufferSize();
+        ByteBuffer batchBuffer = classifier.batchBuffer(batch);
+        for (int i = 0; i < batch; i++) {
+            fillInput(bitmaps.get(i), Orientation.NORMAL,
+                    GestureClassifier.slice(batchBuffer, i * imageBytes, imageBytes));
+        }
+        GestureResult[] chunk = results.toArray(new GestureResult[batch]);
+        classifier.executeBatch(batchBuffer, chunk);
+        if (!chunk[0].isOk()) {
+            Log.e(TAG, "Batch of " + batch + " failed: " + chunk[0].getStatus());
+        }
+    }
 
-        return ret_str;
+    private void recordStage(PipelineMetrics.Stage stage, long startNanos, long endNanos) {
+        PipelineMetrics metrics = classifier.getMetrics();
+        if (metrics != null) {
+            metrics.record(stage, startNanos, endNanos);
+        }
     }
 
     public void free() {
-        model.free();
+        classifier.free();
     }
 
 }
@@ -0,0 +1,205 @@
+package com.mindspore.handpose.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Several model instances, e.g. ModelManagers built from one mapped model, for classifying many images in
+ * parallel. Each task borrows an idle instance on one of the pool's threads, one thread per instance.
+ * <p>
+ * {@code instances * threadsPerModel} is the CPU budget: few instances with many intra-op threads favor
+ * latency, many single-threaded instances favor throughput. The best split depends on the device.
+ */
+public class ModelPool<M> {
+    private static final String TAG = "ModelPool";
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000;
+
+    public interface Task<M, R> {
+        /**
+         * Runs on a pool thread with {@code model} to itself.
+         */
+        R run(M model) throws Exception;
+    }
+
+    public interface Classifier<M, I> {
+        GestureResult classify(M model, I image);
+    }
+
+    public interface Freer<M> {
+        void free(M model);
+    }
+
+    /**
+     * Result of one image of a batch, with its position in the submitted list.
+     */
+    public static class Classification {
+        public final int index;
+        public final GestureResult result;
+
+        Classification(int index, GestureResult result) {
+            this.index = index;
+            this.result = result;
+        }
+    }
+
+    private final List<M> models;
+    private final BlockingQueue<M> idleModels;
+    private final Freer<M> freer;
+    private final ExecutorService executor;
+    // Guarded by idleModels; once set, models coming back from a task are freed instead of pooled.
+    private boolean freed;
+
+    /**
+     * @param freer releases a model once the pool is freed and the model is idle.
+     */
+    public ModelPool(List<M> models, Freer<M> freer) {
+        this.models = new ArrayList<>(models);
+        this.freer = freer;
+        idleModels = new ArrayBlockingQueue<>(Math.max(1, models.size()));
+        idleModels.addAll(models);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, models.size()),
+                runnable -> new Thread(runnable, TAG + "-" + threadIndex.getAndIncrement()));
+    }
+
+    /**
+     * {@code instances} ModelManagers sharing {@code modelBuffer}, each with {@code threadsPerModel} threads.
+     */
+    public static ModelPool<ModelManager> build(Context context, MappedByteBuffer modelBuffer, int instances,
+                                                int threadsPerModel, int cpuBindMode) {
+        List<ModelManager> models = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            models.add(new ModelManager(context, ModelManager.MOBILENET_HANDPOSE_MODEL, modelBuffer,
+                    threadsPerModel, cpuBindMode));
+        }
+        Log.i(TAG, "Built " + instances + " models x " + threadsPerModel + " threads");
+        return new ModelPool<>(models, ModelManager::free);
+    }
+
+    /**
+     * Split a total thread budget between instances, e.g. 8 threads as 4 models x 2 threads.
+     */
+    public static ModelPool<ModelManager> withThreadBudget(Context context, int totalThreads, int instances,
+                                                           int cpuBindMode) {
+        return build(context, ModelManager.loadModel(context), instances, threadsPerModel(totalThreads, instances),
+                cpuBindMode);
+    }
+
+    static int threadsPerModel(int totalThreads, int instances) {
+        return Math.max(1, totalThreads / Math.max(1, instances));
+    }
+
+    /**
+     * Classify a bitmap with a pooled ModelManager, for {@link #classifyAll} and {@link #submitAll}.
+     */
+    public static GestureResult classifyBitmap(ModelManager model, Bitmap bitmap) {
+        GestureResult result = model.newResult();
+        model.execute(bitmap, result);
+        return result;
+    }
+
+    public int size() {
+        return models.size();
+    }
+
+    public <R> Future<R> submit(Task<M, R> task) {
+        return executor.submit(() -> run(task));
+    }
+
+    /**
+     * Completion queue backed by the pool: results come out in the order they finish.
+     */
+    public CompletionService<Classification> newCompletionQueue() {
+        return new ExecutorCompletionService<>(executor);
+    }
+
+    /**
+     * Fan {@code images} out over {@code queue}. Take {@code images.size()} results from it afterwards.
+     */
+    public <I> void submitAll(List<I> images, Classifier<M, I> classifier, CompletionService<Classification> queue) {
+        for (int i = 0; i < images.size(); i++) {
+            final int index = i;
+            final I image = images.get(i);
+            queue.submit(() -> new Classification(index, run(model -> classifier.classify(model, image))));
+        }
+    }
+
+    /**
+     * Classify every image across all instances and return the results in input order.
+     */
+    public <I> List<GestureResult> classifyAll(List<I> images, Classifier<M, I> classifier)
+            throws InterruptedException, ExecutionException {
+        CompletionService<Classification> queue = newCompletionQueue();
+        submitAll(images, classifier, queue);
+        GestureResult[] results = new GestureResult[images.size()];
+        for (int i = 0; i < results.length; i++) {
+            Classification classification = queue.take().get();
+            results[classification.index] = classification.result;
+        }
+        return Arrays.asList(results);
+    }
+
+    private <R> R run(Task<M, R> task) throws Exception {
+        // The executor has one thread per instance, so an idle model is always available here.
+        M model = idleModels.take();
+        try {
+            return task.run(model);
+        } finally {
+            synchronized (idleModels) {
+                if (freed) {
+                    freer.free(model);
+                } else {
+                    idleModels.add(model);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the pool and free its models. A model whose task outlives the shutdown wait is freed by that task
+     * when it finishes, never while it runs.
+     */
+    public void free() {
+        if (!free(SHUTDOWN_TIMEOUT_MS)) {
+            Log.w(TAG, "Inference still running, its models are freed when it finishes");
+        }
+    }
+
+    /**
+     * @return false if a task was still running after {@code timeoutMs}.
+     */
+    boolean free(long timeoutMs) {
+        executor.shutdownNow();
+        boolean terminated = false;
+        try {
+            terminated = executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<M> idle = new ArrayList<>();
+        synchronized (idleModels) {
+            freed = true;
+            idleModels.drainTo(idle);
+        }
+        for (M model : idle) {
+            freer.free(model);
+        }
+        return terminated;
+    }
+}
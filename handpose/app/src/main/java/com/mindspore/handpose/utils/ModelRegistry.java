@@ -0,0 +1,290 @@
+package com.mindspore.handpose.utils;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Maps every model once per process and shares the mapping between all the ModelManagers built from it.
+ * <p>
+ * A model is looked up first in the app-private {@code files/models} directory, then in assets, where
+ * {@code aaptOptions noCompress "ms"} keeps it uncompressed so it can be mapped in place instead of
+ * copied. {@link #install} puts a newly trained model (or its quantization parameters) into the private
+ * directory, so it can be swapped in without reinstalling the app; models already built keep using the
+ * old mapping. Mapping and build times are kept per model, see {@link Entry}.
+ */
+public class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+    public static final String MODELS_DIR = "models";
+
+    private static ModelRegistry instance;
+
+    /**
+     * Mapping and build statistics of one model.
+     */
+    public static final class Entry {
+        private final String name;
+        private final String source;
+        private final MappedByteBuffer buffer;
+        private final long mapNanos;
+        private final long checksum;
+        private int buildCount;
+        private long lastBuildNanos;
+        private long totalBuildNanos;
+
+        Entry(String name, String source, MappedByteBuffer buffer, long mapNanos) {
+            this.name = name;
+            this.source = source;
+            this.buffer = buffer;
+            this.mapNanos = mapNanos;
+            this.checksum = checksum(buffer);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * "asset" or the path of the installed file.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public long getSizeBytes() {
+            return buffer.capacity();
+        }
+
+        public MappedByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * CRC32 of the model bytes, computed once when mapped. Tells a retrained model of the same size apart.
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public long getMapNanos() {
+            return mapNanos;
+        }
+
+        public synchronized int getBuildCount() {
+            return buildCount;
+        }
+
+        public synchronized long getLastBuildNanos() {
+            return lastBuildNanos;
+        }
+
+        public synchronized long getMeanBuildNanos() {
+            return buildCount == 0 ? 0 : totalBuildNanos / buildCount;
+        }
+
+        synchronized void recordBuild(long nanos) {
+            buildCount++;
+            lastBuildNanos = nanos;
+            totalBuildNanos += nanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US, "%s (%s, %.1f MB): map %.1f ms, %d builds, last %.1f ms, mean %.1f ms",
+                    name, source, getSizeBytes() / 1e6, mapNanos / 1e6, buildCount, lastBuildNanos / 1e6,
+                    getMeanBuildNanos() / 1e6);
+        }
+    }
+
+    private final Context context;
+    private final File modelsDir;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    ModelRegistry(Context context, File modelsDir) {
+        this.context = context;
+        this.modelsDir = modelsDir;
+    }
+
+    public static synchronized ModelRegistry get(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new ModelRegistry(appContext, new File(appContext.getFilesDir(), MODELS_DIR));
+        }
+        return instance;
+    }
+
+    /**
+     * The installed copy of {@code fileName}, whether it exists or not.
+     */
+    public File getInstalledFile(String fileName) {
+        return new File(modelsDir, fileName);
+    }
+
+    /**
+     * Open a model-related file, e.g. quantization parameters: the installed copy if any, else the asset.
+     */
+    public InputStream open(String fileName) throws IOException {
+        File file = getInstalledFile(fileName);
+        if (file.isFile()) {
+            return new FileInputStream(file);
+        }
+        return context.getAssets().open(fileName);
+    }
+
+    /**
+     * The shared read-only mapping of {@code modelName}, mapped on first use.
+     *
+     * @return null if the model exists neither as an installed file nor as an asset.
+     */
+    public MappedByteBuffer map(String modelName) {
+        Entry entry = mapEntry(modelName);
+        return entry == null ? null : entry.buffer;
+    }
+
+    /**
+     * Like {@link #map}, with the mapping's statistics and checksum.
+     */
+    public synchronized Entry mapEntry(String modelName) {
+        Entry entry = entries.get(modelName);
+        if (entry != null) {
+            return entry;
+        }
+        long start = System.nanoTime();
+        File file = getInstalledFile(modelName);
+        MappedByteBuffer buffer;
+        String source;
+        if (file.isFile()) {
+            buffer = mapFile(file);
+            source = file.getPath();
+        } else {
+            buffer = mapAsset(context, modelName);
+            source = "asset";
+        }
+        if (buffer == null) {
+            return null;
+        }
+        entry = new Entry(modelName, source, buffer, System.nanoTime() - start);
+        entries.put(modelName, entry);
+        return entry;
+    }
+
+    /**
+     * Build a new ModelManager on the shared mapping and record how long the build took. Like every model
+     * build, call it on the thread that will predict with the model.
+     */
+    public ModelManager build(String modelName, InferenceConfig config) {
+        MappedByteBuffer buffer = map(modelName);
+        long start = System.nanoTime();
+        ModelManager modelManager = new ModelManager(context, modelName, buffer, config);
+        Entry entry = getEntry(modelName);
+        if (entry != null) {
+            entry.recordBuild(System.nanoTime() - start);
+            Log.i(TAG, entry.toString());
+        }
+        return modelManager;
+    }
+
+    /**
+     * Copy {@code source} to the private models directory as {@code fileName}, replacing the asset or a
+     * previous install. The file is written next to its destination and renamed, so a crash never leaves
+     * a truncated model behind. The next {@link #map} of it maps the new file.
+     */
+    public void install(String fileName, InputStream source) throws IOException {
+        if (!modelsDir.isDirectory() && !modelsDir.mkdirs()) {
+            throw new IOException("Cannot create " + modelsDir);
+        }
+        File target = getInstalledFile(fileName);
+        File temp = new File(modelsDir, fileName + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = source.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+        invalidate(fileName);
+    }
+
+    /**
+     * Delete the installed copy of {@code fileName}, falling back to the asset.
+     */
+    public boolean uninstall(String fileName) {
+        boolean deleted = getInstalledFile(fileName).delete();
+        invalidate(fileName);
+        return deleted;
+    }
+
+    /**
+     * Forget the mapping of {@code modelName}; models already built from it are not affected.
+     */
+    public synchronized void invalidate(String modelName) {
+        entries.remove(modelName);
+    }
+
+    public synchronized Entry getEntry(String modelName) {
+        return entries.get(modelName);
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    static MappedByteBuffer mapFile(File file) {
+        try (FileInputStream fis = new FileInputStream(file)) {
+            FileChannel channel = fis.getChannel();
+            // The mapping stays valid after the channel is closed and even after the file is replaced.
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            Log.e(TAG, "Map " + file + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * CRC32 of the whole buffer, read in chunks since CRC32.update(ByteBuffer) needs API 26.
+     */
+    static long checksum(ByteBuffer buffer) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.clear();
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        while (bytes.hasRemaining()) {
+            int length = Math.min(chunk.length, bytes.remaining());
+            bytes.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return crc.getValue();
+    }
+
+    static MappedByteBuffer mapAsset(Context context, String assetName) {
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(assetName);
+             FileInputStream fis = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+            return fis.getChannel().map(FileChannel.MapMode.READ_ONLY, fileDescriptor.getStartOffset(),
+                    fileDescriptor.getDeclaredLength());
+        } catch (IOException e) {
+            // openFd also fails for compressed assets, check noCompress in build.gradle.
+            Log.e(TAG, "Map " + assetName + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+}
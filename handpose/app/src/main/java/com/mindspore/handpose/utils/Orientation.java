@@ -0,0 +1,125 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * How a stored image or camera frame must be turned to be upright, as the eight EXIF orientations.
+ * <p>
+ * The preprocessing kernels do not rotate anything: a {@link CropWindow} is laid out on the upright image
+ * and every sample is mapped back into the stored pixels, so a sideways frame costs nothing extra. Each
+ * orientation is a combination of swapping the axes and mirroring them; see {@link #sourceX} and
+ * {@link #sourceY} for the mapping of an upright point.
+ */
+public enum Orientation {
+    NORMAL(1, false, false, false),
+    FLIP_HORIZONTAL(2, false, true, false),
+    ROTATE_180(3, false, true, true),
+    FLIP_VERTICAL(4, false, false, true),
+    // Mirrored along the top-left to bottom-right diagonal.
+    TRANSPOSE(5, true, false, false),
+    // Rotate 90 degrees clockwise to be upright, e.g. the back camera of most phones held in portrait.
+    ROTATE_90(6, true, false, true),
+    // Mirrored along the top-right to bottom-left diagonal.
+    TRANSVERSE(7, true, true, true),
+    ROTATE_270(8, true, true, false);
+
+    private final int exifValue;
+    private final boolean swapsAxes;
+    private final boolean flipsX;
+    private final boolean flipsY;
+
+    Orientation(int exifValue, boolean swapsAxes, boolean flipsX, boolean flipsY) {
+        this.exifValue = exifValue;
+        this.swapsAxes = swapsAxes;
+        this.flipsX = flipsX;
+        this.flipsY = flipsY;
+    }
+
+    /**
+     * The {@code TAG_ORIENTATION} value of ExifInterface; unknown values, including 0 (undefined), are NORMAL.
+     */
+    public static Orientation fromExif(int exifValue) {
+        for (Orientation orientation : values()) {
+            if (orientation.exifValue == exifValue) {
+                return orientation;
+            }
+        }
+        return NORMAL;
+    }
+
+    /**
+     * A clockwise rotation of 0, 90, 180 or 270 degrees, optionally followed by a horizontal mirror.
+     */
+    public static Orientation fromRotation(int degrees, boolean mirrored) {
+        switch (((degrees % 360) + 360) % 360) {
+            case 90:
+                return mirrored ? TRANSPOSE : ROTATE_90;
+            case 180:
+                return mirrored ? FLIP_VERTICAL : ROTATE_180;
+            case 270:
+                return mirrored ? TRANSVERSE : ROTATE_270;
+            default:
+                return mirrored ? FLIP_HORIZONTAL : NORMAL;
+        }
+    }
+
+    /**
+     * Orientation of camera frames as the user sees them on screen, the same rotation the preview display
+     * gets: {@code sensorOrientation} is {@code Camera.CameraInfo.orientation} and {@code displayRotation}
+     * the rotation of the display in degrees. Front-camera previews are mirrored like a mirror.
+     */
+    public static Orientation forCamera(int sensorOrientation, int displayRotation, boolean frontFacing) {
+        if (frontFacing) {
+            return fromRotation(sensorOrientation + displayRotation, true);
+        }
+        return fromRotation(sensorOrientation - displayRotation, false);
+    }
+
+    public int getExifValue() {
+        return exifValue;
+    }
+
+    /**
+     * Whether the upright image is the stored one turned sideways, i.e. its width is the stored height.
+     */
+    public boolean swapsAxes() {
+        return swapsAxes;
+    }
+
+    /**
+     * Whether the stored x axis is reversed in the upright image.
+     */
+    public boolean flipsX() {
+        return flipsX;
+    }
+
+    /**
+     * Whether the stored y axis is reversed in the upright image.
+     */
+    public boolean flipsY() {
+        return flipsY;
+    }
+
+    public int uprightWidth(int width, int height) {
+        return swapsAxes ? height : width;
+    }
+
+    public int uprightHeight(int width, int height) {
+        return swapsAxes ? width : height;
+    }
+
+    /**
+     * Stored x of the point (u, v) of the upright image, for a stored image {@code width} pixels wide and
+     * pixel-center coordinates.
+     */
+    public float sourceX(float u, float v, int width) {
+        float x = swapsAxes ? v : u;
+        return flipsX ? width - 1 - x : x;
+    }
+
+    /**
+     * Stored y of the point (u, v) of the upright image, for a stored image {@code height} pixels high.
+     */
+    public float sourceY(float u, float v, int height) {
+        float y = swapsAxes ? u : v;
+        return flipsY ? height - 1 - y : y;
+    }
+}
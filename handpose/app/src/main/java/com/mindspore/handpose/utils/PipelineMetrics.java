@@ -0,0 +1,146 @@
+package com.mindspore.handpose.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-stage latency histograms and event counters of the camera-to-result path.
+ * <p>
+ * FramePipeline and ModelManager feed it {@code System.nanoTime()} spans when one is set on them. All
+ * methods are lock-free and safe to call from the camera, preprocess, inference and UI threads.
+ */
+public class PipelineMetrics {
+    public enum Stage {
+        // NV21 or bitmap pixels to input tensor.
+        PREPROCESS,
+        // Input tensor ready until the inference thread picks it up.
+        QUEUE_WAIT,
+        // setData() and predict().
+        PREDICT,
+        // Reading the output tensor and softmax.
+        POSTPROCESS,
+        // Result listener: ROI tracking, smoothing, posting to the UI.
+        LISTENER,
+        // Camera callback until the result listener is done.
+        END_TO_END
+    }
+
+    public enum Counter {
+        // Camera frames replaced by a newer one before being preprocessed.
+        DROPPED_FRAMES,
+        // Frames the preprocessor chose to skip.
+        SKIPPED_FRAMES,
+        // Picture requests refused because the previous one was still running.
+        REJECTED_REQUESTS,
+        // Predictions that did not produce a result.
+        FAILED_PREDICTIONS,
+        // Frames answered from the ResultCache instead of the model.
+        CACHE_HITS,
+        // Frames the ResultCache had no fresh result for.
+        CACHE_MISSES,
+        // Frames HandPresenceGate found no hand in; each one is a full inference avoided.
+        GATED_FRAMES
+    }
+
+    private static final double[] PERCENTILES = new double[]{50, 95, 99};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long startNanos, long endNanos) {
+        histograms[stage.ordinal()].recordSpan(startNanos, endNanos);
+    }
+
+    public void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    /**
+     * Share of cached frames among those that went through the ResultCache, or 0 if none did.
+     */
+    public double getCacheHitRate() {
+        long hits = getCount(Counter.CACHE_HITS);
+        long total = hits + getCount(Counter.CACHE_MISSES);
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * Short multi-line summary for the on-screen overlay: p50/p95/p99 in ms per stage, then the counters.
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder("stage  p50/p95/p99 ms");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            builder.append('\n').append(stage.name().toLowerCase(Locale.US)).append("  ");
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (i > 0) {
+                    builder.append('/');
+                }
+                builder.append(String.format(Locale.US, "%.1f", histogram.getPercentileNanos(PERCENTILES[i]) / 1e6));
+            }
+        }
+        for (Counter counter : Counter.values()) {
+            builder.append('\n').append(counter.name().toLowerCase(Locale.US)).append("  ").append(getCount(counter));
+        }
+        builder.append(String.format(Locale.US, "\ncache_hit_rate  %.2f", getCacheHitRate()));
+        return builder.toString();
+    }
+
+    /**
+     * CSV for offline analysis: one summary row per stage, the counters, then the non-empty histogram
+     * buckets of every stage as (stage, bucket lower bound in us, count).
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("stage,count,mean_us,p50_us,p95_us,p99_us,max_us\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            writer.write(String.format(Locale.US, "%s,%d,%d,%d,%d,%d,%d\n", stage.name(), histogram.getCount(),
+                    histogram.getMeanNanos() / 1000, histogram.getPercentileNanos(50) / 1000,
+                    histogram.getPercentileNanos(95) / 1000, histogram.getPercentileNanos(99) / 1000,
+                    histogram.getMaxNanos() / 1000));
+        }
+        writer.write("\ncounter,value\n");
+        for (Counter counter : Counter.values()) {
+            writer.write(counter.name() + "," + getCount(counter) + "\n");
+        }
+        writer.write("\nstage,bucket_us,count\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+                long count = histogram.getBucketCount(i);
+                if (count > 0) {
+                    writer.write(stage.name() + "," + LatencyHistogram.lowerBoundMicros(i) + "," + count + "\n");
+                }
+            }
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,47 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * A camera preview frame and the time it was received: NV21 {@link #data} from the legacy camera, or the
+ * {@link #planes} of a Camera2 image. Exactly one of the two is set.
+ */
+public class PreviewFrame {
+    public final byte[] data;
+    public final YuvPlanes planes;
+    public final int width;
+    public final int height;
+    public final long timestampNanos;
+    // How the frame must be turned to be upright, applied while preprocessing.
+    public final Orientation orientation;
+    // Crop chosen while preprocessing, read back when the result for this frame arrives.
+    public RoiTracker.Region region;
+    // HandPresenceGate found no hand in the crop; the input buffer is left unfilled.
+    public boolean noHand;
+    // HandPresenceGate's skin fraction of the crop, for RoiTracker.
+    public float skinFraction;
+    // FrameHash of the crop, set while preprocessing.
+    public long hash;
+    // The preprocessor found a cached result and left the input buffer unfilled.
+    public boolean inputSkipped;
+
+    public PreviewFrame(byte[] data, int width, int height, long timestampNanos) {
+        this(data, width, height, Orientation.NORMAL, timestampNanos);
+    }
+
+    public PreviewFrame(byte[] data, int width, int height, Orientation orientation, long timestampNanos) {
+        this(data, null, width, height, orientation, timestampNanos);
+    }
+
+    public PreviewFrame(YuvPlanes planes, Orientation orientation, long timestampNanos) {
+        this(null, planes, planes.width, planes.height, orientation, timestampNanos);
+    }
+
+    private PreviewFrame(byte[] data, YuvPlanes planes, int width, int height, Orientation orientation,
+                         long timestampNanos) {
+        this.data = data;
+        this.planes = planes;
+        this.width = width;
+        this.height = height;
+        this.orientation = orientation;
+        this.timestampNanos = timestampNanos;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mindspore.handpose.utils;
+
+import android.hardware.Camera;
+import android.util.Size;
+
+import java.util.List;
+
+/**
+ * Picks the camera preview resolution: the smallest one the model can use without upscaling.
+ * <p>
+ * Every preview byte is written by the camera, copied through the pipeline and read by the converter,
+ * so a 640x480 preview moves a third of the bytes of a 1280x720 default. RoiTracker crops squares of 0.6
+ * times the short side, which stay at least 224 pixels wide when the short side is at least
+ * {@link #MIN_SHORT_SIDE}.
+ */
+public final class PreviewSizes {
+    public static final int MIN_SHORT_SIDE = 384;
+
+    private PreviewSizes() {
+    }
+
+    public static Camera.Size choose(List<Camera.Size> supported, int minShortSide) {
+        int[][] sizes = new int[supported.size()][];
+        for (int i = 0; i < sizes.length; i++) {
+            Camera.Size size = supported.get(i);
+            sizes[i] = new int[]{size.width, size.height};
+        }
+        return supported.get(choose(sizes, minShortSide));
+    }
+
+    /**
+     * Same choice among the output sizes of a Camera2 stream.
+     */
+    public static Size choose(Size[] supported, int minShortSide) {
+        int[][] sizes = new int[supported.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = new int[]{supported[i].getWidth(), supported[i].getHeight()};
+        }
+        return supported[choose(sizes, minShortSide)];
+    }
+
+    /**
+     * Index of the {width, height} pair with the fewest pixels whose short side is at least
+     * {@code minShortSide}, or of the largest pair if none is big enough.
+     */
+    static int choose(int[][] sizes, int minShortSide) {
+        int best = -1;
+        int largest = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            long pixels = (long) sizes[i][0] * sizes[i][1];
+            if (pixels > (long) sizes[largest][0] * sizes[largest][1]) {
+                largest = i;
+            }
+            if (Math.min(sizes[i][0], sizes[i][1]) >= minShortSide
+                    && (best < 0 || pixels < (long) sizes[best][0] * sizes[best][1])) {
+                best = i;
+            }
+        }
+        return best >= 0 ? best : largest;
+    }
+}
@@ -0,0 +1,101 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fused "Resize(256) + CenterCrop(224) + Normalize + HWC2CHW" on ARGB pixels.
+ * <p>
+ * Only the destination pixels of the crop are computed, each one sampled bilinearly from the
+ * source, so no scaled or cropped intermediate image is ever allocated.
+ */
+public class ResizeCropKernel {
+
+    /**
+     * @param pixels source ARGB pixels, row-major, {@code srcWidth * srcHeight} entries.
+     * @param out    native-order buffer holding at least 3 * outWidth * outHeight floats, CHW layout.
+     */
+    public static void argbToByteBuffer(int[] pixels, int srcWidth, int srcHeight, ByteBuffer out,
+                                        int outWidth, int outHeight, float[] mean, float[] std) {
+        CropWindow window = CropWindow.centerCrop(srcWidth, srcHeight, outWidth, outHeight);
+        argbToByteBuffer(pixels, srcWidth, srcHeight, window, out, outWidth, outHeight, mean, std);
+    }
+
+    public static void argbToByteBuffer(int[] pixels, int srcWidth, int srcHeight, CropWindow window, ByteBuffer out,
+                                        int outWidth, int outHeight, float[] mean, float[] std) {
+        resizeCrop(pixels, srcWidth, srcHeight, window, out, outWidth, outHeight, mean, std, null);
+    }
+
+    /**
+     * Quantized variant: one byte per element, from {@code lut} built by {@link InputQuantization#lookupTable}.
+     */
+    public static void argbToQuantized(int[] pixels, int srcWidth, int srcHeight, CropWindow window, ByteBuffer out,
+                                       int outWidth, int outHeight, byte[] lut) {
+        resizeCrop(pixels, srcWidth, srcHeight, window, out, outWidth, outHeight, null, null, lut);
+    }
+
+    private static void resizeCrop(int[] pixels, int srcWidth, int srcHeight, CropWindow window, ByteBuffer out,
+                                   int outWidth, int outHeight, float[] mean, float[] std, byte[] lut) {
+        final int planeSize = outWidth * outHeight;
+        // One stored axis follows the output rows and the other its columns, see YuvConverter.
+        final Orientation orientation = window.orientation;
+        final boolean swap = orientation.swapsAxes();
+        final int rowSize = swap ? srcWidth : srcHeight;
+        final int columnSize = swap ? srcHeight : srcWidth;
+        final boolean flipRow = swap ? orientation.flipsX() : orientation.flipsY();
+        final boolean flipColumn = swap ? orientation.flipsY() : orientation.flipsX();
+        // Distance between neighbouring source pixels along each output axis.
+        final int rowStride = swap ? 1 : srcWidth;
+        final int columnStride = swap ? srcWidth : 1;
+
+        for (int dy = 0; dy < outHeight; dy++) {
+            float sr = clamp(window.originY + (dy + 0.5f) * window.stepY - 0.5f, rowSize - 1);
+            if (flipRow) {
+                sr = rowSize - 1 - sr;
+            }
+            int r0 = (int) sr;
+            int r1 = Math.min(r0 + 1, rowSize - 1);
+            float fy = sr - r0;
+            int row0 = r0 * rowStride;
+            int row1 = r1 * rowStride;
+
+            for (int dx = 0; dx < outWidth; dx++) {
+                float sc = clamp(window.originX + (dx + 0.5f) * window.stepX - 0.5f, columnSize - 1);
+                if (flipColumn) {
+                    sc = columnSize - 1 - sc;
+                }
+                int c0 = (int) sc;
+                int c1 = Math.min(c0 + 1, columnSize - 1);
+                float fx = sc - c0;
+                int column0 = c0 * columnStride;
+                int column1 = c1 * columnStride;
+
+                int p00 = pixels[row0 + column0];
+                int p01 = pixels[row0 + column1];
+                int p10 = pixels[row1 + column0];
+                int p11 = pixels[row1 + column1];
+
+                int index = dy * outWidth + dx;
+                // RGB planes: plane 0 is (value >> 16) & 0xFF.
+                for (int c = 0; c < 3; c++) {
+                    int shift = 16 - c * 8;
+                    float top = lerp(p00 >> shift & 0xFF, p01 >> shift & 0xFF, fx);
+                    float bottom = lerp(p10 >> shift & 0xFF, p11 >> shift & 0xFF, fx);
+                    float value = lerp(top, bottom, fy);
+                    if (lut == null) {
+                        out.putFloat((c * planeSize + index) << 2, (value - mean[c]) / std[c]);
+                    } else {
+                        out.put(c * planeSize + index, lut[(c << 8) + (int) (value + 0.5f)]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+
+    private static float clamp(float value, int max) {
+        return value < 0f ? 0f : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,126 @@
+package com.mindspore.handpose.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recent results keyed by {@link FrameHash}, so a static scene does not rerun the model on every frame.
+ * <p>
+ * A frame whose hash is within {@code maxDistance} bits of a cached entry reuses that entry's result while
+ * the entry is at most {@code maxAgeNanos} old. The age counts from the frame that was actually inferred,
+ * so even a perfectly still scene is re-inferred once per max age. When full, the least recently used entry
+ * is evicted. Methods are synchronized: the preprocess thread probes while the inference thread stores.
+ */
+public class ResultCache {
+    public static final int DEFAULT_CAPACITY = 8;
+    public static final int DEFAULT_MAX_DISTANCE = 4;
+    public static final long DEFAULT_MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final int maxDistance;
+    private final long maxAgeNanos;
+    private final long[] hashes;
+    private final long[] createdNanos;
+    private final long[] lastUsed;
+    private final GestureResult[] results;
+    private int size;
+    private long useCounter;
+
+    public ResultCache(int numClasses) {
+        this(numClasses, DEFAULT_CAPACITY, DEFAULT_MAX_DISTANCE, DEFAULT_MAX_AGE_NANOS);
+    }
+
+    public ResultCache(int numClasses, int capacity, int maxDistance, long maxAgeNanos) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.maxDistance = maxDistance;
+        this.maxAgeNanos = maxAgeNanos;
+        hashes = new long[capacity];
+        createdNanos = new long[capacity];
+        lastUsed = new long[capacity];
+        results = new GestureResult[capacity];
+        for (int i = 0; i < capacity; i++) {
+            results[i] = new GestureResult(numClasses);
+        }
+    }
+
+    /**
+     * Whether {@link #lookup} with the same arguments would hit, unless the entry is evicted in between.
+     */
+    public synchronized boolean contains(long hash, long nowNanos) {
+        return find(hash, nowNanos) >= 0;
+    }
+
+    /**
+     * Copy the cached result for a frame hashing to {@code hash} into {@code result}.
+     *
+     * @return false on a miss, leaving {@code result} untouched.
+     */
+    public synchronized boolean lookup(long hash, long nowNanos, GestureResult result) {
+        int index = find(hash, nowNanos);
+        if (index < 0) {
+            return false;
+        }
+        result.copyFrom(results[index]);
+        return true;
+    }
+
+    /**
+     * Remember {@code result}, inferred from a frame taken at {@code nowNanos}. Failed results are ignored.
+     * Replaces an entry with a similar hash, else an empty slot, else the least recently used entry.
+     */
+    public synchronized void put(long hash, long nowNanos, GestureResult result) {
+        if (!result.isOk()) {
+            return;
+        }
+        int index = -1;
+        for (int i = 0; i < size; i++) {
+            if (FrameHash.distance(hash, hashes[i]) <= maxDistance) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0 && size < hashes.length) {
+            index = size++;
+        }
+        if (index < 0) {
+            index = 0;
+            for (int i = 1; i < size; i++) {
+                if (lastUsed[i] < lastUsed[index]) {
+                    index = i;
+                }
+            }
+        }
+        hashes[index] = hash;
+        createdNanos[index] = nowNanos;
+        lastUsed[index] = ++useCounter;
+        results[index].copyFrom(result);
+    }
+
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Closest fresh entry within maxDistance, marked as used; -1 if none.
+    private int find(long hash, long nowNanos) {
+        int best = -1;
+        int bestDistance = maxDistance + 1;
+        for (int i = 0; i < size; i++) {
+            if (nowNanos - createdNanos[i] > maxAgeNanos) {
+                continue;
+            }
+            int distance = FrameHash.distance(hash, hashes[i]);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        if (best >= 0) {
+            lastUsed[best] = ++useCounter;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,169 @@
+package com.mindspore.handpose.utils;
+
+/**
+ * Chooses the part of the camera frame fed to the model.
+ * <p>
+ * The classifier does not localize the hand, so the tracker searches: it cycles through a fixed set of
+ * candidate regions, one per frame, starting with the usual full-frame center crop. As soon as a region
+ * gives a confident result and looks like a hand it is locked and every following frame is cropped from
+ * it, which gives the hand more of the 224x224 input than the full-frame crop does. After a few frames in
+ * a row that are unconfident or show too little skin the tracker falls back to searching, full frame
+ * first.
+ * <p>
+ * Confidence alone is no hand signal: with two classes the top probability is above 0.9 on most crops,
+ * hand or not. The skin fraction of {@link HandPresenceGate} for the region is what tells a hand apart.
+ * <p>
+ * {@link #nextRegion} is called when preprocessing and {@link #onResult} when the matching result comes
+ * back, possibly from another thread.
+ */
+public class RoiTracker {
+    public static final float DEFAULT_LOCK_CONFIDENCE = 0.9f;
+    public static final float DEFAULT_LOST_CONFIDENCE = 0.7f;
+    public static final int DEFAULT_MAX_MISSES = 3;
+    // A locked region should be mostly hand, so locking asks for more skin than the gate's full-frame test.
+    public static final float DEFAULT_LOCK_SKIN_FRACTION = 0.25f;
+    public static final float DEFAULT_LOST_SKIN_FRACTION = HandPresenceGate.DEFAULT_MIN_SKIN_FRACTION;
+
+    // Square regions as (center x, center y) in fractions of the frame and side in fractions of its short side.
+    // The first one is the Resize(256) + CenterCrop(224) window of the whole frame.
+    private static final float[][] CANDIDATES = new float[][]{
+            {0.5f, 0.5f, 224f / CropWindow.RESIZE_SHORT_SIDE},
+            {0.5f, 0.5f, 0.6f},
+            {0.3f, 0.3f, 0.6f},
+            {0.7f, 0.3f, 0.6f},
+            {0.3f, 0.7f, 0.6f},
+            {0.7f, 0.7f, 0.6f},
+    };
+
+    /**
+     * A candidate crop, with its window precomputed for the current frame size.
+     */
+    public static class Region {
+        public final int index;
+        public final CropWindow window;
+
+        Region(int index, CropWindow window) {
+            this.index = index;
+            this.window = window;
+        }
+
+        public boolean isFullFrame() {
+            return index == 0;
+        }
+    }
+
+    private final int outWidth;
+    private final int outHeight;
+    private final float lockConfidence;
+    private final float lostConfidence;
+    private final float lockSkinFraction;
+    private final float lostSkinFraction;
+    private final int maxMisses;
+
+    private Region[] regions;
+    private int frameWidth;
+    private int frameHeight;
+    private Orientation frameOrientation;
+    private Region locked;
+    private int nextCandidate;
+    private int misses;
+
+    public RoiTracker(int outWidth, int outHeight) {
+        this(outWidth, outHeight, DEFAULT_LOCK_CONFIDENCE, DEFAULT_LOST_CONFIDENCE, DEFAULT_LOCK_SKIN_FRACTION,
+                DEFAULT_LOST_SKIN_FRACTION, DEFAULT_MAX_MISSES);
+    }
+
+    public RoiTracker(int outWidth, int outHeight, float lockConfidence, float lostConfidence,
+                      float lockSkinFraction, float lostSkinFraction, int maxMisses) {
+        this.outWidth = outWidth;
+        this.outHeight = outHeight;
+        this.lockConfidence = lockConfidence;
+        this.lostConfidence = lostConfidence;
+        this.lockSkinFraction = lockSkinFraction;
+        this.lostSkinFraction = lostSkinFraction;
+        this.maxMisses = maxMisses;
+    }
+
+    /**
+     * Region to crop from the next frame.
+     */
+    public Region nextRegion(int width, int height) {
+        return nextRegion(width, height, Orientation.NORMAL);
+    }
+
+    /**
+     * Region to crop from the next frame, stored with {@code orientation}; regions are laid out on the
+     * upright frame, so "top left" is where the user sees it.
+     */
+    public synchronized Region nextRegion(int width, int height, Orientation orientation) {
+        if (regions == null || width != frameWidth || height != frameHeight || orientation != frameOrientation) {
+            buildRegions(width, height, orientation);
+        }
+        if (locked != null) {
+            return locked;
+        }
+        Region region = regions[nextCandidate];
+        nextCandidate = (nextCandidate + 1) % regions.length;
+        return region;
+    }
+
+    /**
+     * Report the confidence (top class probability) obtained on {@code region}, and the share of skin in it
+     * as measured by {@link HandPresenceGate#getLastSkinFraction()}.
+     */
+    public synchronized void onResult(Region region, float confidence, float skinFraction) {
+        if (regions == null || region.index >= regions.length || regions[region.index] != region) {
+            // Stale region from before a frame size or orientation change.
+            return;
+        }
+        if (locked == null) {
+            if (confidence >= lockConfidence && skinFraction >= lockSkinFraction) {
+                locked = region;
+                misses = 0;
+            }
+            return;
+        }
+        if (region != locked) {
+            return;
+        }
+        if (confidence >= lostConfidence && skinFraction >= lostSkinFraction) {
+            misses = 0;
+        } else if (++misses >= maxMisses) {
+            locked = null;
+            nextCandidate = 0;
+        }
+    }
+
+    public synchronized boolean isLocked() {
+        return locked != null;
+    }
+
+    public synchronized void reset() {
+        locked = null;
+        nextCandidate = 0;
+        misses = 0;
+    }
+
+    private void buildRegions(int width, int height, Orientation orientation) {
+        frameWidth = width;
+        frameHeight = height;
+        frameOrientation = orientation;
+        int uprightWidth = orientation.uprightWidth(width, height);
+        int uprightHeight = orientation.uprightHeight(width, height);
+        regions = new Region[CANDIDATES.length];
+        regions[0] = new Region(0, CropWindow.centerCrop(width, height, orientation, outWidth, outHeight));
+        int shortSide = Math.min(width, height);
+        for (int i = 1; i < CANDIDATES.length; i++) {
+            float side = CANDIDATES[i][2] * shortSide;
+            float left = clamp(CANDIDATES[i][0] * uprightWidth - side / 2, uprightWidth - side);
+            float top = clamp(CANDIDATES[i][1] * uprightHeight - side / 2, uprightHeight - side);
+            regions[i] = new Region(i, CropWindow.fromRect(left, top, side, side, outWidth, outHeight)
+                    .withOrientation(orientation));
+        }
+        reset();
+    }
+
+    private static float clamp(float value, float max) {
+        return value < 0f ? 0f : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mindspore.handpose.utils;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Free items bucketed by their size in bytes, within a byte budget; the bookkeeping behind {@link BitmapPool}.
+ * <p>
+ * {@link #take} returns an item of the smallest size that fits, but never one more than
+ * {@link #MAX_SIZE_MULTIPLE} times larger than asked, so a small request does not tie up a large buffer.
+ * Items pushed out by the budget or by {@link #trimTo} go to the {@link Evictor}, largest first. Thread-safe.
+ */
+public class SizeBucketPool<T> {
+    public static final int MAX_SIZE_MULTIPLE = 4;
+
+    public interface Evictor<T> {
+        /**
+         * Called with items leaving the pool for good, under the pool's lock.
+         */
+        void evict(T item);
+    }
+
+    private final TreeMap<Long, ArrayDeque<T>> buckets = new TreeMap<>();
+    private final Evictor<T> evictor;
+    private final long maxBytes;
+    private long currentBytes;
+    private long hits;
+    private long misses;
+
+    public SizeBucketPool(long maxBytes, Evictor<T> evictor) {
+        this.maxBytes = maxBytes;
+        this.evictor = evictor;
+    }
+
+    /**
+     * Remove a free item of at least {@code minBytes}, or return null if none fits.
+     */
+    public synchronized T take(long minBytes) {
+        Map.Entry<Long, ArrayDeque<T>> entry = buckets.ceilingEntry(minBytes);
+        if (entry == null || entry.getKey() > minBytes * MAX_SIZE_MULTIPLE) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return remove(entry);
+    }
+
+    /**
+     * Keep {@code item} of {@code bytes} for reuse, evicting the largest items if the budget is exceeded.
+     *
+     * @return false if the item alone is over the budget; it has been evicted.
+     */
+    public synchronized boolean put(T item, long bytes) {
+        if (bytes > maxBytes) {
+            evictor.evict(item);
+            return false;
+        }
+        ArrayDeque<T> bucket = buckets.get(bytes);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(bytes, bucket);
+        }
+        bucket.push(item);
+        currentBytes += bytes;
+        trimTo(maxBytes);
+        return true;
+    }
+
+    /**
+     * Evict the largest items until at most {@code bytes} are pooled.
+     */
+    public synchronized void trimTo(long bytes) {
+        while (currentBytes > bytes) {
+            evictor.evict(remove(buckets.lastEntry()));
+        }
+    }
+
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private T remove(Map.Entry<Long, ArrayDeque<T>> entry) {
+        ArrayDeque<T> bucket = entry.getValue();
+        T item = bucket.pop();
+        if (bucket.isEmpty()) {
+            buckets.remove(entry.getKey());
+        }
+        currentBytes -= entry.getKey();
+        return item;
+    }
+}
@@ -0,0 +1,120 @@
+package com.mindspore.handpose.utils;
+
+import java.util.Locale;
+
+/**
+ * Time spent in each stage of bringing the model up, filled by {@link ModelLoader}.
+ */
+public class StartupReport {
+    private long mapNanos;
+    private long buildNanos;
+    private long tuneNanos;
+    private InferenceConfig config;
+    private long[] warmUpNanos = new long[0];
+    private boolean ready;
+
+    void setMapNanos(long mapNanos) {
+        this.mapNanos = mapNanos;
+    }
+
+    void setBuildNanos(long buildNanos) {
+        this.buildNanos = buildNanos;
+    }
+
+    void setTuneNanos(long tuneNanos) {
+        this.tuneNanos = tuneNanos;
+    }
+
+    void setConfig(InferenceConfig config) {
+        this.config = config;
+    }
+
+    void setWarmUpNanos(long[] warmUpNanos) {
+        this.warmUpNanos = warmUpNanos;
+    }
+
+    void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    /**
+     * Mapping the model file from assets.
+     */
+    public long getMapNanos() {
+        return mapNanos;
+    }
+
+    /**
+     * Model.build, including context creation and input buffer allocation.
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Choosing the context settings; only significant on the launch that benchmarks them, see ContextTuner.
+     */
+    public long getTuneNanos() {
+        return tuneNanos;
+    }
+
+    /**
+     * Context settings the model was built with.
+     */
+    public InferenceConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * The first predict(), which pays for lazy kernel selection and allocation. -1 without warm-up.
+     */
+    public long getFirstPredictNanos() {
+        return warmUpNanos.length > 0 ? warmUpNanos[0] : -1;
+    }
+
+    /**
+     * Mean of the warm-up predictions after the first one. -1 with fewer than two warm-up runs.
+     */
+    public long getSteadyPredictNanos() {
+        if (warmUpNanos.length < 2) {
+            return -1;
+        }
+        long sum = 0;
+        for (int i = 1; i < warmUpNanos.length; i++) {
+            sum += warmUpNanos[i];
+        }
+        return sum / (warmUpNanos.length - 1);
+    }
+
+    public int getWarmUpRuns() {
+        return warmUpNanos.length;
+    }
+
+    /**
+     * Whether the model built and can run predictions.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * e.g. "map 1.2 ms, build 85.0 ms, first predict 41.3 ms, steady predict 9.8 ms (3 warm-up runs)".
+     */
+    @Override
+    public String toString() {
+        if (!ready) {
+            return String.format(Locale.US, "not ready (map %s, build %s)", millis(mapNanos), millis(buildNanos));
+        }
+        String text = String.format(Locale.US, "map %s, build %s, first predict %s, steady predict %s (%d warm-up runs)",
+                millis(mapNanos), millis(buildNanos), millis(getFirstPredictNanos()),
+                millis(getSteadyPredictNanos()), warmUpNanos.length);
+        if (config != null) {
+            text += String.format(Locale.US, ", tune %s, %s", millis(tuneNanos), config);
+        }
+        return text;
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "n/a" : String.format(Locale.US, "%.1f ms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Preallocated native-order direct buffers for model input tensors.
+ * <p>
+ * Buffers are allocated up front and recycled through {@link #acquire()} / {@link #release(ByteBuffer)},
+ * so steady-state inference does not touch direct memory allocation.
+ */
+public class TensorBufferPool {
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    private int allocated;
+
+    public TensorBufferPool(int bufferSize, int count) {
+        this.bufferSize = bufferSize;
+        this.freeBuffers = new ArrayBlockingQueue<>(count);
+        for (int i = 0; i < count; i++) {
+            freeBuffers.offer(allocate());
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Take a free buffer, rewound and ready to be filled. Only allocates when every buffer is in use.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            buffer = allocate();
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Hand a buffer back. Buffers beyond the pool capacity are dropped for the GC.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == bufferSize) {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Number of buffers allocated over the pool lifetime, including the preallocated ones.
+     */
+    public synchronized int getAllocatedCount() {
+        return allocated;
+    }
+
+    private synchronized ByteBuffer allocate() {
+        allocated++;
+        return ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,174 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts camera preview frames straight into the model input tensor,
+ * without going through YuvImage/JPEG/Bitmap: NV21 arrays of the legacy camera, or the
+ * {@link YuvPlanes} of a Camera2 image, read in place.
+ */
+public class YuvConverter {
+
+    /**
+     * Resize (short side 256), center-crop and normalize an NV21 frame into {@code out}.
+     *
+     * @param nv21   preview frame, Y plane followed by interleaved V/U at half resolution.
+     * @param out    native-order buffer holding at least 3 * outWidth * outHeight floats, CHW layout.
+     */
+    public static void nv21ToByteBuffer(byte[] nv21, int width, int height, ByteBuffer out,
+                                        int outWidth, int outHeight, float[] mean, float[] std) {
+        CropWindow window = CropWindow.centerCrop(width, height, outWidth, outHeight);
+        nv21ToByteBuffer(nv21, width, height, window, out, outWidth, outHeight, mean, std);
+    }
+
+    public static void nv21ToByteBuffer(byte[] nv21, int width, int height, CropWindow window, ByteBuffer out,
+                                        int outWidth, int outHeight, float[] mean, float[] std) {
+        convert(nv21, null, width, height, window, out, outWidth, outHeight, mean, std, null);
+    }
+
+    /**
+     * Quantized variant: one byte per element, from {@code lut} built by {@link InputQuantization#lookupTable}.
+     */
+    public static void nv21ToQuantized(byte[] nv21, int width, int height, CropWindow window, ByteBuffer out,
+                                       int outWidth, int outHeight, byte[] lut) {
+        convert(nv21, null, width, height, window, out, outWidth, outHeight, null, null, lut);
+    }
+
+    /**
+     * Same as {@link #nv21ToByteBuffer(byte[], int, int, CropWindow, ByteBuffer, int, int, float[], float[])},
+     * reading the planes of a YUV_420_888 image in place.
+     */
+    public static void planesToByteBuffer(YuvPlanes planes, CropWindow window, ByteBuffer out,
+                                          int outWidth, int outHeight, float[] mean, float[] std) {
+        convert(null, planes, planes.width, planes.height, window, out, outWidth, outHeight, mean, std, null);
+    }
+
+    public static void planesToQuantized(YuvPlanes planes, CropWindow window, ByteBuffer out,
+                                         int outWidth, int outHeight, byte[] lut) {
+        convert(null, planes, planes.width, planes.height, window, out, outWidth, outHeight, null, null, lut);
+    }
+
+    /**
+     * Reads {@code nv21} if set, {@code planes} otherwise; the choice is loop-invariant.
+     */
+    private static void convert(byte[] nv21, YuvPlanes planes, int width, int height, CropWindow window,
+                                ByteBuffer out, int outWidth, int outHeight, float[] mean, float[] std, byte[] lut) {
+        final int uvOffset = width * height;
+        final int planeSize = outWidth * outHeight;
+        // Each stored axis depends on only one output axis, so one is resolved per row and the other per
+        // column, whatever the orientation.
+        final Orientation orientation = window.orientation;
+        final boolean swap = orientation.swapsAxes();
+        final int rowSize = swap ? width : height;
+        final int columnSize = swap ? height : width;
+        final boolean flipRow = swap ? orientation.flipsX() : orientation.flipsY();
+        final boolean flipColumn = swap ? orientation.flipsY() : orientation.flipsX();
+        final int rowChroma = rowSize / 2;
+        final int columnChroma = columnSize / 2;
+
+        for (int dy = 0; dy < outHeight; dy++) {
+            float sr = clamp(window.originY + (dy + 0.5f) * window.stepY - 0.5f, rowSize - 1);
+            if (flipRow) {
+                sr = rowSize - 1 - sr;
+            }
+            int r0 = (int) sr;
+            int r1 = Math.min(r0 + 1, rowSize - 1);
+            float fr = sr - r0;
+
+            // Chroma sample i sits between luma samples 2i and 2i + 1.
+            float cr = clamp((sr - 0.5f) * 0.5f, rowChroma - 1);
+            int cr0 = (int) cr;
+            int cr1 = Math.min(cr0 + 1, rowChroma - 1);
+            float fcr = cr - cr0;
+
+            for (int dx = 0; dx < outWidth; dx++) {
+                float sc = clamp(window.originX + (dx + 0.5f) * window.stepX - 0.5f, columnSize - 1);
+                if (flipColumn) {
+                    sc = columnSize - 1 - sc;
+                }
+                int c0 = (int) sc;
+                int c1 = Math.min(c0 + 1, columnSize - 1);
+                float fc = sc - c0;
+
+                float cc = clamp((sc - 0.5f) * 0.5f, columnChroma - 1);
+                int cc0 = (int) cc;
+                int cc1 = Math.min(cc0 + 1, columnChroma - 1);
+                float fcc = cc - cc0;
+
+                float lum;
+                float v;
+                float u;
+                if (planes != null) {
+                    int yRowStride = planes.yRowStride;
+                    int uvRowStride = planes.uvRowStride;
+                    int uvPixelStride = planes.uvPixelStride;
+                    if (swap) {
+                        lum = bilinear(planes.y, yRowStride, 1, r0, r1, c0, c1, fr, fc);
+                        v = bilinear(planes.v, uvRowStride, uvPixelStride, cr0, cr1, cc0, cc1, fcr, fcc) - 128f;
+                        u = bilinear(planes.u, uvRowStride, uvPixelStride, cr0, cr1, cc0, cc1, fcr, fcc) - 128f;
+                    } else {
+                        lum = bilinear(planes.y, yRowStride, 1, c0, c1, r0, r1, fc, fr);
+                        v = bilinear(planes.v, uvRowStride, uvPixelStride, cc0, cc1, cr0, cr1, fcc, fcr) - 128f;
+                        u = bilinear(planes.u, uvRowStride, uvPixelStride, cc0, cc1, cr0, cr1, fcc, fcr) - 128f;
+                    }
+                } else if (swap) {
+                    lum = bilinear(nv21, 0, width, 1, r0, r1, c0, c1, fr, fc);
+                    v = bilinear(nv21, uvOffset, width, 2, cr0, cr1, cc0, cc1, fcr, fcc) - 128f;
+                    u = bilinear(nv21, uvOffset + 1, width, 2, cr0, cr1, cc0, cc1, fcr, fcc) - 128f;
+                } else {
+                    lum = bilinear(nv21, 0, width, 1, c0, c1, r0, r1, fc, fr);
+                    v = bilinear(nv21, uvOffset, width, 2, cc0, cc1, cr0, cr1, fcc, fcr) - 128f;
+                    u = bilinear(nv21, uvOffset + 1, width, 2, cc0, cc1, cr0, cr1, fcc, fcr) - 128f;
+                }
+
+                // Full-range BT.601, the same conversion the old YuvImage -> JPEG -> Bitmap path applied.
+                float r = clampPixel(lum + 1.402f * v);
+                float g = clampPixel(lum - 0.344136f * u - 0.714136f * v);
+                float b = clampPixel(lum + 1.772f * u);
+
+                // RGB planes, same as ChwNormalizer, so both paths hand the model identical tensors.
+                int index = dy * outWidth + dx;
+                if (lut == null) {
+                    out.putFloat(index << 2, (r - mean[0]) / std[0]);
+                    out.putFloat((planeSize + index) << 2, (g - mean[1]) / std[1]);
+                    out.putFloat((2 * planeSize + index) << 2, (b - mean[2]) / std[2]);
+                } else {
+                    out.put(index, lut[(int) (r + 0.5f)]);
+                    out.put(planeSize + index, lut[256 + (int) (g + 0.5f)]);
+                    out.put(2 * planeSize + index, lut[512 + (int) (b + 0.5f)]);
+                }
+            }
+        }
+    }
+
+    private static float bilinear(byte[] data, int offset, int rowStride, int pixelStride,
+                                  int x0, int x1, int y0, int y1, float fx, float fy) {
+        int row0 = offset + y0 * rowStride;
+        int row1 = offset + y1 * rowStride;
+        float top = lerp(data[row0 + x0 * pixelStride] & 0xFF, data[row0 + x1 * pixelStride] & 0xFF, fx);
+        float bottom = lerp(data[row1 + x0 * pixelStride] & 0xFF, data[row1 + x1 * pixelStride] & 0xFF, fx);
+        return lerp(top, bottom, fy);
+    }
+
+    private static float bilinear(ByteBuffer plane, int rowStride, int pixelStride,
+                                  int x0, int x1, int y0, int y1, float fx, float fy) {
+        int row0 = y0 * rowStride;
+        int row1 = y1 * rowStride;
+        float top = lerp(plane.get(row0 + x0 * pixelStride) & 0xFF, plane.get(row0 + x1 * pixelStride) & 0xFF, fx);
+        float bottom = lerp(plane.get(row1 + x0 * pixelStride) & 0xFF, plane.get(row1 + x1 * pixelStride) & 0xFF,
+                fx);
+        return lerp(top, bottom, fy);
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+
+    private static float clamp(float value, int max) {
+        return value < 0f ? 0f : (value > max ? max : value);
+    }
+
+    private static float clampPixel(float value) {
+        return value < 0f ? 0f : (value > 255f ? 255f : value);
+    }
+}
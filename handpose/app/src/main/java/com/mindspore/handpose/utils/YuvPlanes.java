@@ -0,0 +1,56 @@
+package com.mindspore.handpose.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A YUV 4:2:0 frame as three plane buffers with their strides, the layout of a Camera2 YUV_420_888 image.
+ * <p>
+ * The preprocessing kernels read the planes in place with absolute gets, so a camera image is never copied
+ * into a {@code byte[]}. The Y plane has a pixel stride of 1; U and V share a row and pixel stride, 1 for
+ * planar (I420) and 2 for semi-planar devices, whose U and V buffers are then views of the same memory.
+ * Rows may be padded beyond the width.
+ */
+public final class YuvPlanes {
+    public final int width;
+    public final int height;
+    public final ByteBuffer y;
+    public final ByteBuffer u;
+    public final ByteBuffer v;
+    public final int yRowStride;
+    public final int uvRowStride;
+    public final int uvPixelStride;
+
+    public YuvPlanes(int width, int height, ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v,
+                     int uvRowStride, int uvPixelStride) {
+        this.width = width;
+        this.height = height;
+        this.y = y;
+        this.u = u;
+        this.v = v;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+    }
+
+    /**
+     * Copy the frame into {@code nv21} as NV21, Y rows followed by interleaved V/U rows, for
+     * {@link FrameRecorder}.
+     */
+    public void copyToNv21(byte[] nv21) {
+        for (int row = 0; row < height; row++) {
+            int from = row * yRowStride;
+            for (int x = 0; x < width; x++) {
+                nv21[row * width + x] = y.get(from + x);
+            }
+        }
+        int uvOffset = width * height;
+        for (int row = 0; row < height / 2; row++) {
+            int from = row * uvRowStride;
+            int to = uvOffset + row * width;
+            for (int x = 0; x < width / 2; x++) {
+                nv21[to + 2 * x] = v.get(from + x * uvPixelStride);
+                nv21[to + 2 * x + 1] = u.get(from + x * uvPixelStride);
+            }
+        }
+    }
+}
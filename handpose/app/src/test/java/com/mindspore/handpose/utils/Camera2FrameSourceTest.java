@@ -0,0 +1,20 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Camera2FrameSourceTest {
+    private static final int[][] RANGES = new int[][]{{15, 15}, {7, 30}, {30, 30}, {15, 60}, {8, 24}};
+
+    @Test
+    public void chooseFpsRange_prefersSteadyRangeReachingTarget() {
+        assertEquals(2, Camera2FrameSource.chooseFpsRange(RANGES, 30));
+        assertEquals(4, Camera2FrameSource.chooseFpsRange(RANGES, 20));
+    }
+
+    @Test
+    public void chooseFpsRange_fallsBackToFastest() {
+        assertEquals(3, Camera2FrameSource.chooseFpsRange(RANGES, 120));
+    }
+}
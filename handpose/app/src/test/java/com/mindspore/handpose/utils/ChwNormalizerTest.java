@@ -0,0 +1,89 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ChwNormalizerTest {
+    private static final float[] MEAN = new float[]{0.485F * 255, 0.456F * 255, 0.406F * 255};
+    private static final float[] STD = new float[]{0.229F * 255, 0.224F * 255, 0.225F * 255};
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void planesAreRgb() {
+        int[] pixels = new int[]{0xFFFF0000, 0xFF00FF00, 0xFF0000FF};
+        ByteBuffer out = newBuffer(3, 1);
+        ChwNormalizer.argbToByteBuffer(pixels, 3, 1, out, MEAN, STD);
+
+        // Red pixel: high in the R plane (0), low in G and B.
+        assertEquals((255 - MEAN[0]) / STD[0], out.getFloat(0), 1e-5f);
+        assertEquals((0 - MEAN[1]) / STD[1], out.getFloat(3 * 4), 1e-5f);
+        assertEquals((0 - MEAN[2]) / STD[2], out.getFloat(6 * 4), 1e-5f);
+        // Blue pixel: high in the B plane (2).
+        assertEquals((255 - MEAN[2]) / STD[2], out.getFloat(8 * 4), 1e-5f);
+        assertEquals(0, out.position());
+    }
+
+    @Test
+    public void matchesReference() {
+        assertMatchesReference(224, 224, null, 1);
+    }
+
+    @Test
+    public void parallel_matchesReference() {
+        assertMatchesReference(224, 224, POOL, 2);
+        // Odd height, not a multiple of the split.
+        assertMatchesReference(97, 131, POOL, 3);
+    }
+
+    private static void assertMatchesReference(int width, int height, ForkJoinPool pool, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        ByteBuffer actual = newBuffer(width, height);
+        if (pool == null) {
+            ChwNormalizer.argbToByteBuffer(pixels, width, height, actual, MEAN, STD);
+        } else {
+            ChwNormalizer.argbToByteBuffer(pixels, width, height, actual, MEAN, STD, pool);
+        }
+
+        float[] expected = reference(pixels, width, height);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("element " + i, expected[i], actual.getFloat(i * 4), 1e-5f);
+        }
+    }
+
+    /**
+     * The original three-pass loop of bitmapToByteBuffer, with explicit RGB channels.
+     */
+    private static float[] reference(int[] pixels, int width, int height) {
+        float[] out = new float[3 * width * height];
+        int index = 0;
+        for (int c = 0; c < 3; c++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int value = pixels[y * width + x];
+                    out[index++] = ((float) (value >> (16 - c * 8) & 255) - MEAN[c]) / STD[c];
+                }
+            }
+        }
+        return out;
+    }
+
+    private static ByteBuffer newBuffer(int width, int height) {
+        return ByteBuffer.allocateDirect(3 * width * height * 4).order(ByteOrder.nativeOrder());
+    }
+}
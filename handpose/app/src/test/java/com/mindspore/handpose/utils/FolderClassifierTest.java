@@ -0,0 +1,175 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FolderClassifierTest {
+    private static final String[] LABELS = new String[]{"ok", "thumbup"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // "Images" are text files holding the index of the class to predict; "bad" does not decode.
+    private static Integer decode(File file) throws IOException {
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+        return text.equals("bad") ? null : Integer.valueOf(text);
+    }
+
+    private static void classify(Integer classIndex, GestureResult result) {
+        float[] logits = new float[LABELS.length];
+        logits[classIndex] = 10f;
+        result.setLogits(logits, 0);
+        result.setInferenceTime(0, 2_000_000);
+    }
+
+    private File image(String path, String content) throws IOException {
+        File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    public void listImages_recursesAndFiltersByExtension() throws IOException {
+        image("ok/b.jpg", "0");
+        image("ok/a.JPG", "0");
+        image("thumbup/c.png", "1");
+        image("notes.txt", "0");
+
+        List<File> images = FolderClassifier.listImages(folder.getRoot());
+        assertEquals(3, images.size());
+        assertEquals("a.JPG", images.get(0).getName());
+        assertEquals("c.png", images.get(2).getName());
+    }
+
+    @Test
+    public void run_writesOneRowPerImageInOrder() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            image(String.format("img%02d.jpg", i), String.valueOf(i % 2));
+        }
+        image("img20.jpg", "bad");
+        InferenceService service = new InferenceService(Runnable::run);
+        FolderClassifier<Integer> classifier = new FolderClassifier<>(FolderClassifierTest::decode,
+                FolderClassifierTest::classify, LABELS, service, 2);
+
+        StringWriter csv = new StringWriter();
+        FolderClassifier.Summary summary = classifier.run(folder.getRoot(), csv);
+        service.shutdown();
+
+        assertTrue(summary.isComplete());
+        assertEquals(21, summary.getImages());
+        assertEquals(1, summary.getFailed());
+        String[] lines = csv.toString().split("\n");
+        assertEquals(FolderClassifier.CSV_HEADER.trim(), lines[0]);
+        assertEquals(22, lines.length);
+        assertEquals("img00.jpg,ok,1.0000,2.00,OK", lines[1]);
+        assertEquals("img01.jpg,thumbup,1.0000,2.00,OK", lines[2]);
+        assertEquals("img20.jpg,,,," + FolderClassifier.DECODE_FAILED, lines[21]);
+    }
+
+    @Test
+    public void run_withModelPoolKeepsInputOrder() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            image(String.format("img%02d.jpg", i), String.valueOf(i % 2));
+        }
+        image("img05b.jpg", "bad");
+        List<GestureClassifier> models = new ArrayList<>();
+        // A slow and a fast model, so classifications finish out of order.
+        for (long delay : new long[]{3_000_000, 0}) {
+            models.add(new GestureClassifier(new FakeInferenceEngine(new int[]{1, 3, 32, 48},
+                    InferenceEngine.InputType.FLOAT32, new float[LABELS.length], delay), LABELS.length, null));
+        }
+        ModelPool<GestureClassifier> pool = new ModelPool<>(models, GestureClassifier::free);
+        FolderClassifier<Integer> classifier = new FolderClassifier<>(FolderClassifierTest::decode, pool,
+                (GestureClassifier model, Integer classIndex, GestureResult result) -> {
+                    ByteBuffer input = model.getInputBuffers().acquire();
+                    model.execute(input, result);
+                    model.getInputBuffers().release(input);
+                    classify(classIndex, result);
+                }, LABELS, 4);
+
+        StringWriter csv = new StringWriter();
+        FolderClassifier.Summary summary = classifier.run(folder.getRoot(), csv);
+        assertTrue(pool.free(1000));
+
+        assertTrue(summary.isComplete());
+        assertEquals(13, summary.getImages());
+        assertEquals(1, summary.getFailed());
+        String[] lines = csv.toString().split("\n");
+        assertEquals(14, lines.length);
+        assertEquals("img00.jpg,ok,1.0000,2.00,OK", lines[1]);
+        assertEquals("img05.jpg,thumbup,1.0000,2.00,OK", lines[6]);
+        assertEquals("img05b.jpg,,,," + FolderClassifier.DECODE_FAILED, lines[7]);
+        assertEquals("img11.jpg,thumbup,1.0000,2.00,OK", lines[13]);
+    }
+
+    @Test
+    public void run_reportsPeakMemory() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            image("img" + i + ".jpg", "0");
+        }
+        InferenceService service = new InferenceService(Runnable::run);
+        FolderClassifier<Integer> classifier = new FolderClassifier<>(FolderClassifierTest::decode,
+                FolderClassifierTest::classify, LABELS, service, 2);
+        // Sampled once before the run and after each of the four decodes.
+        long[] readings = new long[]{100, 300, 700, 200, 400};
+        AtomicInteger sample = new AtomicInteger();
+        classifier.setMemoryProbe(() -> readings[sample.getAndIncrement()]);
+
+        FolderClassifier.Summary summary = classifier.run(folder.getRoot(), new StringWriter());
+        service.shutdown();
+
+        assertEquals(5, sample.get());
+        assertEquals(700, summary.getPeakMemoryBytes());
+        assertTrue(summary.toString().contains("peak memory"));
+    }
+
+    @Test
+    public void run_stopsWhenInferenceIsRejected() throws Exception {
+        image("a.jpg", "0");
+        InferenceService service = new InferenceService(Runnable::run);
+        service.shutdown();
+        FolderClassifier<Integer> classifier = new FolderClassifier<>(FolderClassifierTest::decode,
+                FolderClassifierTest::classify, LABELS, service, 2);
+        try {
+            classifier.run(folder.getRoot(), new StringWriter());
+            fail("expected the shut down service to reject the run");
+        } catch (RejectedExecutionException expected) {
+            // The decode thread was joined before the exception.
+        }
+    }
+
+    @Test
+    public void sampleSize_keepsShortSideAtLeastTarget() {
+        assertEquals(1, BitmapUtils.sampleSizeForShortSide(640, 480, 256));
+        assertEquals(8, BitmapUtils.sampleSizeForShortSide(4032, 3024, 256));
+        assertEquals(4, BitmapUtils.sampleSizeForShortSide(1024, 1920, 256));
+        assertEquals(2, BitmapUtils.sampleSizeForShortSide(1000, 1920, 256));
+        assertEquals(1, BitmapUtils.sampleSizeForShortSide(100, 100, 256));
+    }
+
+    @Test
+    public void csvField_quotesSeparators() {
+        assertEquals("a.jpg", FolderClassifier.csvField("a.jpg"));
+        assertEquals("\"a,b.jpg\"", FolderClassifier.csvField("a,b.jpg"));
+        assertEquals("\"say \"\"hi\"\"\"", FolderClassifier.csvField("say \"hi\""));
+    }
+}
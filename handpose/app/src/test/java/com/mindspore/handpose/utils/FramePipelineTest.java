@@ -0,0 +1,165 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FramePipelineTest {
+
+    @Test
+    public void everySubmittedFrameIsReleasedOnce() throws Exception {
+        InferenceService service = new InferenceService(Runnable::run);
+        ConcurrentHashMap<Integer, Integer> releases = new ConcurrentHashMap<>();
+        AtomicInteger skipped = new AtomicInteger();
+        // The listener runs on the inference thread, where a failed assertion would go unnoticed.
+        AtomicBoolean releasedBeforeResult = new AtomicBoolean();
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(
+                (frame, input) -> {
+                    // Odd frames are skipped by the preprocessor.
+                    if (frame % 2 == 1) {
+                        skipped.incrementAndGet();
+                        return false;
+                    }
+                    return true;
+                },
+                (frame, input) -> frame,
+                (frame, result) -> {
+                    if (releases.containsKey(frame)) {
+                        releasedBeforeResult.set(true);
+                    }
+                },
+                new TensorBufferPool(4, 3), service);
+        pipeline.setFrameReleaser(frame -> releases.merge(frame, 1, Integer::sum));
+        pipeline.start();
+
+        int frames = 300;
+        for (int i = 0; i < frames; i++) {
+            pipeline.submit(i);
+            if (i % 10 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        pipeline.stop();
+        // A frame already being inferred is released once its result is delivered.
+        for (int i = 0; i < 100 && releases.size() < frames; i++) {
+            Thread.sleep(10);
+        }
+        service.shutdown();
+
+        assertFalse(releasedBeforeResult.get());
+        assertEquals(frames, releases.size());
+        for (int count : releases.values()) {
+            assertEquals(1, count);
+        }
+        assertTrue(pipeline.getProcessedFrames() > 0);
+        // stop() may have released one pending frame and one queued for inference, neither of them counted.
+        long accounted = pipeline.getDroppedFrames() + pipeline.getProcessedFrames() + skipped.get();
+        assertTrue(accounted <= frames && accounted >= frames - 2);
+    }
+
+    @Test
+    public void frameIsReleasedAfterResultIsDelivered() throws Exception {
+        InferenceService service = new InferenceService(Runnable::run);
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicInteger order = new AtomicInteger();
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(
+                (frame, input) -> true,
+                (frame, input) -> frame,
+                (frame, result) -> order.compareAndSet(0, 1),
+                new TensorBufferPool(4, 2), service);
+        pipeline.setFrameReleaser(frame -> {
+            order.compareAndSet(1, 2);
+            released.countDown();
+        });
+        pipeline.start();
+        pipeline.submit(7);
+
+        assertTrue(released.await(1, TimeUnit.SECONDS));
+        assertEquals(2, order.get());
+        pipeline.stop();
+        service.shutdown();
+    }
+
+    @Test
+    public void stop_releasesFrameQueuedOnExecutor() throws Exception {
+        // An executor that never runs what it is given, like one whose queue was dropped by shutdownNow().
+        List<Runnable> queued = new ArrayList<>();
+        CountDownLatch handedOver = new CountDownLatch(1);
+        AtomicInteger inferences = new AtomicInteger();
+        ConcurrentHashMap<Integer, Integer> releases = new ConcurrentHashMap<>();
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(
+                (frame, input) -> true,
+                (frame, input) -> inferences.incrementAndGet(),
+                (frame, result) -> {
+                },
+                new TensorBufferPool(4, 2), command -> {
+                    synchronized (queued) {
+                        queued.add(command);
+                    }
+                    handedOver.countDown();
+                });
+        pipeline.setFrameReleaser(frame -> releases.merge(frame, 1, Integer::sum));
+        pipeline.start();
+        pipeline.submit(1);
+        assertTrue(handedOver.await(1, TimeUnit.SECONDS));
+        pipeline.submit(2);
+        pipeline.stop();
+        pipeline.submit(3);
+
+        assertEquals(3, releases.size());
+        // A late run of the dropped task neither infers nor releases again.
+        synchronized (queued) {
+            for (Runnable command : queued) {
+                command.run();
+            }
+        }
+        assertEquals(0, inferences.get());
+        for (int count : releases.values()) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void preprocessorExceptionSkipsFrameAndKeepsRunning() throws Exception {
+        InferenceService service = new InferenceService(Runnable::run);
+        PipelineMetrics metrics = new PipelineMetrics();
+        CountDownLatch inferred = new CountDownLatch(1);
+        AtomicInteger errors = new AtomicInteger();
+        ConcurrentHashMap<Integer, Integer> releases = new ConcurrentHashMap<>();
+        TensorBufferPool buffers = new TensorBufferPool(4, 1);
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(
+                (frame, input) -> {
+                    if (frame == 1) {
+                        throw new IllegalStateException("image already closed");
+                    }
+                    return true;
+                },
+                (frame, input) -> frame,
+                (frame, result) -> inferred.countDown(),
+                buffers, service);
+        pipeline.setMetrics(metrics);
+        pipeline.setErrorListener((frame, e) -> errors.incrementAndGet());
+        pipeline.setFrameReleaser(frame -> releases.merge(frame, 1, Integer::sum));
+        pipeline.start();
+        pipeline.submit(1);
+        pipeline.awaitFrameTaken();
+        // The only input buffer and the inference permit must have come back for this frame to get through.
+        pipeline.submit(2);
+
+        assertTrue(inferred.await(1, TimeUnit.SECONDS));
+        pipeline.stop();
+        service.shutdown();
+        assertEquals(1, errors.get());
+        assertEquals(1, metrics.getCount(PipelineMetrics.Counter.SKIPPED_FRAMES));
+        assertEquals(Integer.valueOf(1), releases.get(1));
+        assertEquals(Integer.valueOf(1), releases.get(2));
+    }
+}
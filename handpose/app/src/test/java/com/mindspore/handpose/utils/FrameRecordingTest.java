@@ -0,0 +1,108 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class FrameRecordingTest {
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+
+    private static byte[] frame(int value) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int i = 0; i < nv21.length; i++) {
+            nv21[i] = (byte) (value + i);
+        }
+        return nv21;
+    }
+
+    private static byte[] record(int frames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // As many buffers as frames, so none is dropped.
+        FrameRecorder recorder = new FrameRecorder(bytes, WIDTH * HEIGHT * 3 / 2, frames);
+        for (int i = 0; i < frames; i++) {
+            byte[] data = frame(i);
+            assertTrue(recorder.record(data, WIDTH, HEIGHT, Orientation.values()[i], 1000L * i));
+            // The caller may reuse its buffer right away.
+            data[0] = 99;
+        }
+        recorder.close();
+        assertEquals(frames, recorder.getRecordedFrames());
+        assertEquals(0, recorder.getDroppedFrames());
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void roundTrip_keepsFramesAndTimestamps() throws IOException {
+        byte[] bytes = record(3);
+        assertEquals(8 + 3 * (FrameRecording.FRAME_HEADER_BYTES + WIDTH * HEIGHT * 3 / 2), bytes.length);
+
+        FrameRecording recording = new FrameRecording(new ByteArrayInputStream(bytes));
+        byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int i = 0; i < 3; i++) {
+            assertTrue(recording.nextFrame());
+            assertEquals(1000L * i, recording.getTimestampNanos());
+            assertEquals(WIDTH, recording.getWidth());
+            assertEquals(HEIGHT, recording.getHeight());
+            assertEquals(Orientation.values()[i], recording.getOrientation());
+            assertEquals(data.length, recording.getDataLength());
+            recording.readData(data);
+            assertArrayEquals(frame(i), data);
+        }
+        assertFalse(recording.nextFrame());
+    }
+
+    @Test
+    public void unreadData_isSkipped() throws IOException {
+        FrameRecording recording = new FrameRecording(new ByteArrayInputStream(record(2)));
+        assertTrue(recording.nextFrame());
+        assertEquals(0, recording.getTimestampNanos());
+        assertTrue(recording.nextFrame());
+        assertEquals(1000, recording.getTimestampNanos());
+        byte[] data = new byte[recording.getDataLength()];
+        recording.readData(data);
+        assertArrayEquals(frame(1), data);
+        assertFalse(recording.nextFrame());
+    }
+
+    @Test
+    public void version1_readsAsNormal() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FrameRecording.MAGIC);
+        out.writeInt(1);
+        out.writeLong(42);
+        out.writeInt(WIDTH);
+        out.writeInt(HEIGHT);
+        out.writeInt(WIDTH * HEIGHT * 3 / 2);
+        out.write(frame(7));
+
+        FrameRecording recording = new FrameRecording(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(recording.nextFrame());
+        assertEquals(42, recording.getTimestampNanos());
+        assertEquals(Orientation.NORMAL, recording.getOrientation());
+        byte[] data = new byte[recording.getDataLength()];
+        recording.readData(data);
+        assertArrayEquals(frame(7), data);
+        assertFalse(recording.nextFrame());
+    }
+
+    @Test
+    public void afterClose_framesAreDropped() throws IOException {
+        FrameRecorder recorder = new FrameRecorder(new ByteArrayOutputStream(), 16, 2);
+        recorder.close();
+        assertFalse(recorder.record(frame(0), WIDTH, HEIGHT, 0));
+        assertEquals(1, recorder.getDroppedFrames());
+        assertEquals(0, recorder.getRecordedFrames());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFile_isRejected() throws IOException {
+        new FrameRecording(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+}
@@ -0,0 +1,87 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FrameReplayTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final float[] LOGITS = new float[]{0f, 0f, 6f, 0f};
+
+    // A skin-toned square moving across a grey desk, so the gate passes and the cache rarely hits.
+    private static byte[] frame(int index) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(nv21, 0, WIDTH * HEIGHT, (byte) (60 + index % 2 * 80));
+        Arrays.fill(nv21, WIDTH * HEIGHT, nv21.length, (byte) 128);
+        int left = 40 + (index * 13) % 160;
+        for (int y = 60; y < 180; y++) {
+            for (int x = left; x < left + 120; x++) {
+                nv21[y * WIDTH + x] = (byte) 150;
+                int chroma = WIDTH * HEIGHT + (y / 2) * WIDTH + (x & ~1);
+                nv21[chroma] = (byte) 150;
+                nv21[chroma + 1] = (byte) 105;
+            }
+        }
+        return nv21;
+    }
+
+    private static byte[] recording(int frames, long intervalNanos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameRecorder recorder = new FrameRecorder(bytes, WIDTH * HEIGHT * 3 / 2, frames);
+        for (int i = 0; i < frames; i++) {
+            assertTrue(recorder.record(frame(i), WIDTH, HEIGHT, 5_000_000_000L + i * intervalNanos));
+        }
+        recorder.close();
+        return bytes.toByteArray();
+    }
+
+    private static FrameReplay.Report replay(FakeInferenceEngine engine, byte[] recording, FrameReplay.Speed speed)
+            throws IOException, InterruptedException {
+        GestureClassifier classifier = new GestureClassifier(engine, LOGITS.length, null);
+        FrameReplay replay = new FrameReplay(classifier);
+        try (FrameRecording frames = new FrameRecording(new ByteArrayInputStream(recording))) {
+            return replay.run(frames, speed);
+        }
+    }
+
+    @Test
+    public void maxSpeed_accountsForEveryFrame() throws Exception {
+        FakeInferenceEngine engine = new FakeInferenceEngine(LOGITS, 2_000_000);
+        FrameReplay.Report report = replay(engine, recording(30, 33_000_000), FrameReplay.Speed.MAX);
+
+        assertEquals(30, report.getFramesRead());
+        // Max speed waits for the pipeline instead of dropping.
+        assertEquals(30, report.getFramesSubmitted());
+        assertEquals(0, report.getSourceDropped());
+        assertEquals(0, report.getPipelineDropped());
+        assertEquals(30, report.getFramesProcessed());
+
+        PipelineMetrics metrics = report.getMetrics();
+        assertEquals(report.getFramesProcessed(), metrics.getHistogram(PipelineMetrics.Stage.END_TO_END).getCount());
+        assertEquals(report.getFramesProcessed(), metrics.getCount(PipelineMetrics.Counter.GATED_FRAMES)
+                + metrics.getCount(PipelineMetrics.Counter.CACHE_HITS)
+                + metrics.getCount(PipelineMetrics.Counter.CACHE_MISSES));
+        assertEquals(metrics.getCount(PipelineMetrics.Counter.CACHE_MISSES), engine.getPredictCount());
+        assertTrue(report.getProcessedPerSecond() > 0);
+    }
+
+    @Test
+    public void realTime_followsRecordedTimestamps() throws Exception {
+        long interval = 20_000_000;
+        FakeInferenceEngine engine = new FakeInferenceEngine(LOGITS, 1_000_000);
+        FrameReplay.Report report = replay(engine, recording(6, interval), FrameReplay.Speed.REAL_TIME);
+
+        assertEquals(6, report.getFramesRead());
+        assertEquals(6, report.getFramesSubmitted() + report.getSourceDropped());
+        assertTrue(report.getElapsedNanos() >= 5 * interval);
+        // Cold preprocessing may still drop a frame, but every submitted frame is accounted for.
+        assertEquals(report.getFramesSubmitted(), report.getFramesProcessed() + report.getPipelineDropped());
+        assertTrue(report.getFramesProcessed() > 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class GestureClassifierTest {
+    private static final float[] LOGITS = new float[]{0f, 4f, 1f};
+    private static final int[] SHAPE = new int[]{1, 3, 32, 48};
+
+    private static byte[] greyFrame(int width, int height) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        Arrays.fill(nv21, (byte) 128);
+        return nv21;
+    }
+
+    @Test
+    public void fakeEngine_classifiesWithFixedLogits() {
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.FLOAT32, LOGITS, 0);
+        GestureClassifier classifier = new GestureClassifier(engine, LOGITS.length, null);
+        assertTrue(classifier.isReady());
+        assertEquals(48, classifier.getInputWidth());
+        assertEquals(32, classifier.getInputHeight());
+        assertEquals(48 * 32 * 3 * 4, classifier.getInputBuffers().getBufferSize());
+
+        ByteBuffer input = classifier.getInputBuffers().acquire();
+        classifier.fillInput(greyFrame(64, 48), 64, 48, CropWindow.centerCrop(64, 48, 48, 32), input);
+        GestureResult result = classifier.newResult();
+        assertTrue(classifier.execute(input, result));
+        assertEquals(1, result.getClassIndex());
+        assertEquals(1, engine.getPredictCount());
+    }
+
+    @Test
+    public void delay_isReflectedInInferenceTime() {
+        long delay = 5_000_000;
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.FLOAT32, LOGITS, delay);
+        GestureClassifier classifier = new GestureClassifier(engine, LOGITS.length, null);
+        PipelineMetrics metrics = new PipelineMetrics();
+        classifier.setMetrics(metrics);
+        long[] times = classifier.warmUp(3);
+        assertEquals(3, times.length);
+        for (long time : times) {
+            assertTrue(time >= delay);
+        }
+        assertEquals(3, metrics.getHistogram(PipelineMetrics.Stage.PREDICT).getCount());
+    }
+
+    @Test
+    public void wrongInputSize_failsPrediction() {
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.FLOAT32, LOGITS, 0);
+        GestureClassifier classifier = new GestureClassifier(engine, LOGITS.length, null);
+        PipelineMetrics metrics = new PipelineMetrics();
+        classifier.setMetrics(metrics);
+        GestureResult result = classifier.newResult();
+        assertFalse(classifier.execute(ByteBuffer.allocateDirect(16), result));
+        assertEquals(GestureResult.Status.PREDICT_FAILED, result.getStatus());
+        assertEquals(1, metrics.getCount(PipelineMetrics.Counter.FAILED_PREDICTIONS));
+    }
+
+    @Test
+    public void tooFewLogits_isBadOutput() {
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.FLOAT32, LOGITS, 0);
+        GestureClassifier classifier = new GestureClassifier(engine, 5, null);
+        GestureResult result = classifier.newResult();
+        assertFalse(classifier.execute(classifier.getInputBuffers().acquire(), result));
+        assertEquals(GestureResult.Status.BAD_OUTPUT, result.getStatus());
+    }
+
+    @Test
+    public void quantizedInput_needsQuantization() {
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.UINT8, LOGITS, 0);
+        assertFalse(new GestureClassifier(engine, LOGITS.length, null).isReady());
+        GestureResult result = new GestureResult(LOGITS.length);
+        assertFalse(new GestureClassifier(engine, LOGITS.length, null).execute(ByteBuffer.allocateDirect(1), result));
+        assertEquals(GestureResult.Status.NOT_READY, result.getStatus());
+
+        GestureClassifier quantized = new GestureClassifier(engine, LOGITS.length,
+                new InputQuantization(0.02f, 128, false));
+        assertTrue(quantized.isReady());
+        assertEquals(48 * 32 * 3, quantized.getInputBuffers().getBufferSize());
+    }
+
+    @Test
+    public void batch_resizesEngineAndSplitsOutput() {
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.FLOAT32, LOGITS, 0);
+        GestureClassifier classifier = new GestureClassifier(engine, LOGITS.length, null);
+        GestureResult[] results = new GestureResult[]{classifier.newResult(), classifier.newResult(),
+                classifier.newResult()};
+        classifier.executeBatch(classifier.batchBuffer(3), results);
+        assertEquals(3, engine.getInputShape()[0]);
+        for (GestureResult result : results) {
+            assertTrue(result.isOk());
+            assertEquals(1, result.getClassIndex());
+        }
+        // Back to a single image.
+        assertTrue(classifier.execute(classifier.getInputBuffers().acquire(), classifier.newResult()));
+        assertEquals(1, engine.getInputShape()[0]);
+    }
+}
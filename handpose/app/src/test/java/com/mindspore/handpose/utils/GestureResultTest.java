@@ -0,0 +1,55 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class GestureResultTest {
+
+    @Test
+    public void setLogits_appliesSoftmaxAndPicksArgmax() {
+        GestureResult result = new GestureResult(2);
+        result.setLogits(new float[]{9f, 1f, 3f}, 1);
+
+        assertTrue(result.isOk());
+        assertEquals(1, result.getClassIndex());
+        assertEquals(1f, result.getProbability(0) + result.getProbability(1), 1e-6f);
+        assertEquals(1 / (1 + Math.exp(2)), result.getProbability(0), 1e-6);
+    }
+
+    @Test
+    public void format_keepsTheOldDisplayText() {
+        GestureResult result = new GestureResult(2);
+        result.setLogits(new float[]{2f, -1.5f}, 0);
+
+        assertEquals("ok:0.97  ,  thumbup:0.03", result.format(GestureLabels.DEFAULT_LABELS));
+    }
+
+    @Test
+    public void formatsSameAs_ignoresChangesBelowDisplayPrecision() {
+        GestureResult first = new GestureResult(2);
+        first.setLogits(new float[]{2f, -1.5f}, 0);
+        GestureResult second = new GestureResult(2);
+        second.setLogits(new float[]{2.001f, -1.5f}, 0);
+        GestureResult third = new GestureResult(2);
+        third.setLogits(new float[]{-1.5f, 2f}, 0);
+
+        assertTrue(first.formatsSameAs(second));
+        assertFalse(first.formatsSameAs(third));
+        assertFalse(first.formatsSameAs(null));
+
+        second.setFailed(GestureResult.Status.PREDICT_FAILED);
+        assertFalse(first.formatsSameAs(second));
+    }
+
+    @Test
+    public void readLabels_skipsBlankLines() throws Exception {
+        String file = "ok\n\nthumbup\n";
+        String[] labels = GestureLabels.read(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)));
+
+        assertArrayEquals(new String[]{"ok", "thumbup"}, labels);
+    }
+}
@@ -0,0 +1,115 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GestureSmootherTest {
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(66);
+
+    private final GestureSmoother smoother = new GestureSmoother(2);
+    private final GestureResult frame = new GestureResult(2);
+    private long now;
+
+    @Test
+    public void singleFrameFlicker_doesNotEnter() {
+        assertEquals(GestureSmoother.Event.NONE, feed(0.5f));
+        assertEquals(GestureSmoother.Event.NONE, feed(0.99f));
+        assertEquals(GestureSmoother.Event.NONE, feed(0.5f));
+        assertEquals(-1, smoother.getCurrentClass());
+    }
+
+    @Test
+    public void sustainedGesture_entersOnceThenHeldOnce() {
+        GestureSmoother.Event entered = GestureSmoother.Event.NONE;
+        int frames = 0;
+        while (entered == GestureSmoother.Event.NONE && frames < 10) {
+            entered = feed(0.95f);
+            frames++;
+        }
+        assertEquals(GestureSmoother.Event.ENTERED, entered);
+        assertEquals(GestureSmoother.DEFAULT_MIN_VOTES, frames);
+        assertEquals(1, smoother.getEventClass());
+
+        int held = 0;
+        for (int i = 0; i < 40; i++) {
+            GestureSmoother.Event event = feed(0.95f);
+            assertNotEquals(GestureSmoother.Event.ENTERED, event);
+            assertNotEquals(GestureSmoother.Event.LEFT, event);
+            if (event == GestureSmoother.Event.HELD) {
+                held++;
+            }
+        }
+        assertEquals(1, held);
+    }
+
+    @Test
+    public void hysteresis_keepsGestureBetweenThresholds() {
+        enter();
+        for (int i = 0; i < 20; i++) {
+            // Between exit (0.6) and enter (0.8): stays entered.
+            assertNotEquals(GestureSmoother.Event.LEFT, feed(0.7f));
+        }
+        assertEquals(1, smoother.getCurrentClass());
+
+        GestureSmoother.Event event = GestureSmoother.Event.NONE;
+        for (int i = 0; i < 10 && event != GestureSmoother.Event.LEFT; i++) {
+            event = feed(0.1f);
+        }
+        assertEquals(GestureSmoother.Event.LEFT, event);
+        assertEquals(1, smoother.getEventClass());
+        assertEquals(-1, smoother.getCurrentClass());
+    }
+
+    @Test
+    public void failedFrames_areIgnored() {
+        enter();
+        frame.setFailed(GestureResult.Status.PREDICT_FAILED);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(GestureSmoother.Event.NONE, smoother.update(frame));
+        }
+        assertEquals(1, smoother.getCurrentClass());
+    }
+
+    @Test
+    public void noHandFrames_leaveGestureAndClearVotes() {
+        enter();
+        frame.setFailed(GestureResult.Status.NO_HAND);
+        GestureSmoother.Event event = GestureSmoother.Event.NONE;
+        for (int i = 0; i < 10 && event != GestureSmoother.Event.LEFT; i++) {
+            event = smoother.update(frame);
+        }
+        assertEquals(GestureSmoother.Event.LEFT, event);
+        for (int i = 0; i < GestureSmoother.DEFAULT_WINDOW_SIZE; i++) {
+            smoother.update(frame);
+        }
+
+        // The hand is back: entering again needs fresh votes and a smoothed probability rising from zero.
+        int frames = 0;
+        while (smoother.getCurrentClass() < 0 && frames < 10) {
+            feed(0.95f);
+            frames++;
+        }
+        assertEquals(1, smoother.getCurrentClass());
+        assertTrue(frames >= GestureSmoother.DEFAULT_MIN_VOTES);
+    }
+
+    private void enter() {
+        for (int i = 0; i < 10 && smoother.getCurrentClass() < 0; i++) {
+            feed(0.95f);
+        }
+        assertEquals(1, smoother.getCurrentClass());
+    }
+
+    /**
+     * One frame where class 1 ("thumbup") has probability {@code p}.
+     */
+    private GestureSmoother.Event feed(float p) {
+        frame.setLogits(new float[]{0f, (float) Math.log(p / (1 - p))}, 0);
+        now += FRAME_NANOS;
+        frame.setFrameTimestampNanos(now);
+        return smoother.update(frame);
+    }
+}
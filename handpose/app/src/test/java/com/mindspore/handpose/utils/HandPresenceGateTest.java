@@ -0,0 +1,63 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class HandPresenceGateTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    // Grey desk with an optional skin-toned square (Y 150, Cb 105, Cr 150) of the given side at (left, top).
+    private static byte[] frame(int lumaLevel, int left, int top, int side) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(nv21, 0, WIDTH * HEIGHT, (byte) lumaLevel);
+        Arrays.fill(nv21, WIDTH * HEIGHT, nv21.length, (byte) 128);
+        for (int y = top; y < top + side; y++) {
+            for (int x = left; x < left + side; x++) {
+                nv21[y * WIDTH + x] = (byte) 150;
+                int chroma = WIDTH * HEIGHT + (y / 2) * WIDTH + (x & ~1);
+                nv21[chroma] = (byte) 150;
+                nv21[chroma + 1] = (byte) 105;
+            }
+        }
+        return nv21;
+    }
+
+    private static final CropWindow WINDOW = CropWindow.centerCrop(WIDTH, HEIGHT, 224, 224);
+
+    private static boolean check(HandPresenceGate gate, byte[] nv21) {
+        return gate.isHandLikely(nv21, WIDTH, HEIGHT, WINDOW, 224, 224);
+    }
+
+    @Test
+    public void emptyDesk_isGated() {
+        HandPresenceGate gate = new HandPresenceGate();
+        byte[] desk = frame(90, 0, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(check(gate, desk));
+        }
+        assertEquals(0f, gate.getLastSkinFraction(), 0f);
+    }
+
+    @Test
+    public void skinInCrop_passes() {
+        HandPresenceGate gate = new HandPresenceGate();
+        assertTrue(check(gate, frame(90, 120, 80, 80)));
+        assertTrue(gate.getLastSkinFraction() >= HandPresenceGate.DEFAULT_MIN_SKIN_FRACTION);
+    }
+
+    @Test
+    public void motionPasses_andPassHoldsForAFewFrames() {
+        HandPresenceGate gate = new HandPresenceGate(0.1f, 12f, 2);
+        assertFalse(check(gate, frame(60, 0, 0, 0)));
+        // Same window, much brighter, no skin: motion.
+        assertTrue(check(gate, frame(120, 0, 0, 0)));
+        byte[] still = frame(120, 0, 0, 0);
+        assertTrue(check(gate, still));
+        assertTrue(check(gate, still));
+        assertFalse(check(gate, still));
+    }
+}
@@ -0,0 +1,51 @@
+package com.mindspore.handpose.utils;
+
+import com.mindspore.config.CpuBindMode;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InferenceConfigTest {
+
+    @Test
+    public void encode_roundTrips() {
+        InferenceConfig config = new InferenceConfig(4, CpuBindMode.MID_CPU, true);
+        assertEquals(config, InferenceConfig.decode(config.encode()));
+        assertEquals(InferenceConfig.DEFAULT, InferenceConfig.decode(InferenceConfig.DEFAULT.encode()));
+    }
+
+    @Test
+    public void decode_rejectsMalformedText() {
+        assertNull(InferenceConfig.decode(null));
+        assertNull(InferenceConfig.decode(""));
+        assertNull(InferenceConfig.decode("2,1"));
+        assertNull(InferenceConfig.decode("two,1,0"));
+        assertNull(InferenceConfig.decode("0,1,0"));
+    }
+
+    @Test
+    public void candidates_coverThreadCountsUpToCpuCount() {
+        List<InferenceConfig> four = InferenceConfig.candidates(4);
+        // 1, 2, 4 threads x 3 bind modes x fp16 off/on.
+        assertEquals(18, four.size());
+        assertEquals(four.size(), new HashSet<>(four).size());
+
+        List<InferenceConfig> eight = InferenceConfig.candidates(8);
+        assertEquals(24, eight.size());
+        for (InferenceConfig config : InferenceConfig.candidates(3)) {
+            assertTrue(config.threadNum <= 3);
+        }
+        assertEquals(6, InferenceConfig.candidates(1).size());
+    }
+
+    @Test
+    public void steadyNanos_isMedianAfterFirstRun() {
+        assertEquals(20, ContextTuner.steadyNanos(new long[]{900, 30, 20, 10}));
+        assertEquals(25, ContextTuner.steadyNanos(new long[]{900, 30, 20}));
+        assertEquals(-1, ContextTuner.steadyNanos(new long[]{900}));
+    }
+}
@@ -0,0 +1,119 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InferenceServiceTest {
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void trySubmit_rejectsWhileInFlight() throws Exception {
+        InferenceService service = new InferenceService(DIRECT);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicInteger result = new AtomicInteger();
+
+        assertTrue(service.trySubmit(() -> {
+            release.await();
+            return 42;
+        }, value -> {
+            result.set(value);
+            delivered.countDown();
+        }));
+        assertFalse(service.trySubmit(() -> 0, value -> fail("rejected task must not deliver")));
+        assertEquals(1, service.getRejectedCount());
+
+        release.countDown();
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        assertEquals(42, result.get());
+        assertFalse(service.isInFlight());
+        service.shutdown();
+    }
+
+    @Test
+    public void allWorkRunsOnOneThread() throws Exception {
+        InferenceService service = new InferenceService(DIRECT);
+        int tasks = 50;
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            service.execute(() -> {
+                assertEquals(InferenceService.THREAD_NAME, Thread.currentThread().getName());
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, awaitInferenceThreads(1));
+        service.shutdown();
+    }
+
+    @Test
+    public void shutdown_leavesNoThreadsBehind() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            InferenceService service = new InferenceService(DIRECT);
+            CountDownLatch delivered = new CountDownLatch(1);
+            service.trySubmit(() -> "result", value -> delivered.countDown());
+            assertTrue(delivered.await(1, TimeUnit.SECONDS));
+            service.shutdown();
+            assertTrue(service.isTerminated());
+        }
+        assertEquals(0, awaitInferenceThreads(0));
+    }
+
+    @Test
+    public void framePipeline_infersOnServiceThreadWithoutSpawningThreads() throws Exception {
+        InferenceService service = new InferenceService(DIRECT);
+        TensorBufferPool pool = new TensorBufferPool(4, 3);
+        CountDownLatch results = new CountDownLatch(5);
+        FramePipeline<Integer, String> pipeline = new FramePipeline<>(
+                (frame, input) -> {
+                    input.putInt(0, frame);
+                    return true;
+                },
+                (frame, input) -> Thread.currentThread().getName(),
+                (frame, threadName) -> {
+                    assertEquals(InferenceService.THREAD_NAME, threadName);
+                    results.countDown();
+                },
+                pool, service);
+        pipeline.start();
+        int threadsWhileRunning = Thread.activeCount();
+        for (int i = 0; i < 200 && results.getCount() > 0; i++) {
+            pipeline.submit(i);
+            Thread.sleep(1);
+        }
+        assertTrue(results.await(1, TimeUnit.SECONDS));
+        assertTrue(Thread.activeCount() <= threadsWhileRunning + 1);
+        pipeline.stop();
+        service.shutdown();
+        assertEquals(0, awaitInferenceThreads(0));
+        assertEquals(3, pool.getAllocatedCount());
+    }
+
+    /**
+     * A terminated executor's thread may still be unwinding, give it a moment to exit.
+     */
+    private static int awaitInferenceThreads(int expected) throws InterruptedException {
+        int count = countInferenceThreads();
+        for (int i = 0; i < 100 && count != expected; i++) {
+            Thread.sleep(10);
+            count = countInferenceThreads();
+        }
+        return count;
+    }
+
+    private static int countInferenceThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && InferenceService.THREAD_NAME.equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class InputQuantizationTest {
+    private static final float[] MEAN = new float[]{0.485F * 255, 0.456F * 255, 0.406F * 255};
+    private static final float[] STD = new float[]{0.229F * 255, 0.224F * 255, 0.225F * 255};
+    // Covers the normalized range [-2.12, 2.64] of the ImageNet mean/std.
+    private static final InputQuantization UINT8 = new InputQuantization(0.0187f, 114, false);
+    private static final InputQuantization INT8 = new InputQuantization(0.0187f, -14, true);
+
+    @Test
+    public void read_parsesParams() throws IOException {
+        String text = "# from the converter\nscale = 0.0187\nzero_point=114\n";
+        InputQuantization quantization = InputQuantization.read(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), false);
+        assertEquals(0.0187f, quantization.scale, 0f);
+        assertEquals(114, quantization.zeroPoint);
+        assertEquals("mobilenet_handpose_int8.quant.txt",
+                InputQuantization.paramsFile("mobilenet_handpose_int8.ms"));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_missingZeroPoint_fails() throws IOException {
+        InputQuantization.read(new ByteArrayInputStream("scale=0.1".getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    @Test
+    public void quantize_clampsToType() {
+        assertEquals(255, UINT8.quantize(100f));
+        assertEquals(0, UINT8.quantize(-100f));
+        assertEquals(127, INT8.quantize(100f));
+        assertEquals(-128, INT8.quantize(-100f));
+    }
+
+    @Test
+    public void lookupTable_roundTripsWithinHalfStep() {
+        for (InputQuantization quantization : new InputQuantization[]{UINT8, INT8}) {
+            byte[] table = quantization.lookupTable(MEAN, STD);
+            for (int c = 0; c < 3; c++) {
+                for (int v = 0; v < 256; v++) {
+                    float normalized = (v - MEAN[c]) / STD[c];
+                    float restored = quantization.dequantize(table[c * 256 + v]);
+                    assertEquals("c=" + c + " v=" + v, normalized, restored, quantization.scale / 2 + 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void quantizedKernels_matchFloatKernels() {
+        int width = 320;
+        int height = 240;
+        int size = 224;
+        Random random = new Random(7);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        byte[] table = UINT8.lookupTable(MEAN, STD);
+        CropWindow window = CropWindow.centerCrop(width, height, size, size);
+
+        ByteBuffer floats = ByteBuffer.allocateDirect(3 * size * size * 4).order(ByteOrder.nativeOrder());
+        ByteBuffer bytes = ByteBuffer.allocateDirect(3 * size * size);
+        ResizeCropKernel.argbToByteBuffer(pixels, width, height, window, floats, size, size, MEAN, STD);
+        ResizeCropKernel.argbToQuantized(pixels, width, height, window, bytes, size, size, table);
+        assertQuantizedMatches(floats, bytes, 3 * size * size);
+
+        int[] cropped = new int[size * size];
+        System.arraycopy(pixels, 0, cropped, 0, cropped.length);
+        ChwNormalizer.argbToByteBuffer(cropped, size, size, floats, MEAN, STD);
+        ChwNormalizer.argbToQuantized(cropped, size, size, bytes, table);
+        assertQuantizedMatches(floats, bytes, 3 * size * size);
+    }
+
+    /**
+     * Interpolated values are rounded to an integer before the lookup, so allow one step on top of rounding.
+     */
+    private static void assertQuantizedMatches(ByteBuffer floats, ByteBuffer bytes, int count) {
+        for (int i = 0; i < count; i++) {
+            int expected = UINT8.quantize(floats.getFloat(i * 4));
+            assertEquals("element " + i, expected, bytes.get(i) & 0xFF, 1);
+        }
+    }
+}
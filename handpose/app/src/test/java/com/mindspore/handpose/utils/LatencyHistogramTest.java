@@ -0,0 +1,80 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_areContiguous() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            long lower = LatencyHistogram.lowerBoundMicros(i);
+            assertEquals("bucket " + i, i, LatencyHistogram.bucketOf(lower));
+            assertEquals("bucket " + i, i, LatencyHistogram.bucketOf(LatencyHistogram.upperBoundMicros(i) - 1));
+        }
+    }
+
+    @Test
+    public void percentiles_withinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 ms .. 100 ms, uniform.
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMaxNanos());
+        assertEquals(50_500_000L, histogram.getMeanNanos());
+        assertWithin(50_000_000L, histogram.getPercentileNanos(50));
+        assertWithin(95_000_000L, histogram.getPercentileNanos(95));
+        assertWithin(99_000_000L, histogram.getPercentileNanos(99));
+        assertEquals(100_000_000L, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 10000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long value = (t + 1) * 1_000_000L;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(value);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(threads * perThread, histogram.getCount());
+        assertEquals(4_000_000L, histogram.getMaxNanos());
+        long bucketTotal = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            bucketTotal += histogram.getBucketCount(i);
+        }
+        assertEquals(threads * perThread, bucketTotal);
+    }
+
+    @Test
+    public void metricsCsv_hasSummaryCountersAndBuckets() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.PREDICT, 0, 12_000_000L);
+        metrics.increment(PipelineMetrics.Counter.DROPPED_FRAMES);
+        StringWriter writer = new StringWriter();
+        metrics.writeCsv(writer);
+        String csv = writer.toString();
+        assertTrue(csv, csv.contains("PREDICT,1,12000,"));
+        assertTrue(csv, csv.contains("DROPPED_FRAMES,1"));
+        assertTrue(csv, csv.contains("PREDICT,11776,1"));
+        assertTrue(metrics.format().contains("predict"));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " got " + actual,
+                actual >= expected && actual <= expected + expected / 16 + 1000);
+    }
+}
@@ -0,0 +1,146 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ModelPoolTest {
+    private static final int[] SHAPE = new int[]{1, 3, 32, 48};
+    private static final int NUM_CLASSES = 4;
+
+    private final List<GestureClassifier> freedModels = new CopyOnWriteArrayList<>();
+
+    private static GestureClassifier model(long delayNanos) {
+        FakeInferenceEngine engine = new FakeInferenceEngine(SHAPE, InferenceEngine.InputType.FLOAT32,
+                new float[NUM_CLASSES], delayNanos);
+        return new GestureClassifier(engine, NUM_CLASSES, null);
+    }
+
+    private ModelPool<GestureClassifier> pool(long... delaysNanos) {
+        List<GestureClassifier> models = new ArrayList<>();
+        for (long delay : delaysNanos) {
+            models.add(model(delay));
+        }
+        return new ModelPool<>(models, freedModels::add);
+    }
+
+    private static void predict(GestureClassifier model) {
+        ByteBuffer input = model.getInputBuffers().acquire();
+        try {
+            assertTrue(model.execute(input, model.newResult()));
+        } finally {
+            model.getInputBuffers().release(input);
+        }
+    }
+
+    // Runs the model, then reports the image's own class so the caller can check which result is which.
+    private static GestureResult classify(GestureClassifier model, Integer classIndex) {
+        predict(model);
+        float[] logits = new float[NUM_CLASSES];
+        logits[classIndex] = 10f;
+        GestureResult result = model.newResult();
+        result.setLogits(logits, 0);
+        return result;
+    }
+
+    private static int predictCount(GestureClassifier model) {
+        return ((FakeInferenceEngine) model.getEngine()).getPredictCount();
+    }
+
+    @Test
+    public void classifyAll_returnsResultsInInputOrder() throws Exception {
+        // Different speeds per model, so results finish out of submission order.
+        ModelPool<GestureClassifier> pool = pool(7_000_000, 1_000_000, 4_000_000, 2_000_000);
+        List<Integer> images = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            images.add(i % NUM_CLASSES);
+        }
+
+        List<GestureResult> results = pool.classifyAll(images, ModelPoolTest::classify);
+
+        assertEquals(images.size(), results.size());
+        for (int i = 0; i < images.size(); i++) {
+            assertEquals(images.get(i).intValue(), results.get(i).getClassIndex());
+        }
+        assertTrue(pool.free(1000));
+        int predictions = 0;
+        for (GestureClassifier model : freedModels) {
+            predictions += predictCount(model);
+        }
+        assertEquals(4, freedModels.size());
+        assertEquals(images.size(), predictions);
+    }
+
+    @Test
+    public void completionQueue_yieldsEveryImageOnce() throws Exception {
+        ModelPool<GestureClassifier> pool = pool(3_000_000, 1_000_000);
+        List<Integer> images = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            images.add(i % NUM_CLASSES);
+        }
+        CompletionService<ModelPool.Classification> queue = pool.newCompletionQueue();
+        pool.submitAll(images, ModelPoolTest::classify, queue);
+
+        Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < images.size(); i++) {
+            ModelPool.Classification classification = queue.poll(1, TimeUnit.SECONDS).get();
+            assertTrue(indices.add(classification.index));
+            assertEquals(images.get(classification.index).intValue(), classification.result.getClassIndex());
+        }
+        assertEquals(images.size(), indices.size());
+        assertNull(queue.poll());
+        assertTrue(pool.free(1000));
+    }
+
+    @Test
+    public void threadBudget_isSplitBetweenInstances() {
+        assertEquals(2, ModelPool.threadsPerModel(8, 4));
+        assertEquals(2, ModelPool.threadsPerModel(8, 3));
+        assertEquals(1, ModelPool.threadsPerModel(3, 4));
+        assertEquals(4, ModelPool.threadsPerModel(4, 1));
+        assertEquals(4, ModelPool.threadsPerModel(4, 0));
+    }
+
+    @Test
+    public void free_waitsForRunningModel() throws Exception {
+        // The first model taken is the slow one; its predict ignores the shutdown interrupt.
+        ModelPool<GestureClassifier> pool = pool(300_000_000, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<GestureClassifier> running = pool.submit(model -> {
+            started.countDown();
+            predict(model);
+            return model;
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        assertFalse(pool.free(50));
+        assertEquals(1, freedModels.size());
+        GestureClassifier idle = freedModels.get(0);
+        assertEquals(0, predictCount(idle));
+
+        GestureClassifier busy = running.get(2, TimeUnit.SECONDS);
+        assertNotSame(idle, busy);
+        assertEquals(1, predictCount(busy));
+        assertEquals(2, freedModels.size());
+        assertSame(busy, freedModels.get(1));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submit_afterFreeIsRejected() {
+        ModelPool<GestureClassifier> pool = pool(0);
+        assertTrue(pool.free(1000));
+        pool.submit(model -> model);
+    }
+}
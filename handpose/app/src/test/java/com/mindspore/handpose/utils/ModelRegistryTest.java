@@ -0,0 +1,128 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class ModelRegistryTest {
+    private static final String MODEL = "test.ms";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ModelRegistry registry;
+
+    @Before
+    public void setUp() {
+        // Only installed files are used, so no Context is needed.
+        registry = new ModelRegistry(null, new File(folder.getRoot(), ModelRegistry.MODELS_DIR));
+    }
+
+    private static InputStream bytes(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.capacity()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void map_sharesOneMappingPerModel() throws IOException {
+        registry.install(MODEL, bytes("version 1"));
+
+        MappedByteBuffer first = registry.map(MODEL);
+        assertSame(first, registry.map(MODEL));
+        assertEquals("version 1", read(first));
+        ModelRegistry.Entry entry = registry.getEntry(MODEL);
+        assertEquals(9, entry.getSizeBytes());
+        assertEquals(registry.getInstalledFile(MODEL).getPath(), entry.getSource());
+        assertEquals(0, entry.getBuildCount());
+    }
+
+    @Test
+    public void install_swapsModelWithoutBreakingOldMapping() throws IOException {
+        registry.install(MODEL, bytes("version 1"));
+        MappedByteBuffer old = registry.map(MODEL);
+
+        registry.install(MODEL, bytes("version 22"));
+        MappedByteBuffer swapped = registry.map(MODEL);
+
+        assertNotSame(old, swapped);
+        assertEquals("version 22", read(swapped));
+        assertEquals("version 1", read(old));
+        assertFalse(new File(registry.getInstalledFile(MODEL).getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void entry_checksumTellsSameSizeModelsApart() throws IOException {
+        registry.install(MODEL, bytes("version 1"));
+        long first = registry.mapEntry(MODEL).getChecksum();
+        registry.install(MODEL, bytes("version 2"));
+        ModelRegistry.Entry retrained = registry.mapEntry(MODEL);
+
+        assertEquals(9, retrained.getSizeBytes());
+        assertNotEquals(first, retrained.getChecksum());
+        CRC32 crc = new CRC32();
+        crc.update("version 2".getBytes(StandardCharsets.UTF_8));
+        assertEquals(crc.getValue(), retrained.getChecksum());
+        assertSame(retrained.getBuffer(), registry.map(MODEL));
+    }
+
+    @Test
+    public void open_prefersInstalledFile() throws IOException {
+        registry.install("test.quant.txt", bytes("scale=0.5\nzero_point=3\n"));
+
+        InputQuantization quantization = InputQuantization.read(registry.open("test.quant.txt"), false);
+        assertEquals(0.5f, quantization.scale, 0f);
+        assertEquals(3, quantization.zeroPoint);
+    }
+
+    @Test
+    public void uninstall_forgetsMapping() throws IOException {
+        registry.install(MODEL, bytes("version 1"));
+        registry.map(MODEL);
+
+        assertTrue(registry.uninstall(MODEL));
+        assertNull(registry.getEntry(MODEL));
+        assertFalse(registry.getInstalledFile(MODEL).exists());
+    }
+
+    @Test
+    public void entry_recordsBuildTimes() {
+        ModelRegistry.Entry entry = new ModelRegistry.Entry(MODEL, "asset",
+                ModelRegistry.mapFile(writeFile("abcd")), 1_000_000);
+        entry.recordBuild(80_000_000);
+        entry.recordBuild(40_000_000);
+
+        assertEquals(2, entry.getBuildCount());
+        assertEquals(40_000_000, entry.getLastBuildNanos());
+        assertEquals(60_000_000, entry.getMeanBuildNanos());
+        assertEquals("test.ms (asset, 0.0 MB): map 1.0 ms, 2 builds, last 40.0 ms, mean 60.0 ms", entry.toString());
+    }
+
+    private File writeFile(String text) {
+        try {
+            File file = folder.newFile();
+            Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+            return file;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Kernels reading a stored image through an {@link Orientation} must see the same pixels as they would in
+ * the upright image, which the tests materialize.
+ */
+public class OrientationTest {
+    private static final int SIZE = 32;
+    private static final float[] MEAN = new float[]{127.5f, 127.5f, 127.5f};
+    private static final float[] STD = new float[]{127.5f, 127.5f, 127.5f};
+
+    @Test
+    public void rotate90_isClockwise() {
+        // A 4x2 stored image is 2x4 upright; its upright top-left comes from the stored bottom-left.
+        assertEquals(2, Orientation.ROTATE_90.uprightWidth(4, 2));
+        assertEquals(4, Orientation.ROTATE_90.uprightHeight(4, 2));
+        assertEquals(0f, Orientation.ROTATE_90.sourceX(0, 0, 4), 0f);
+        assertEquals(1f, Orientation.ROTATE_90.sourceY(0, 0, 2), 0f);
+        // Upright top-right is the stored top-left.
+        assertEquals(0f, Orientation.ROTATE_90.sourceX(1, 0, 4), 0f);
+        assertEquals(0f, Orientation.ROTATE_90.sourceY(1, 0, 2), 0f);
+    }
+
+    @Test
+    public void fromRotation_coversAllExifValues() {
+        assertEquals(Orientation.NORMAL, Orientation.fromRotation(0, false));
+        assertEquals(Orientation.ROTATE_90, Orientation.fromRotation(90, false));
+        assertEquals(Orientation.ROTATE_180, Orientation.fromRotation(-180, false));
+        assertEquals(Orientation.ROTATE_270, Orientation.fromRotation(630, false));
+        assertEquals(Orientation.FLIP_HORIZONTAL, Orientation.fromRotation(360, true));
+        assertEquals(Orientation.TRANSPOSE, Orientation.fromRotation(90, true));
+        assertEquals(Orientation.FLIP_VERTICAL, Orientation.fromRotation(180, true));
+        assertEquals(Orientation.TRANSVERSE, Orientation.fromRotation(270, true));
+        for (Orientation orientation : Orientation.values()) {
+            assertEquals(orientation, Orientation.fromExif(orientation.getExifValue()));
+        }
+        assertEquals(Orientation.NORMAL, Orientation.fromExif(0));
+    }
+
+    @Test
+    public void forCamera_followsSensorAndDisplay() {
+        // Typical back camera, phone in portrait and in landscape.
+        assertEquals(Orientation.ROTATE_90, Orientation.forCamera(90, 0, false));
+        assertEquals(Orientation.NORMAL, Orientation.forCamera(90, 90, false));
+        // Typical front camera in portrait: rotated the other way and mirrored.
+        assertEquals(Orientation.TRANSVERSE, Orientation.forCamera(270, 0, true));
+    }
+
+    @Test
+    public void argbKernel_readsEveryOrientationUpright() {
+        int width = 96;
+        int height = 64;
+        for (Orientation orientation : Orientation.values()) {
+            int uprightWidth = orientation.uprightWidth(width, height);
+            int uprightHeight = orientation.uprightHeight(width, height);
+            int[] upright = randomPixels(uprightWidth * uprightHeight, orientation.ordinal());
+            int[] stored = new int[width * height];
+            for (int v = 0; v < uprightHeight; v++) {
+                for (int u = 0; u < uprightWidth; u++) {
+                    int x = (int) orientation.sourceX(u, v, width);
+                    int y = (int) orientation.sourceY(u, v, height);
+                    stored[y * width + x] = upright[v * uprightWidth + u];
+                }
+            }
+
+            ByteBuffer expected = floatBuffer();
+            ResizeCropKernel.argbToByteBuffer(upright, uprightWidth, uprightHeight, expected, SIZE, SIZE, MEAN, STD);
+            ByteBuffer actual = floatBuffer();
+            ResizeCropKernel.argbToByteBuffer(stored, width, height,
+                    CropWindow.centerCrop(width, height, orientation, SIZE, SIZE), actual, SIZE, SIZE, MEAN, STD);
+            assertBuffersEqual(orientation, expected, actual);
+        }
+    }
+
+    @Test
+    public void nv21Kernel_readsEveryOrientationUpright() {
+        int width = 96;
+        int height = 64;
+        for (Orientation orientation : Orientation.values()) {
+            int uprightWidth = orientation.uprightWidth(width, height);
+            int uprightHeight = orientation.uprightHeight(width, height);
+            byte[] upright = randomNv21(uprightWidth, uprightHeight, orientation.ordinal());
+            byte[] stored = new byte[upright.length];
+            int uprightChroma = uprightWidth * uprightHeight;
+            int storedChroma = width * height;
+            for (int v = 0; v < uprightHeight; v++) {
+                for (int u = 0; u < uprightWidth; u++) {
+                    int x = (int) orientation.sourceX(u, v, width);
+                    int y = (int) orientation.sourceY(u, v, height);
+                    stored[y * width + x] = upright[v * uprightWidth + u];
+                    // Even sizes keep the 2x2 chroma blocks together.
+                    int from = uprightChroma + (v >> 1) * uprightWidth + (u >> 1) * 2;
+                    int to = storedChroma + (y >> 1) * width + (x >> 1) * 2;
+                    stored[to] = upright[from];
+                    stored[to + 1] = upright[from + 1];
+                }
+            }
+
+            ByteBuffer expected = floatBuffer();
+            YuvConverter.nv21ToByteBuffer(upright, uprightWidth, uprightHeight, expected, SIZE, SIZE, MEAN, STD);
+            ByteBuffer actual = floatBuffer();
+            YuvConverter.nv21ToByteBuffer(stored, width, height,
+                    CropWindow.centerCrop(width, height, orientation, SIZE, SIZE), actual, SIZE, SIZE, MEAN, STD);
+            assertBuffersEqual(orientation, expected, actual);
+        }
+    }
+
+    private static void assertBuffersEqual(Orientation orientation, ByteBuffer expected, ByteBuffer actual) {
+        for (int i = 0; i < 3 * SIZE * SIZE; i++) {
+            assertEquals(orientation + " element " + i, expected.getFloat(i * 4), actual.getFloat(i * 4), 1e-3f);
+        }
+    }
+
+    private static ByteBuffer floatBuffer() {
+        return ByteBuffer.allocateDirect(3 * SIZE * SIZE * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private static int[] randomPixels(int count, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    private static byte[] randomNv21(int width, int height, long seed) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        new Random(seed).nextBytes(nv21);
+        return nv21;
+    }
+}
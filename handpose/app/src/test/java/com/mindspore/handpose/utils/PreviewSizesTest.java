@@ -0,0 +1,22 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PreviewSizesTest {
+    private static final int[][] SIZES = new int[][]{
+            {1920, 1080}, {1280, 720}, {640, 480}, {352, 288}, {320, 240}, {720, 480}
+    };
+
+    @Test
+    public void choose_picksSmallestSizeAboveMinimum() {
+        assertEquals(2, PreviewSizes.choose(SIZES, PreviewSizes.MIN_SHORT_SIDE));
+        assertEquals(3, PreviewSizes.choose(SIZES, 256));
+    }
+
+    @Test
+    public void choose_fallsBackToLargest() {
+        assertEquals(0, PreviewSizes.choose(SIZES, 2000));
+    }
+}
@@ -0,0 +1,113 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the fused kernel against a straightforward Resize(256) -> CenterCrop(224) -> Normalize reference.
+ */
+public class ResizeCropKernelTest {
+    private static final int SIZE = 224;
+    private static final float[] MEAN = new float[]{0.485F * 255, 0.456F * 255, 0.406F * 255};
+    private static final float[] STD = new float[]{0.229F * 255, 0.224F * 255, 0.225F * 255};
+
+    @Test
+    public void centerCrop_matchesScaleBitmapAndKeepRatioGeometry() {
+        // 640x480 -> 341x256, crop starts at (341/2 - 112, 256/2 - 112).
+        CropWindow window = CropWindow.centerCrop(640, 480, SIZE, SIZE);
+        assertEquals(640f / 341, window.stepX, 1e-6);
+        assertEquals(480f / 256, window.stepY, 1e-6);
+        assertEquals(58 * 640f / 341, window.originX, 1e-4);
+        assertEquals(16 * 480f / 256, window.originY, 1e-4);
+    }
+
+    @Test
+    public void landscapeFrame_matchesReference() {
+        assertMatchesReference(640, 480, 1);
+    }
+
+    @Test
+    public void portraitFrame_matchesReference() {
+        assertMatchesReference(720, 1280, 2);
+    }
+
+    @Test
+    public void upscaledFrame_matchesReference() {
+        assertMatchesReference(200, 150, 3);
+    }
+
+    private static void assertMatchesReference(int width, int height, long seed) {
+        int[] pixels = randomPixels(width, height, seed);
+        ByteBuffer actual = ByteBuffer.allocateDirect(SIZE * SIZE * 3 * 4).order(ByteOrder.nativeOrder());
+        ResizeCropKernel.argbToByteBuffer(pixels, width, height, actual, SIZE, SIZE, MEAN, STD);
+
+        float[] expected = reference(pixels, width, height);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("element " + i, expected[i], actual.getFloat(i * 4), 1e-3f);
+        }
+    }
+
+    /**
+     * Materializes the whole resized image, crops its center and normalizes, in double precision.
+     */
+    private static float[] reference(int[] pixels, int width, int height) {
+        int scaleWidth, scaleHeight;
+        if (width < height) {
+            scaleWidth = 256;
+            scaleHeight = height * 256 / width;
+        } else {
+            scaleHeight = 256;
+            scaleWidth = width * 256 / height;
+        }
+        double[][] resized = new double[3][scaleWidth * scaleHeight];
+        double stepX = (double) width / scaleWidth;
+        double stepY = (double) height / scaleHeight;
+        for (int y = 0; y < scaleHeight; y++) {
+            double sy = Math.min(Math.max((y + 0.5) * stepY - 0.5, 0), height - 1);
+            int y0 = (int) sy;
+            int y1 = Math.min(y0 + 1, height - 1);
+            double fy = sy - y0;
+            for (int x = 0; x < scaleWidth; x++) {
+                double sx = Math.min(Math.max((x + 0.5) * stepX - 0.5, 0), width - 1);
+                int x0 = (int) sx;
+                int x1 = Math.min(x0 + 1, width - 1);
+                double fx = sx - x0;
+                for (int c = 0; c < 3; c++) {
+                    double p00 = pixels[y0 * width + x0] >> (16 - c * 8) & 0xFF;
+                    double p01 = pixels[y0 * width + x1] >> (16 - c * 8) & 0xFF;
+                    double p10 = pixels[y1 * width + x0] >> (16 - c * 8) & 0xFF;
+                    double p11 = pixels[y1 * width + x1] >> (16 - c * 8) & 0xFF;
+                    resized[c][y * scaleWidth + x] = (p00 * (1 - fx) + p01 * fx) * (1 - fy)
+                            + (p10 * (1 - fx) + p11 * fx) * fy;
+                }
+            }
+        }
+
+        int beginX = scaleWidth / 2 - SIZE / 2;
+        int beginY = scaleHeight / 2 - SIZE / 2;
+        float[] out = new float[3 * SIZE * SIZE];
+        for (int c = 0; c < 3; c++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    double value = resized[c][(beginY + y) * scaleWidth + beginX + x];
+                    out[c * SIZE * SIZE + y * SIZE + x] = (float) ((value - MEAN[c]) / STD[c]);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static int[] randomPixels(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
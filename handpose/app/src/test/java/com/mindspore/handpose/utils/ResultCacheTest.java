@@ -0,0 +1,97 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final long MS = 1_000_000;
+
+    private static byte[] gradientFrame(int seed, int noise) {
+        Random random = new Random(seed);
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int luma = (x * 7 + y * 3 + (x / 40) * 60) % 256 + random.nextInt(noise * 2 + 1) - noise;
+                nv21[y * WIDTH + x] = (byte) Math.max(0, Math.min(255, luma));
+            }
+        }
+        return nv21;
+    }
+
+    private static long hash(byte[] nv21) {
+        CropWindow window = CropWindow.centerCrop(WIDTH, HEIGHT, 224, 224);
+        return FrameHash.dHash(nv21, WIDTH, HEIGHT, window, 224, 224);
+    }
+
+    private static GestureResult result(int classIndex) {
+        GestureResult result = new GestureResult(2);
+        float[] logits = new float[2];
+        logits[classIndex] = 5f;
+        result.setLogits(logits, 0);
+        return result;
+    }
+
+    @Test
+    public void dHash_isStableUnderNoiseAndDiffersAcrossScenes() {
+        long clean = hash(gradientFrame(1, 0));
+        long noisy = hash(gradientFrame(2, 3));
+        byte[] flipped = gradientFrame(1, 0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH / 2; x++) {
+                byte left = flipped[y * WIDTH + x];
+                flipped[y * WIDTH + x] = flipped[y * WIDTH + WIDTH - 1 - x];
+                flipped[y * WIDTH + WIDTH - 1 - x] = left;
+            }
+        }
+
+        assertTrue(FrameHash.distance(clean, noisy) <= ResultCache.DEFAULT_MAX_DISTANCE);
+        assertTrue(FrameHash.distance(clean, hash(flipped)) > 16);
+    }
+
+    @Test
+    public void lookup_hitsNearbyHashesUntilMaxAge() {
+        ResultCache cache = new ResultCache(2, 4, 2, 100 * MS);
+        cache.put(0b1011L, 0, result(1));
+        GestureResult out = new GestureResult(2);
+
+        assertTrue(cache.lookup(0b1000L, 50 * MS, out));
+        assertEquals(1, out.getClassIndex());
+        assertFalse(cache.contains(0b0100L, 50 * MS));
+        assertFalse(cache.lookup(0b1011L, 101 * MS, out));
+    }
+
+    @Test
+    public void put_ignoresFailuresAndReplacesSimilarEntries() {
+        ResultCache cache = new ResultCache(2, 4, 2, 100 * MS);
+        GestureResult failed = new GestureResult(2);
+        failed.setFailed(GestureResult.Status.PREDICT_FAILED);
+        cache.put(1L, 0, failed);
+        assertEquals(0, cache.size());
+
+        cache.put(1L, 0, result(0));
+        cache.put(3L, 200 * MS, result(1));
+        assertEquals(1, cache.size());
+        GestureResult out = new GestureResult(2);
+        assertTrue(cache.lookup(1L, 250 * MS, out));
+        assertEquals(1, out.getClassIndex());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2, 2, 0, 100 * MS);
+        cache.put(0x0FL, 0, result(0));
+        cache.put(0xF0L, 0, result(1));
+        assertTrue(cache.contains(0x0FL, 1));
+        cache.put(0xFF00L, 2, result(1));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains(0x0FL, 3));
+        assertFalse(cache.contains(0xF0L, 3));
+        assertTrue(cache.contains(0xFF00L, 3));
+    }
+}
@@ -0,0 +1,101 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoiTrackerTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    // Skin fractions of a crop filled by a hand and of a handless one, e.g. a wall.
+    private static final float HAND = 0.5f;
+    private static final float NO_HAND = 0.02f;
+
+    private final RoiTracker tracker = new RoiTracker(224, 224);
+
+    @Test
+    public void searchStartsWithFullFrame_andCyclesCandidates() {
+        RoiTracker.Region first = tracker.nextRegion(WIDTH, HEIGHT);
+        assertTrue(first.isFullFrame());
+        tracker.onResult(first, 0.5f, HAND);
+        RoiTracker.Region second = tracker.nextRegion(WIDTH, HEIGHT);
+        assertFalse(second.isFullFrame());
+        assertFalse(tracker.isLocked());
+    }
+
+    @Test
+    public void confidentRegion_isLockedAndReused() {
+        tracker.nextRegion(WIDTH, HEIGHT);
+        RoiTracker.Region zoomed = tracker.nextRegion(WIDTH, HEIGHT);
+        tracker.onResult(zoomed, 0.95f, HAND);
+        assertTrue(tracker.isLocked());
+        for (int i = 0; i < 10; i++) {
+            RoiTracker.Region region = tracker.nextRegion(WIDTH, HEIGHT);
+            assertSame(zoomed, region);
+            // Between lost (0.7) and lock (0.9) keeps the lock.
+            tracker.onResult(region, 0.75f, HAND);
+        }
+        assertTrue(tracker.isLocked());
+    }
+
+    @Test
+    public void confidentRegionWithoutSkin_isNotLocked() {
+        // A two-class model is confident on most crops, hand or not.
+        for (int i = 0; i < 12; i++) {
+            tracker.onResult(tracker.nextRegion(WIDTH, HEIGHT), 0.99f, NO_HAND);
+        }
+        assertFalse(tracker.isLocked());
+        RoiTracker.Region region = tracker.nextRegion(WIDTH, HEIGHT);
+        tracker.onResult(region, 0.99f, RoiTracker.DEFAULT_LOCK_SKIN_FRACTION);
+        assertTrue(tracker.isLocked());
+    }
+
+    @Test
+    public void lockedRegionLosingSkin_isGivenUp() {
+        tracker.nextRegion(WIDTH, HEIGHT);
+        RoiTracker.Region zoomed = tracker.nextRegion(WIDTH, HEIGHT);
+        tracker.onResult(zoomed, 0.95f, HAND);
+        // Still confident, but the hand has left the region.
+        for (int i = 0; i < RoiTracker.DEFAULT_MAX_MISSES; i++) {
+            tracker.onResult(tracker.nextRegion(WIDTH, HEIGHT), 0.99f, NO_HAND);
+        }
+        assertFalse(tracker.isLocked());
+    }
+
+    @Test
+    public void lostRegion_fallsBackToFullFrame() {
+        tracker.nextRegion(WIDTH, HEIGHT);
+        RoiTracker.Region zoomed = tracker.nextRegion(WIDTH, HEIGHT);
+        tracker.onResult(zoomed, 0.95f, HAND);
+        for (int i = 0; i < RoiTracker.DEFAULT_MAX_MISSES; i++) {
+            tracker.onResult(tracker.nextRegion(WIDTH, HEIGHT), 0.3f, HAND);
+        }
+        assertFalse(tracker.isLocked());
+        assertTrue(tracker.nextRegion(WIDTH, HEIGHT).isFullFrame());
+    }
+
+    @Test
+    public void zoomedRegions_stayInsideFrame_andMagnify() {
+        CropWindow full = tracker.nextRegion(WIDTH, HEIGHT).window;
+        for (int i = 1; i < 6; i++) {
+            CropWindow window = tracker.nextRegion(WIDTH, HEIGHT).window;
+            assertTrue(window.stepX < full.stepX);
+            assertTrue(window.originX >= 0f && window.originY >= 0f);
+            assertTrue(window.originX + 224 * window.stepX <= WIDTH + 1e-3f);
+            assertTrue(window.originY + 224 * window.stepY <= HEIGHT + 1e-3f);
+        }
+    }
+
+    @Test
+    public void frameSizeChange_dropsLock() {
+        RoiTracker.Region first = tracker.nextRegion(WIDTH, HEIGHT);
+        tracker.onResult(first, 0.95f, HAND);
+        assertTrue(tracker.isLocked());
+        RoiTracker.Region rotated = tracker.nextRegion(HEIGHT, WIDTH);
+        assertFalse(tracker.isLocked());
+        assertTrue(rotated.isFullFrame());
+        // A result for the old geometry is ignored.
+        tracker.onResult(first, 0.95f, HAND);
+        assertFalse(tracker.isLocked());
+    }
+}
@@ -0,0 +1,82 @@
+package com.mindspore.handpose.utils;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SizeBucketPoolTest {
+    private final List<String> evicted = new ArrayList<>();
+    private final SizeBucketPool<String> pool = new SizeBucketPool<>(1000, evicted::add);
+
+    @Test
+    public void take_returnsSmallestFittingItem() {
+        pool.put("small", 100);
+        pool.put("medium", 200);
+        pool.put("large", 400);
+
+        assertEquals("medium", pool.take(150));
+        assertEquals("small", pool.take(100));
+        assertNull(pool.take(500));
+        assertEquals(400, pool.getCurrentBytes());
+        assertEquals(2, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void take_skipsItemsFarLargerThanAsked() {
+        pool.put("large", 400);
+
+        assertNull(pool.take(99));
+        assertEquals("large", pool.take(100));
+    }
+
+    @Test
+    public void put_evictsLargestOverBudget() {
+        pool.put("a", 300);
+        pool.put("b", 500);
+        pool.put("c", 300);
+
+        assertEquals(600, pool.getCurrentBytes());
+        assertEquals(1, evicted.size());
+        assertEquals("b", evicted.get(0));
+    }
+
+    @Test
+    public void put_evictsItemOverWholeBudget() {
+        assertFalse(pool.put("huge", 2000));
+        assertEquals(0, pool.getCurrentBytes());
+        assertEquals("huge", evicted.get(0));
+    }
+
+    @Test
+    public void trimTo_andClear_evictEverythingAboveTarget() {
+        pool.put("a", 100);
+        pool.put("b", 200);
+        pool.put("c", 300);
+
+        pool.trimTo(250);
+        assertEquals(100, pool.getCurrentBytes());
+        assertEquals("c", evicted.get(0));
+        assertEquals("b", evicted.get(1));
+
+        pool.clear();
+        assertEquals(0, pool.getCurrentBytes());
+        assertEquals(3, evicted.size());
+        assertNull(pool.take(1));
+    }
+
+    @Test
+    public void trimTarget_shrinksWithMemoryPressure() {
+        assertEquals(1000, BitmapPool.trimTarget(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE, 1000));
+        assertEquals(500, BitmapPool.trimTarget(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, 1000));
+        assertEquals(0, BitmapPool.trimTarget(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, 1000));
+        assertEquals(500, BitmapPool.trimTarget(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN, 1000));
+        assertEquals(0, BitmapPool.trimTarget(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND, 1000));
+        assertEquals(0, BitmapPool.trimTarget(ComponentCallbacks2.TRIM_MEMORY_COMPLETE, 1000));
+    }
+}
@@ -0,0 +1,34 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StartupReportTest {
+
+    @Test
+    public void steadyPredict_excludesFirstRun() {
+        StartupReport report = new StartupReport();
+        report.setMapNanos(1_200_000);
+        report.setBuildNanos(85_000_000);
+        report.setReady(true);
+        report.setWarmUpNanos(new long[]{40_000_000, 10_000_000, 12_000_000});
+
+        assertEquals(40_000_000, report.getFirstPredictNanos());
+        assertEquals(11_000_000, report.getSteadyPredictNanos());
+        assertEquals("map 1.2 ms, build 85.0 ms, first predict 40.0 ms, steady predict 11.0 ms (3 warm-up runs)",
+                report.toString());
+    }
+
+    @Test
+    public void withoutWarmUp_predictTimesAreUnknown() {
+        StartupReport report = new StartupReport();
+        report.setReady(true);
+        assertEquals(-1, report.getFirstPredictNanos());
+        assertEquals(-1, report.getSteadyPredictNanos());
+        assertTrue(report.toString().contains("first predict n/a"));
+
+        report.setReady(false);
+        assertTrue(report.toString().startsWith("not ready"));
+    }
+}
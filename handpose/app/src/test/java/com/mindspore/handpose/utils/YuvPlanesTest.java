@@ -0,0 +1,113 @@
+package com.mindspore.handpose.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Camera2 images, planar or semi-planar with padded rows, must preprocess exactly like the same frame as NV21.
+ */
+public class YuvPlanesTest {
+    private static final int WIDTH = 96;
+    private static final int HEIGHT = 64;
+    private static final int SIZE = 32;
+    private static final int ROW_PADDING = 16;
+    private static final float[] MEAN = new float[]{127.5f, 127.5f, 127.5f};
+    private static final float[] STD = new float[]{127.5f, 127.5f, 127.5f};
+
+    @Test
+    public void semiPlanar_matchesNv21() {
+        byte[] nv21 = randomNv21(1);
+        assertSameAsNv21(nv21, toPlanes(nv21, 2));
+    }
+
+    @Test
+    public void planar_matchesNv21() {
+        byte[] nv21 = randomNv21(2);
+        assertSameAsNv21(nv21, toPlanes(nv21, 1));
+    }
+
+    @Test
+    public void copyToNv21_dropsPaddingAndInterleaves() {
+        byte[] nv21 = randomNv21(3);
+        byte[] copy = new byte[nv21.length];
+        toPlanes(nv21, 1).copyToNv21(copy);
+        assertArrayEquals(nv21, copy);
+        toPlanes(nv21, 2).copyToNv21(copy);
+        assertArrayEquals(nv21, copy);
+    }
+
+    private static void assertSameAsNv21(byte[] nv21, YuvPlanes planes) {
+        for (Orientation orientation : new Orientation[]{Orientation.NORMAL, Orientation.ROTATE_90}) {
+            CropWindow window = CropWindow.centerCrop(WIDTH, HEIGHT, orientation, SIZE, SIZE);
+            ByteBuffer expected = floatBuffer();
+            YuvConverter.nv21ToByteBuffer(nv21, WIDTH, HEIGHT, window, expected, SIZE, SIZE, MEAN, STD);
+            ByteBuffer actual = floatBuffer();
+            YuvConverter.planesToByteBuffer(planes, window, actual, SIZE, SIZE, MEAN, STD);
+            for (int i = 0; i < 3 * SIZE * SIZE; i++) {
+                assertEquals(orientation + " element " + i, expected.getFloat(i * 4), actual.getFloat(i * 4), 0f);
+            }
+
+            assertEquals(FrameHash.dHash(nv21, WIDTH, HEIGHT, window, SIZE, SIZE),
+                    FrameHash.dHash(planes, window, SIZE, SIZE));
+            HandPresenceGate nv21Gate = new HandPresenceGate();
+            HandPresenceGate planesGate = new HandPresenceGate();
+            assertEquals(nv21Gate.isHandLikely(nv21, WIDTH, HEIGHT, window, SIZE, SIZE),
+                    planesGate.isHandLikely(planes, window, SIZE, SIZE));
+            assertEquals(nv21Gate.getLastSkinFraction(), planesGate.getLastSkinFraction(), 0f);
+        }
+    }
+
+    /**
+     * The planes a YUV_420_888 image would have for {@code nv21}, in direct buffers with padded rows.
+     * A pixel stride of 2 makes U and V views into one interleaved buffer, as on most devices.
+     */
+    private static YuvPlanes toPlanes(byte[] nv21, int uvPixelStride) {
+        int yRowStride = WIDTH + ROW_PADDING;
+        ByteBuffer y = ByteBuffer.allocateDirect(yRowStride * HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int x = 0; x < WIDTH; x++) {
+                y.put(row * yRowStride + x, nv21[row * WIDTH + x]);
+            }
+        }
+        int uvRowStride = WIDTH / 2 * uvPixelStride + ROW_PADDING;
+        int uvOffset = WIDTH * HEIGHT;
+        ByteBuffer u;
+        ByteBuffer v;
+        if (uvPixelStride == 2) {
+            ByteBuffer vu = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+            for (int row = 0; row < HEIGHT / 2; row++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    vu.put(row * uvRowStride + x, nv21[uvOffset + row * WIDTH + x]);
+                }
+            }
+            v = vu;
+            vu.position(1);
+            u = vu.slice();
+        } else {
+            u = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+            v = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+            for (int row = 0; row < HEIGHT / 2; row++) {
+                for (int x = 0; x < WIDTH / 2; x++) {
+                    v.put(row * uvRowStride + x, nv21[uvOffset + row * WIDTH + 2 * x]);
+                    u.put(row * uvRowStride + x, nv21[uvOffset + row * WIDTH + 2 * x + 1]);
+                }
+            }
+        }
+        return new YuvPlanes(WIDTH, HEIGHT, y, yRowStride, u, v, uvRowStride, uvPixelStride);
+    }
+
+    private static ByteBuffer floatBuffer() {
+        return ByteBuffer.allocateDirect(3 * SIZE * SIZE * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private static byte[] randomNv21(long seed) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        new Random(seed).nextBytes(nv21);
+        return nv21;
+    }
+}
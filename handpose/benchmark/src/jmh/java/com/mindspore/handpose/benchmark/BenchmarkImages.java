@@ -0,0 +1,60 @@
+package com.mindspore.handpose.benchmark;
+
+import com.mindspore.handpose.utils.YuvPlanes;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs shared by the benchmarks.
+ */
+final class BenchmarkImages {
+    static final int INPUT_SIZE = 224;
+    static final int CAMERA_WIDTH = 640;
+    static final int CAMERA_HEIGHT = 480;
+    static final float[] MEAN = new float[]{0.485f * 255, 0.456f * 255, 0.406f * 255};
+    static final float[] STD = new float[]{0.229f * 255, 0.224f * 255, 0.225f * 255};
+
+    private BenchmarkImages() {
+    }
+
+    static int[] argb(int width, int height) {
+        Random random = new Random(42);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    static byte[] nv21(int width, int height) {
+        byte[] data = new byte[width * height * 3 / 2];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * The same frame as {@link #nv21} the way Camera2 usually hands it out: direct buffers, rows padded to 64
+     * bytes and U/V interleaved with a pixel stride of 2.
+     */
+    static YuvPlanes yuvPlanes(int width, int height) {
+        byte[] nv21 = nv21(width, height);
+        int rowStride = (width + 63) & ~63;
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * height);
+        ByteBuffer vu = ByteBuffer.allocateDirect(rowStride * height / 2);
+        for (int row = 0; row < height; row++) {
+            y.position(row * rowStride);
+            y.put(nv21, row * width, width);
+        }
+        for (int row = 0; row < height / 2; row++) {
+            vu.position(row * rowStride);
+            vu.put(nv21, width * height + row * width, width);
+        }
+        y.clear();
+        vu.clear();
+        ByteBuffer v = vu.duplicate();
+        vu.position(1);
+        ByteBuffer u = vu.slice();
+        return new YuvPlanes(width, height, y, rowStride, u, v, rowStride, 2);
+    }
+}
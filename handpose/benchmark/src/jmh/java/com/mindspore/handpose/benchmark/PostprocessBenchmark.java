@@ -0,0 +1,52 @@
+package com.mindspore.handpose.benchmark;
+
+import com.mindspore.handpose.utils.GestureResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Softmax + argmax of the model output, as done by ModelManager.execute.
+ */
+@State(Scope.Thread)
+public class PostprocessBenchmark {
+    // 2 is the shipped model; the larger sizes show the cost for models with more gestures.
+    @Param({"2", "10", "100"})
+    public int numClasses;
+
+    private float[] logits;
+    private GestureResult result;
+    private String[] labels;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        logits = new float[numClasses];
+        labels = new String[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            logits[i] = random.nextFloat() * 10f - 5f;
+            labels[i] = "gesture" + i;
+        }
+        result = new GestureResult(numClasses);
+        result.setLogits(logits, 0);
+    }
+
+    @Benchmark
+    public int softmax() {
+        result.setLogits(logits, 0);
+        return result.getClassIndex();
+    }
+
+    /**
+     * Only done when the picture path shows a result, kept here to see what the string costs.
+     */
+    @Benchmark
+    public String format() {
+        return result.format(labels);
+    }
+}
@@ -0,0 +1,188 @@
+package com.mindspore.handpose.benchmark;
+
+import com.mindspore.handpose.utils.ChwNormalizer;
+import com.mindspore.handpose.utils.CropWindow;
+import com.mindspore.handpose.utils.FrameHash;
+import com.mindspore.handpose.utils.HandPresenceGate;
+import com.mindspore.handpose.utils.InputQuantization;
+import com.mindspore.handpose.utils.Orientation;
+import com.mindspore.handpose.utils.ResizeCropKernel;
+import com.mindspore.handpose.utils.YuvConverter;
+import com.mindspore.handpose.utils.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.mindspore.handpose.benchmark.BenchmarkImages.CAMERA_HEIGHT;
+import static com.mindspore.handpose.benchmark.BenchmarkImages.CAMERA_WIDTH;
+import static com.mindspore.handpose.benchmark.BenchmarkImages.INPUT_SIZE;
+import static com.mindspore.handpose.benchmark.BenchmarkImages.MEAN;
+import static com.mindspore.handpose.benchmark.BenchmarkImages.STD;
+
+/**
+ * One frame of input preparation, from pixels to the CHW float tensor.
+ * The steady state should allocate nothing: check gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+public class PreprocessBenchmark {
+    private int[] inputPixels;
+    private int[] cameraPixels;
+    private byte[] nv21;
+    private YuvPlanes planes;
+    private CropWindow roi;
+    private ByteBuffer tensor;
+    private ByteBuffer quantizedTensor;
+    private byte[] lut;
+    private CropWindow centerCrop;
+    private CropWindow rotatedCenterCrop;
+    private ForkJoinPool pool;
+    private HandPresenceGate presenceGate;
+
+    @Setup
+    public void setup() {
+        inputPixels = BenchmarkImages.argb(INPUT_SIZE, INPUT_SIZE);
+        cameraPixels = BenchmarkImages.argb(CAMERA_WIDTH, CAMERA_HEIGHT);
+        nv21 = BenchmarkImages.nv21(CAMERA_WIDTH, CAMERA_HEIGHT);
+        planes = BenchmarkImages.yuvPlanes(CAMERA_WIDTH, CAMERA_HEIGHT);
+        roi = CropWindow.fromRect(100f, 80f, 288f, 288f, INPUT_SIZE, INPUT_SIZE);
+        tensor = ByteBuffer.allocateDirect(3 * INPUT_SIZE * INPUT_SIZE * 4).order(ByteOrder.nativeOrder());
+        pool = new ForkJoinPool(2);
+        quantizedTensor = ByteBuffer.allocateDirect(3 * INPUT_SIZE * INPUT_SIZE);
+        lut = new InputQuantization(0.0187f, 114, false).lookupTable(MEAN, STD);
+        centerCrop = CropWindow.centerCrop(CAMERA_WIDTH, CAMERA_HEIGHT, INPUT_SIZE, INPUT_SIZE);
+        rotatedCenterCrop = CropWindow.centerCrop(CAMERA_WIDTH, CAMERA_HEIGHT, Orientation.ROTATE_90,
+                INPUT_SIZE, INPUT_SIZE);
+        presenceGate = new HandPresenceGate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * The original three-pass loop of BitmapUtils.bitmapToByteBuffer, kept as the baseline.
+     */
+    @Benchmark
+    public ByteBuffer normalizeChwBaseline() {
+        tensor.rewind();
+        for (int c = 0; c < 3; c++) {
+            for (int y = 0; y < INPUT_SIZE; y++) {
+                for (int x = 0; x < INPUT_SIZE; x++) {
+                    int value = inputPixels[y * INPUT_SIZE + x];
+                    tensor.putFloat(((float) (value >> (16 - c * 8) & 255) - MEAN[c]) / STD[c]);
+                }
+            }
+        }
+        tensor.rewind();
+        return tensor;
+    }
+
+    /**
+     * The normalization of BitmapUtils.bitmapToByteBuffer, for a bitmap already 224x224.
+     */
+    @Benchmark
+    public ByteBuffer normalizeChw() {
+        ChwNormalizer.argbToByteBuffer(inputPixels, INPUT_SIZE, INPUT_SIZE, tensor, MEAN, STD);
+        return tensor;
+    }
+
+    @Benchmark
+    public ByteBuffer normalizeChwParallel() {
+        ChwNormalizer.argbToByteBuffer(inputPixels, INPUT_SIZE, INPUT_SIZE, tensor, MEAN, STD, pool);
+        return tensor;
+    }
+
+    /**
+     * uint8 input of a quantized model: one table lookup and a byte store per element.
+     */
+    @Benchmark
+    public ByteBuffer normalizeChwQuantized() {
+        ChwNormalizer.argbToQuantized(inputPixels, INPUT_SIZE, INPUT_SIZE, quantizedTensor, lut);
+        return quantizedTensor;
+    }
+
+    /**
+     * Picture path: ARGB camera-sized bitmap pixels, Resize(256) + CenterCrop(224) fused.
+     */
+    @Benchmark
+    public ByteBuffer argbResizeCrop() {
+        ResizeCropKernel.argbToByteBuffer(cameraPixels, CAMERA_WIDTH, CAMERA_HEIGHT, tensor,
+                INPUT_SIZE, INPUT_SIZE, MEAN, STD);
+        return tensor;
+    }
+
+    /**
+     * Camera path: NV21 preview frame, center crop.
+     */
+    @Benchmark
+    public ByteBuffer nv21CenterCrop() {
+        YuvConverter.nv21ToByteBuffer(nv21, CAMERA_WIDTH, CAMERA_HEIGHT, tensor, INPUT_SIZE, INPUT_SIZE, MEAN, STD);
+        return tensor;
+    }
+
+    /**
+     * Portrait phone: the sideways frame is read upright through the crop, should cost the same as nv21CenterCrop.
+     */
+    @Benchmark
+    public ByteBuffer nv21CenterCropRotated() {
+        YuvConverter.nv21ToByteBuffer(nv21, CAMERA_WIDTH, CAMERA_HEIGHT, rotatedCenterCrop, tensor,
+                INPUT_SIZE, INPUT_SIZE, MEAN, STD);
+        return tensor;
+    }
+
+    @Benchmark
+    public ByteBuffer nv21CenterCropQuantized() {
+        YuvConverter.nv21ToQuantized(nv21, CAMERA_WIDTH, CAMERA_HEIGHT, centerCrop, quantizedTensor,
+                INPUT_SIZE, INPUT_SIZE, lut);
+        return quantizedTensor;
+    }
+
+    /**
+     * Camera2 path: the same center crop read in place from the image planes, to compare with nv21CenterCrop.
+     */
+    @Benchmark
+    public ByteBuffer planesCenterCrop() {
+        YuvConverter.planesToByteBuffer(planes, centerCrop, tensor, INPUT_SIZE, INPUT_SIZE, MEAN, STD);
+        return tensor;
+    }
+
+    /**
+     * Camera path with a tracked hand region, as RoiTracker produces.
+     */
+    @Benchmark
+    public ByteBuffer nv21Roi() {
+        YuvConverter.nv21ToByteBuffer(nv21, CAMERA_WIDTH, CAMERA_HEIGHT, roi, tensor, INPUT_SIZE, INPUT_SIZE,
+                MEAN, STD);
+        return tensor;
+    }
+
+    @Benchmark
+    public ByteBuffer planesRoi() {
+        YuvConverter.planesToByteBuffer(planes, roi, tensor, INPUT_SIZE, INPUT_SIZE, MEAN, STD);
+        return tensor;
+    }
+
+    /**
+     * ResultCache key of a camera frame; has to stay far below the cost of nv21Roi to pay off.
+     */
+    @Benchmark
+    public long frameHash() {
+        return FrameHash.dHash(nv21, CAMERA_WIDTH, CAMERA_HEIGHT, roi, INPUT_SIZE, INPUT_SIZE);
+    }
+
+    /**
+     * First stage of the camera cascade, run on every frame before the model.
+     */
+    @Benchmark
+    public boolean presenceGate() {
+        return presenceGate.isHandLikely(nv21, CAMERA_WIDTH, CAMERA_HEIGHT, roi, INPUT_SIZE, INPUT_SIZE);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mindspore.handpose.benchmark;
+
+import com.mindspore.handpose.utils.FakeInferenceEngine;
+import com.mindspore.handpose.utils.FrameRecording;
+import com.mindspore.handpose.utils.FrameReplay;
+import com.mindspore.handpose.utils.GestureClassifier;
+import com.mindspore.handpose.utils.GestureLabels;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a preview recording from the app through the camera pipeline, with a fake model of fixed latency:
+ * ./gradlew :benchmark:replay -Precording=frames.bin [-Pspeed=realtime|max] [-PdelayMs=20] [-PmaxFps=15]
+ */
+public final class ReplayMain {
+    private ReplayMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayMain <recording> [realtime|max] [delay ms] [max fps]");
+            System.exit(2);
+        }
+        File file = new File(args[0]);
+        FrameReplay.Speed speed = args.length > 1 && args[1].toLowerCase(Locale.US).startsWith("real")
+                ? FrameReplay.Speed.REAL_TIME : FrameReplay.Speed.MAX;
+        long delayNanos = TimeUnit.MICROSECONDS.toNanos(
+                (long) (1000 * (args.length > 2 ? Double.parseDouble(args[2]) : 20)));
+        float maxFps = args.length > 3 ? Float.parseFloat(args[3]) : 0f;
+
+        // Always the same class, so the smoother and the cache behave as on a steady gesture.
+        int numClasses = GestureLabels.DEFAULT_LABELS.length;
+        float[] logits = new float[numClasses];
+        logits[0] = 5f;
+        GestureClassifier classifier = new GestureClassifier(new FakeInferenceEngine(logits, delayNanos),
+                numClasses, null);
+        FrameReplay replay = new FrameReplay(classifier);
+        replay.setMaxFps(maxFps);
+        FrameReplay.Report report;
+        try (FrameRecording recording = FrameRecording.open(file)) {
+            report = replay.run(recording, speed);
+        }
+        System.out.println(String.format(Locale.US, "%s, %s, model %.1f ms", file.getName(), speed,
+                delayNanos / 1e6));
+        System.out.println(report);
+        System.out.println(report.getMetrics().format());
+    }
+}
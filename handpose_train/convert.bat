@@ -2,4 +2,9 @@ set PACKAGE_ROOT_PATH=D:\SourceCode\mindspore\pretrain\handpose\mindspore-lite-1
 set PATH=%PACKAGE_ROOT_PATH%\tools\converter\lib;%PATH%
 cd D:\SourceCode\mindspore\pretrain\handpose\mindspore-lite-1.6.1-win-x64\tools\converter\converter
 call converter_lite --fmk=MINDIR --modelFile=D:\SourceCode\mindspore\pretrain\handpose\mobilenet_v2_1.0_224.mindir --outputFile=D:\SourceCode\mindspore\pretrain\handpose\mobilenet_handpose --inputDataFormat=NCHW
-cd ../../../../
\ No newline at end of file
+cd ../../../../
+rem Post-training quantized variant with a uint8 input tensor (ModelManager.MOBILENET_HANDPOSE_INT8_MODEL).
+rem Run "python prepare_calibration.py" and set calibrate_path in full_quant.cfg first. The output stays float32, so only the input needs quantization
+rem parameters: copy the scale and zero_point of the input tensor (shown by Netron) into
+rem handpose\app\src\main\assets\mobilenet_handpose_int8.quant.txt as "scale=..." and "zero_point=..." lines.
+call converter_lite --fmk=MINDIR --modelFile=D:\SourceCode\mindspore\pretrain\handpose\mobilenet_v2_1.0_224.mindir --outputFile=D:\SourceCode\mindspore\pretrain\handpose\mobilenet_handpose_int8 --inputDataFormat=NCHW --configFile=D:\SourceCode\mindspore\pretrain\handpose\full_quant.cfg --inputDataType=UINT8 --outputDataType=FLOAT32
@@ -0,0 +1,49 @@
+import argparse
+import os
+
+from PIL import Image
+
+# 与mindspore_train.py中验证集的变换和应用端的CropWindow一致：短边缩放到256，再中心裁剪224
+RESIZE_SHORT_SIDE = 256
+IMAGE_SIZE = 224
+IMAGE_EXTENSIONS = (".jpg", ".jpeg", ".png", ".bmp")
+
+
+def preprocess(path):
+    image = Image.open(path).convert("RGB")
+    width, height = image.size
+    scale = RESIZE_SHORT_SIDE / min(width, height)
+    width, height = max(IMAGE_SIZE, round(width * scale)), max(IMAGE_SIZE, round(height * scale))
+    image = image.resize((width, height), Image.BILINEAR)
+    left = (width - IMAGE_SIZE) // 2
+    top = (height - IMAGE_SIZE) // 2
+    return image.crop((left, top, left + IMAGE_SIZE, top + IMAGE_SIZE))
+
+
+def list_images(folder):
+    images = []
+    for root, _, files in os.walk(folder):
+        for name in sorted(files):
+            if name.lower().endswith(IMAGE_EXTENSIONS):
+                images.append(os.path.join(root, name))
+    return sorted(images)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="为full_quant.cfg生成224x224的量化校准集")
+    parser.add_argument("--src", default="./datasets/handpose/train")
+    parser.add_argument("--dst", default="./calibration")
+    parser.add_argument("--size", type=int, default=100, help="与full_quant.cfg中的calibrate_size相同")
+    args = parser.parse_args()
+
+    images = list_images(args.src)
+    # 在整个训练集中均匀取样，各类别都能覆盖到
+    step = max(1, len(images) // args.size)
+    os.makedirs(args.dst, exist_ok=True)
+    for i, path in enumerate(images[::step][:args.size]):
+        preprocess(path).save(os.path.join(args.dst, "%04d.png" % i))
+    print("Wrote %d calibration images to %s" % (min(args.size, len(images[::step])), args.dst))
+
+
+if __name__ == "__main__":
+    main()